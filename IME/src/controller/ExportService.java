@@ -0,0 +1,376 @@
+package controller;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
+import javax.imageio.ImageIO;
+import model.ImageInterface;
+
+/**
+ * Exports images in the background so saving does not hold up the controller. An export takes a
+ * snapshot of the image, which is immutable, encodes it on a pool of worker threads and hands the
+ * encoded bytes to a single writer thread through a bounded write-behind queue. Files are written
+ * in the order they were submitted, so a file exported twice ends up with its last version.
+ *
+ * <p>When the queue is full, submitting waits for the writer to catch up, which bounds the memory
+ * held by encoded images waiting to be written. Every write is reported, done or failed, to the
+ * given reporter from the writer thread. A file is written next to its destination and moved over
+ * it once complete, so a failed encoding or an interrupted write never leaves a truncated file.
+ *
+ * <p>The threads are started by the first export and stopped by close, which writes every file
+ * submitted before it.
+ */
+public class ExportService implements AutoCloseable {
+
+  private static final int DEFAULT_QUEUE_CAPACITY = 8;
+
+  /**
+   * A file waiting to be written: its name and the bytes being encoded for it.
+   */
+  private static final class Write {
+
+    private final String filename;
+    private final Path path;
+    private final Future<byte[]> content;
+
+    private Write(String filename, Path path, Future<byte[]> content) {
+      this.filename = filename;
+      this.path = path;
+      this.content = content;
+    }
+  }
+
+  // queued after the last write by close, stops the writer
+  private static final Write END = new Write(null, null, null);
+
+  private final int parallelism;
+  private final BlockingQueue<Write> queue;
+  private final Consumer<String> reporter;
+  private final Object lock = new Object();
+  // the fields below are guarded by lock
+  private ForkJoinPool encoders; // null until the first export
+  private Thread writer;
+  private boolean closed;
+  private int pending; // writes submitted and not finished yet
+  private final Map<Path, Integer> pendingPaths = new HashMap<>(); // the same, by destination
+
+  /**
+   * Constructs an export service encoding on every available processor.
+   *
+   * @param reporter receives a message when a file is written or fails to be written
+   * @throws IllegalArgumentException if the reporter is null
+   */
+  public ExportService(Consumer<String> reporter) {
+    this(Runtime.getRuntime().availableProcessors(), DEFAULT_QUEUE_CAPACITY, reporter);
+  }
+
+  /**
+   * Constructs an export service with the given number of encoding threads and queue capacity.
+   *
+   * @param encoders      the maximum number of images encoded at the same time
+   * @param queueCapacity the maximum number of files waiting to be written
+   * @param reporter      receives a message when a file is written or fails to be written
+   * @throws IllegalArgumentException if either number is less than 1 or the reporter is null
+   */
+  public ExportService(int encoders, int queueCapacity, Consumer<String> reporter) {
+    if (encoders < 1 || queueCapacity < 1) {
+      throw new IllegalArgumentException("Encoders and queue capacity must be at least 1.");
+    }
+    if (reporter == null) {
+      throw new IllegalArgumentException("Reporter can't be null.");
+    }
+    this.parallelism = encoders;
+    this.queue = new ArrayBlockingQueue<>(queueCapacity);
+    this.reporter = reporter;
+  }
+
+  /**
+   * Exports an image in the background. The format is given by the extension of the file name:
+   * ppm is written as plain PPM, png, jpg and jpeg through ImageIO.
+   *
+   * @param img      the image to export, later changes to the model do not affect the file
+   * @param filename the path of the destination file
+   * @throws IllegalArgumentException if either argument is null
+   * @throws IllegalStateException    if the service is closed or interrupted while waiting for
+   *                                  room in the queue
+   */
+  public void export(ImageInterface img, String filename) {
+    if (img == null || filename == null) {
+      throw new IllegalArgumentException("inputs can't be null");
+    }
+    ImageInterface snapshot = img.getImage();
+    String type = filename.substring(filename.lastIndexOf(".") + 1).toLowerCase();
+    enqueue(filename, () -> encode(snapshot, type));
+  }
+
+  /**
+   * Writes a text file in the background, after the exports submitted before it.
+   *
+   * @param filename the path of the destination file
+   * @param content  the text of the file
+   * @throws IllegalArgumentException if either argument is null
+   * @throws IllegalStateException    if the service is closed or interrupted while waiting for
+   *                                  room in the queue
+   */
+  public void exportText(String filename, String content) {
+    if (filename == null || content == null) {
+      throw new IllegalArgumentException("inputs can't be null");
+    }
+    enqueue(filename, () -> content.getBytes(StandardCharsets.UTF_8));
+  }
+
+  /**
+   * Waits until every file submitted so far has been written or has failed.
+   *
+   * @throws IllegalStateException if interrupted while waiting
+   */
+  public void flush() {
+    synchronized (lock) {
+      while (pending > 0) {
+        await();
+      }
+    }
+  }
+
+  /**
+   * Waits until every file submitted so far for the given path has been written or has failed,
+   * without waiting for the writes to other files.
+   *
+   * @param filename the path of the file
+   * @throws IllegalArgumentException if the path is null
+   * @throws IllegalStateException    if interrupted while waiting
+   */
+  public void flush(String filename) {
+    if (filename == null) {
+      throw new IllegalArgumentException("File name can't be null.");
+    }
+    Path path = key(filename);
+    synchronized (lock) {
+      while (pendingPaths.containsKey(path)) {
+        await();
+      }
+    }
+  }
+
+  /**
+   * Writes every file submitted so far, then stops the encoding and writing threads. Exporting
+   * after closing fails; closing again does nothing.
+   *
+   * @throws IllegalStateException if interrupted while waiting for the writes
+   */
+  @Override
+  public void close() {
+    Thread stopped;
+    synchronized (lock) {
+      if (closed) {
+        return;
+      }
+      closed = true;
+      stopped = writer;
+    }
+    if (stopped == null) {
+      return;
+    }
+    try {
+      // queued behind every write submitted before closing
+      queue.put(END);
+      stopped.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while waiting for exports.");
+    } finally {
+      encoders.shutdown();
+    }
+  }
+
+  /**
+   * Starts encoding a file and queues it for writing, waiting for room in the queue.
+   *
+   * @param filename the path of the destination file
+   * @param encoding computes the bytes of the file
+   */
+  private void enqueue(String filename, Callable<byte[]> encoding) {
+    Path path = key(filename);
+    ForkJoinPool pool;
+    synchronized (lock) {
+      if (closed) {
+        throw new IllegalStateException("The export service is closed.");
+      }
+      if (writer == null) {
+        encoders = new ForkJoinPool(parallelism);
+        writer = new Thread(this::writeAll, "image-export-writer");
+        writer.start();
+      }
+      pool = encoders;
+      pending++;
+      pendingPaths.merge(path, 1, Integer::sum);
+    }
+    try {
+      queue.put(new Write(filename, path, pool.submit(encoding)));
+    } catch (InterruptedException e) {
+      finished(path);
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while queueing an export.");
+    }
+  }
+
+  /**
+   * Writes the queued files one after the other until the service is closed.
+   */
+  private void writeAll() {
+    while (true) {
+      Write write;
+      try {
+        write = queue.take();
+      } catch (InterruptedException e) {
+        return;
+      }
+      if (write == END) {
+        return;
+      }
+      try {
+        // encoded before the destination is touched, a failed encoding leaves it as it was
+        write(write.path, write.content.get());
+        reporter.accept("Exported " + write.filename);
+      } catch (ExecutionException e) {
+        reporter.accept("Could Not Export " + write.filename + ": " + e.getCause().getMessage());
+      } catch (IOException e) {
+        reporter.accept("Could Not Export " + write.filename + ": " + e.getMessage());
+      } catch (InterruptedException e) {
+        return;
+      } finally {
+        finished(write.path);
+      }
+    }
+  }
+
+  /**
+   * Writes a file to a temporary file in the same directory, then moves it over the destination.
+   * The temporary file is created like any other file, so its permissions follow the umask; when
+   * the destination exists, its permissions are given to the new file before it replaces it.
+   *
+   * @param path    the destination
+   * @param content the bytes of the file
+   * @throws IOException if the file cannot be written or moved
+   */
+  private static void write(Path path, byte[] content) throws IOException {
+    Path temporary = null;
+    try {
+      OutputStream out = null;
+      while (out == null) {
+        temporary = path.resolveSibling("." + path.getFileName() + "."
+            + Long.toHexString(ThreadLocalRandom.current().nextLong()) + ".tmp");
+        try {
+          out = Files.newOutputStream(temporary, StandardOpenOption.CREATE_NEW,
+              StandardOpenOption.WRITE);
+        } catch (FileAlreadyExistsException e) {
+          temporary = null;
+        }
+      }
+      try (OutputStream file = out) {
+        file.write(content);
+      }
+      keepPermissions(path, temporary);
+      try {
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING,
+            StandardCopyOption.ATOMIC_MOVE);
+      } catch (AtomicMoveNotSupportedException e) {
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING);
+      }
+    } finally {
+      if (temporary != null) {
+        Files.deleteIfExists(temporary);
+      }
+    }
+  }
+
+  /**
+   * Gives a new file the POSIX permissions of the file it is about to replace, if there is one
+   * and the file system has POSIX permissions.
+   *
+   * @param existing the file being replaced
+   * @param created  the new file
+   * @throws IOException if the permissions cannot be read or set
+   */
+  private static void keepPermissions(Path existing, Path created) throws IOException {
+    if (Files.exists(existing) && Files.getFileAttributeView(existing,
+        PosixFileAttributeView.class) != null) {
+      Files.setPosixFilePermissions(created, Files.getPosixFilePermissions(existing));
+    }
+  }
+
+  /**
+   * Waits on the lock for a write to finish, which must be held.
+   *
+   * @throws IllegalStateException if interrupted while waiting
+   */
+  private void await() {
+    try {
+      lock.wait();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while waiting for exports.");
+    }
+  }
+
+  /**
+   * Gets the absolute path a file name refers to, so that one file is always the same key.
+   *
+   * @param filename the path of the file
+   * @return the absolute, normalized path
+   */
+  private static Path key(String filename) {
+    return Paths.get(filename).toAbsolutePath().normalize();
+  }
+
+  /**
+   * Counts a write as finished and wakes up the threads waiting for the queue to drain.
+   *
+   * @param path the destination of the write
+   */
+  private void finished(Path path) {
+    synchronized (lock) {
+      pending--;
+      pendingPaths.computeIfPresent(path, (p, count) -> count == 1 ? null : count - 1);
+      lock.notifyAll();
+    }
+  }
+
+  /**
+   * Encodes an image in the given format.
+   *
+   * @param img  the image to encode
+   * @param type the extension of the destination file
+   * @return the bytes of the file
+   * @throws IOException if the format is not supported or the image cannot be encoded
+   */
+  private static byte[] encode(ImageInterface img, String type) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    if (type.equals("ppm")) {
+      ImageUtil.writePPM(img, out, false);
+    } else if (!(type.equals("png") || type.equals("jpg") || type.equals("jpeg"))
+        || !ImageIO.write(ImageUtilAddition.convertImage(img), type, out)) {
+      throw new IOException("Unsupported file type " + type);
+    }
+    return out.toByteArray();
+  }
+}
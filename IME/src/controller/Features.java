@@ -23,6 +23,11 @@ public interface Features {
    */
   void layerCommands(String cmd);
 
+  /**
+   * This method undoes or redoes the changes made to the layers (ex. undo, redo).
+   */
+  void historyCommands(String cmd);
+
 
   /**
    * This method contains the functionalities relating to drawing an image (ex. checkerboard and
@@ -49,4 +54,10 @@ public interface Features {
    */
   boolean isVisible();
 
+  /**
+   * This method exits the program once every file being saved in the background is written. It
+   * is called by the view when its window is closed.
+   */
+  void exit();
+
 }
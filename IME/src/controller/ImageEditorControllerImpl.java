@@ -4,14 +4,20 @@ import view.ImageEditorView;
 import view.ImageEditorViewImpl;
 import java.io.IOException;
 import java.io.PrintStream;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
+import java.util.Queue;
 import java.util.Scanner;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import model.Blur;
 import model.CheckerBoard;
 import model.Greyscale;
 import model.ImageInterface;
 import model.MultiImageProcessingModel;
 import model.Rainbow;
+import model.ResampleFilter;
+import model.Resize;
 import model.Sepia;
 import model.Sharpening;
 
@@ -29,6 +35,9 @@ public class ImageEditorControllerImpl implements ImageEditorController {
   private int count; // number of commands in one line
   private StringBuilder fileNames;
   private ImageEditorView view;
+  // messages from the export writer thread, shown between commands
+  private final Queue<String> exportMessages = new ConcurrentLinkedQueue<>();
+  private ExportService exports; // open while start runs
 
   /**
    * This is the constructor for ImageEditorContorllerImpl. It takes in a MultiImageProcessingModel
@@ -62,11 +71,14 @@ public class ImageEditorControllerImpl implements ImageEditorController {
     runnables.put("sharpen", new Sharpen());
     runnables.put("greyscale", new GreyScale());
     runnables.put("sepia", new SepiaFilter());
+    runnables.put("resize", new ResizeImage());
     runnables.put("save", new Save());
     runnables.put("invisible", new Invisible());
     runnables.put("checkerboard", new DrawCheckerboard());
     runnables.put("rainbow", new DrawRainbow());
     runnables.put("saveall", new SaveAll());
+    runnables.put("undo", new Undo());
+    runnables.put("redo", new Redo());
   }
 
   /**
@@ -81,44 +93,60 @@ public class ImageEditorControllerImpl implements ImageEditorController {
     }
     // current state
     renderInformation(view);
-    Scanner scan = new Scanner(this.input);
-    while (scan.hasNextLine()) {
-      count = 0;
-      this.command = new String[100];
-      Scanner line = new Scanner(scan.nextLine());
-      while (line.hasNext()) {
-        if (count == 0) {
-          this.command[count] = line.next();
-          renderMessage(view, this.command[count]);
-          count++;
-        } else if (this.command[0].equals("load") || this.command[0].equals("remove-layer")
-            || this.command[0].equals("current") || this.command[0].equals("save")
-            || this.command[0].equals("saveall") || this.command[0].equals("invisible") ||
-            this.command[0].equals("create-project")) {
-          if (!line.hasNext()) {
-            renderMessage(view, "Please input a valid second command.");
-          } else {
+    exports = new ExportService(exportMessages::add);
+    try {
+      Scanner scan = new Scanner(this.input);
+      while (scan.hasNextLine()) {
+        count = 0;
+        this.command = new String[100];
+        Scanner line = new Scanner(scan.nextLine());
+        while (line.hasNext()) {
+          if (count == 0) {
+            this.command[count] = line.next();
+            renderMessage(view, this.command[count]);
+            count++;
+          } else if (this.command[0].equals("load") || this.command[0].equals("remove-layer")
+              || this.command[0].equals("current") || this.command[0].equals("save")
+              || this.command[0].equals("saveall") || this.command[0].equals("invisible") ||
+              this.command[0].equals("create-project")) {
+            if (!line.hasNext()) {
+              renderMessage(view, "Please input a valid second command.");
+            } else {
+              this.command[1] = line.next().trim();
+              renderMessage(view, this.command[0] + " " + this.command[1]);
+              count++;
+            }
+          } else if (this.command[0].equals("checkerboard") || this.command[0].equals("rainbow")) {
             this.command[1] = line.next().trim();
-            renderMessage(view, this.command[0] + " " + this.command[1]);
+            this.command[2] = line.next().trim();
+            renderMessage(view, this.command[0] + " " + this.command[1] + " " + this.command[2]);
+            count++;
+          } else {
+            this.command[count] = line.next().toLowerCase();
+            renderMessage(view, this.command[count]);
             count++;
           }
-        } else if (this.command[0].equals("checkerboard") || this.command[0].equals("rainbow")) {
-          this.command[1] = line.next().trim();
-          this.command[2] = line.next().trim();
-          renderMessage(view, this.command[0] + " " + this.command[1] + " " + this.command[2]);
-          count++;
+        }
+        if (runnables.containsKey(this.command[0])) {
+          this.runnables.get(this.command[0]).run();
+          renderExports();
+          renderInformation(view);
         } else {
-          this.command[count] = line.next().toLowerCase();
-          renderMessage(view, this.command[count]);
-          count++;
+          renderMessage(view, "Please input a valid command.");
         }
       }
-      if (runnables.containsKey(this.command[0])) {
-        this.runnables.get(this.command[0]).run();
-        renderInformation(view);
-      } else {
-        renderMessage(view, "Please input a valid command.");
-      }
+    } finally {
+      // every saved file is written by the time the script ends
+      exports.close();
+    }
+    renderExports();
+  }
+
+  // renders the messages of the exports finished since the last command
+  private void renderExports() {
+    String message;
+    while ((message = exportMessages.poll()) != null) {
+      renderMessage(view, message);
     }
   }
 
@@ -150,6 +178,32 @@ public class ImageEditorControllerImpl implements ImageEditorController {
     }
   }
 
+  // undoes the last change made to the layers
+  private class Undo implements Runnable {
+
+    @Override
+    public void run() {
+      try {
+        model.undo();
+      } catch (IllegalStateException e) {
+        renderMessage(view, e.getMessage());
+      }
+    }
+  }
+
+  // redoes the last change undone
+  private class Redo implements Runnable {
+
+    @Override
+    public void run() {
+      try {
+        model.redo();
+      } catch (IllegalStateException e) {
+        renderMessage(view, e.getMessage());
+      }
+    }
+  }
+
   private class RemoveLayer implements Runnable {
 
     @Override
@@ -230,18 +284,23 @@ public class ImageEditorControllerImpl implements ImageEditorController {
         ImageEditorView view = new ImageEditorViewImpl(model);
         renderMessage(view, "Invalid Command: Could Not Load Image.");
       } else {
+        // the file may still be waiting to be written by an earlier save
+        exports.flush(command[1]);
         if (command[1].substring(command[1].indexOf(".") + 1).equals("txt")) {
           // pass the path to the file as a parameter
           String files = ImageUtilAddition.readTextFile(command[1]);
           String[] listOfFiles = files.split("\n");
+          for (String file : listOfFiles) {
+            exports.flush(file);
+          }
+          // every layer is decoded at the same time, then installed in the listed order
+          List<ImageInterface> images = new ProjectLoader().load(Arrays.asList(listOfFiles));
           for (int i = 0; i < listOfFiles.length; i++) {
-            String fileName = listOfFiles[i];
-            try {
-              ImageInterface image = ImageUtilAddition.readImage(fileName);
+            if (images.get(i) == null) {
+              renderMessage(view, "Could Not Load " + listOfFiles[i]);
+            } else {
               model.createLayer();
-              model.setImage(image);
-            } catch (IOException e) {
-              e.printStackTrace();
+              model.setImage(images.get(i));
             }
           }
         } else {
@@ -325,6 +384,44 @@ public class ImageEditorControllerImpl implements ImageEditorController {
     }
   }
 
+  // Resizes every layer: resize <width> <height> [box|bilinear|bicubic|lanczos], bicubic by default
+  private class ResizeImage implements Runnable {
+
+    @Override
+    public void run() {
+      if (count < 3 || count > 4) {
+        renderMessage(view, "Error: Cannot Resize Image");
+        return;
+      }
+      int newWidth;
+      int newHeight;
+      ResampleFilter filter = ResampleFilter.BICUBIC;
+      try {
+        newWidth = Integer.parseInt(command[1]);
+        newHeight = Integer.parseInt(command[2]);
+      } catch (NumberFormatException e) {
+        renderMessage(view, "Please Provide Valid Number");
+        return;
+      }
+      if (count == 4) {
+        try {
+          filter = ResampleFilter.valueOf(command[3].toUpperCase());
+        } catch (IllegalArgumentException e) {
+          renderMessage(view, "Please Provide a Valid Filter");
+          return;
+        }
+      }
+      try {
+        model.setEffect(new Resize(newHeight, newWidth, filter));
+        model.applyOperation();
+      } catch (IllegalArgumentException e) {
+        renderMessage(view, e.getMessage());
+      } catch (IllegalStateException e) {
+        renderMessage(view, "Please Load the Image First");
+      }
+    }
+  }
+
   // Saves(exports) the image to a file using th export() method.
   private class Save implements Runnable {
 
@@ -336,19 +433,10 @@ public class ImageEditorControllerImpl implements ImageEditorController {
       } else {
         String fileName = command[1];
         String fileType = fileName.substring(fileName.indexOf(".") + 1).toLowerCase();
-        if (fileType.equals("ppm")) {
-          //Creating a File object
-          ImageUtilAddition.exportFile(model.getImage(), fileName);
+        if (fileType.equals("ppm") || fileType.equals("jpeg") || fileType.equals("png")) {
+          // encoded and written in the background, reported once the file is written
+          exports.export(model.getImage(), fileName);
           fileNames.append(command[1] + "\n");
-        } else if (fileType.equals("jpeg") || fileType.equals("png")) {
-          //Creating a File object
-          try {
-            ImageUtilAddition.export(model.getImage(), fileName);
-            fileNames.append(command[1] + "\n");
-            System.out.println("Image Exported");
-          } catch (IOException e) {
-            e.printStackTrace();
-          }
         }
       }
     }
@@ -364,11 +452,8 @@ public class ImageEditorControllerImpl implements ImageEditorController {
         renderMessage(view, "Error: Cannot Save Image");
       } else {
         System.out.println(fileNames.toString());
-        try {
-          ImageUtilAddition.exportText(command[1] + ".txt", fileNames.toString());
-        } catch (IllegalArgumentException e) {
-          renderMessage(view, e.getMessage());
-        }
+        // queued behind the images it lists
+        exports.exportText(command[1] + ".txt", fileNames.toString());
       }
     }
   }
@@ -1,65 +1,288 @@
+
 package controller;
 
+import java.io.BufferedOutputStream;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
-import java.util.Scanner;
-import java.io.FileNotFoundException;
-import java.io.FileInputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import model.ImageBuffer;
 import model.ImageInterface;
-import model.Image;
-import model.RGB;
+import model.MappedImage;
 
 /**
  * This class contains utility methods to read a PPM image from file and simply print its contents.
  * Feel free to change this method as required.
+ *
+ * <p>Both the plain (P3) and the raw (P6) formats are supported, with 8-bit samples when the
+ * maximum value is below 256 and big-endian 16-bit samples otherwise. Files are streamed through a
+ * fixed buffer one row at a time, so reading or writing never holds the whole file in memory.
  */
 public class ImageUtil {
 
+  private static final int BUFFER_SIZE = 1 << 16;
+  private static final int MAX_VALUE = 65535;
+
+  /**
+   * Reads bytes from a stream through a buffer of its own, and parses the ASCII parts of a PPM
+   * file straight from the bytes. When the stream supports mark and reset, every refill of the
+   * buffer is marked so that the bytes read ahead can be given back once the file is read.
+   */
+  private static final class ByteReader {
+
+    private final InputStream in;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int position;
+    private int limit;
+    private long filled; // the number of bytes read before the current buffer
+
+    private ByteReader(InputStream in) {
+      this.in = in;
+    }
+
+    /**
+     * Reads the next byte.
+     *
+     * @return the byte as an unsigned value, or -1 at the end of the stream
+     * @throws IOException if the stream cannot be read
+     */
+    private int read() throws IOException {
+      if (position == limit) {
+        filled += limit;
+        if (in.markSupported()) {
+          in.mark(buffer.length);
+        }
+        limit = in.read(buffer, 0, buffer.length);
+        position = 0;
+        if (limit <= 0) {
+          limit = 0;
+          return -1;
+        }
+      }
+      return buffer[position++] & 0xFF;
+    }
+
+    /**
+     * Reads the next non-negative ASCII integer, skipping whitespace and comments before it. The
+     * byte ending the number is consumed.
+     *
+     * @return the integer read
+     * @throws IOException              if the stream cannot be read
+     * @throws IllegalArgumentException if the next token is missing or not a number
+     */
+    private int readInt() throws IOException {
+      int b = read();
+      while (b == '#' || isWhitespace(b)) {
+        if (b == '#') {
+          while (b != '\n' && b != '\r' && b != -1) {
+            b = read();
+          }
+        }
+        b = read();
+      }
+      if (b < '0' || b > '9') {
+        throw new IllegalArgumentException("Invalid PPM file: expected a number");
+      }
+      long value = 0;
+      while (b >= '0' && b <= '9') {
+        value = value * 10 + (b - '0');
+        if (value > Integer.MAX_VALUE) {
+          throw new IllegalArgumentException("Invalid PPM file: number out of range");
+        }
+        b = read();
+      }
+      if (b != -1 && !isWhitespace(b) && b != '#') {
+        throw new IllegalArgumentException("Invalid PPM file: expected a number");
+      }
+      if (b == '#') {
+        position--; // let the next number skip the comment
+      }
+      return (int) value;
+    }
+
+    /**
+     * Gets the number of bytes consumed so far.
+     *
+     * @return the position of the next byte in the stream
+     */
+    private long offset() {
+      return filled + position;
+    }
+
+    /**
+     * Gives the bytes read ahead into the buffer and not consumed back to the stream, if it
+     * supports mark and reset, so that it is left right after the last byte consumed.
+     *
+     * @throws IOException if the stream cannot be reset or skipped
+     */
+    private void giveBack() throws IOException {
+      if (position == limit || !in.markSupported()) {
+        return;
+      }
+      // back to the start of the buffer, then past the bytes consumed from it
+      in.reset();
+      long skipped = 0;
+      while (skipped < position) {
+        long n = in.skip(position - skipped);
+        if (n <= 0) {
+          if (in.read() < 0) {
+            break;
+          }
+          n = 1;
+        }
+        skipped += n;
+      }
+      limit = position;
+    }
+
+    /**
+     * Reads exactly the given number of bytes.
+     *
+     * @param dest   the array to fill
+     * @param length the number of bytes to read
+     * @throws IOException              if the stream cannot be read
+     * @throws IllegalArgumentException if the stream ends first
+     */
+    private void readFully(byte[] dest, int length) throws IOException {
+      int done = Math.min(length, limit - position);
+      System.arraycopy(buffer, position, dest, 0, done);
+      position += done;
+      while (done < length) {
+        int n = in.read(dest, done, length - done);
+        if (n <= 0) {
+          throw new IllegalArgumentException("Invalid PPM file: pixel data is truncated");
+        }
+        done += n;
+      }
+    }
+  }
+
   /**
    * Read an image file and convert it into an ImageInterface object.
    *
    * @param filename the path of the file
    * @return an image object that was converted from the PPM format
-   * @throws IllegalArgumentException if the given file path is not found
+   * @throws IllegalArgumentException if the given file path is not found or is not a valid plain
+   *                                  (P3) or raw (P6) PPM file
    */
   public static ImageInterface readPPM(String filename) throws IllegalArgumentException {
-    Scanner sc;
-    try {
-      sc = new Scanner(new FileInputStream(filename));
+    if (filename == null) {
+      throw new IllegalArgumentException("File name can't be null.");
+    }
+    try (InputStream in = new FileInputStream(filename)) {
+      return readPPM(in);
     } catch (FileNotFoundException e) {
       throw new IllegalArgumentException("File " + filename + " not found!");
+    } catch (IOException e) {
+      throw new IllegalArgumentException("Could not read " + filename);
+    }
+  }
+
+  /**
+   * Read a PPM image from a stream. The stream is not closed. It is read through a 64 KB buffer:
+   * if the stream supports mark and reset, as a BufferedInputStream does, the bytes read past the
+   * image are given back and the stream is left right after the pixel data and the whitespace
+   * ending a plain file; otherwise up to 64 KB past the image may be consumed and lost.
+   *
+   * @param in the stream holding a plain (P3) or raw (P6) PPM file
+   * @return an image object that was converted from the PPM format
+   * @throws IOException              if the stream cannot be read
+   * @throws IllegalArgumentException if the stream is null or does not hold a valid PPM file
+   */
+  public static ImageInterface readPPM(InputStream in) throws IOException {
+    if (in == null) {
+      throw new IllegalArgumentException("Stream can't be null.");
     }
-    StringBuilder builder = new StringBuilder();
-    //read the file line by line, and populate a string. This will throw away any comment lines
-    while (sc.hasNextLine()) {
-      String s = sc.nextLine();
-      if (s.charAt(0) != '#') {
-        builder.append(s + System.lineSeparator());
+    ByteReader reader = new ByteReader(in);
+    int[] header = readHeader(reader);
+    int kind = header[0];
+    int width = header[1];
+    int height = header[2];
+    int maxValue = header[3];
+    ImageBuffer buffer = new ImageBuffer(width, height, maxValue);
+    int[][] rows = new int[3][width];
+    if (kind == '3') {
+      for (int i = 0; i < height; i++) {
+        for (int j = 0; j < width; j++) {
+          rows[0][j] = reader.readInt();
+          rows[1][j] = reader.readInt();
+          rows[2][j] = reader.readInt();
+        }
+        setRows(buffer, i, rows);
+      }
+    } else {
+      // the header ends with exactly one whitespace byte, already consumed by readInt
+      int bytesPerSample = maxValue < 256 ? 1 : 2;
+      byte[] raw = new byte[width * 3 * bytesPerSample];
+      for (int i = 0; i < height; i++) {
+        reader.readFully(raw, raw.length);
+        unpackRow(raw, bytesPerSample, rows, width);
+        setRows(buffer, i, rows);
       }
     }
-    //now set up the scanner to read from the string we just built
-    sc = new Scanner(builder.toString());
+    reader.giveBack();
+    return buffer.toImage();
+  }
 
-    String token;
+  /**
+   * Maps a raw (P6) PPM file into memory instead of reading it, for images too large for the
+   * heap. Only the header is read; the pixels are read from the file as the image is used.
+   *
+   * @param filename the path of the file
+   * @return an image backed by the file
+   * @throws IllegalArgumentException if the given file path is not found or is not a valid raw
+   *                                  PPM file
+   */
+  public static MappedImage mapPPM(String filename) throws IllegalArgumentException {
+    if (filename == null) {
+      throw new IllegalArgumentException("File name can't be null.");
+    }
+    int[] header;
+    long offset;
+    try (InputStream in = new FileInputStream(filename)) {
+      ByteReader reader = new ByteReader(in);
+      header = readHeader(reader);
+      offset = reader.offset();
+    } catch (FileNotFoundException e) {
+      throw new IllegalArgumentException("File " + filename + " not found!");
+    } catch (IOException e) {
+      throw new IllegalArgumentException("Could not read " + filename);
+    }
+    if (header[0] != '6') {
+      throw new IllegalArgumentException("Invalid PPM file: only raw P6 files can be mapped");
+    }
+    return new MappedImage(filename, offset, header[1], header[2], header[3], false);
+  }
 
-    token = sc.next();
-    if (!token.equals("P3")) {
-      throw new IllegalArgumentException("Invalid PPM file: plain RAW file should begin with P3");
+  /**
+   * Creates a raw (P6) PPM file of the given size and maps it into memory for writing, as the
+   * destination of a streaming editor. The pixels start black.
+   *
+   * @param filename the path of the new file
+   * @param width    the width of the image
+   * @param height   the height of the image
+   * @param maxValue the maximum RGB value of the image, between 1 and 65535
+   * @return a writable image backed by the new file
+   * @throws IllegalArgumentException if any argument is invalid or the file cannot be created
+   */
+  public static MappedImage createMappedPPM(String filename, int width, int height, int maxValue)
+      throws IllegalArgumentException {
+    if (filename == null || width <= 0 || height <= 0 || maxValue < 1 || maxValue > MAX_VALUE) {
+      throw new IllegalArgumentException("Input Invalid");
     }
-    int width = sc.nextInt();
-    int height = sc.nextInt();
-    int maxValue = sc.nextInt();
-    RGB[][] pixels = new RGB[height][width];
-    for (int i = 0; i < height; i++) {
-      for (int j = 0; j < width; j++) {
-        int r = sc.nextInt();
-        int g = sc.nextInt();
-        int b = sc.nextInt();
-        RGB color = new RGB(r, g, b);
-        pixels[i][j] = color;
-      }
+    byte[] header = ("P6\n" + width + " " + height + "\n" + maxValue + "\n")
+        .getBytes(StandardCharsets.US_ASCII);
+    try (OutputStream out = new FileOutputStream(filename)) {
+      out.write(header);
+    } catch (FileNotFoundException e) {
+      throw new IllegalArgumentException("File " + filename + " not found!");
+    } catch (IOException e) {
+      throw new IllegalArgumentException("File Formatting Exception");
     }
-    return new Image(pixels, maxValue);
+    return new MappedImage(filename, header.length, width, height, maxValue, true);
   }
 
   /**
@@ -73,45 +296,199 @@ public class ImageUtil {
 
   public static void exportFile(ImageInterface img, String filename)
       throws IllegalArgumentException {
-    try {
-      FileOutputStream newFile = new FileOutputStream(filename);
+    exportFile(img, filename, false);
+  }
+
+  /**
+   * export an image file in the plain (P3) or raw (P6) PPM format. Raw files use one byte per
+   * sample when the maximum value of the image is below 256 and two bytes otherwise.
+   *
+   * @param img      the image to be exported
+   * @param filename the path of the destination file
+   * @param raw      true to write a raw (P6) file, false to write a plain (P3) one
+   * @throws IllegalArgumentException if any argument is null, the given file path is not found or
+   *                                  the new file was not able to write
+   */
+  public static void exportFile(ImageInterface img, String filename, boolean raw)
+      throws IllegalArgumentException {
+    if (img == null || filename == null) {
+      throw new IllegalArgumentException("inputs can't be null");
+    }
+    try (OutputStream out = new FileOutputStream(filename)) {
       try {
-        newFile.write(ImageUtil.write(img).getBytes());
+        writePPM(img, out, raw);
         System.out.println("Image Exported");
       } catch (IOException e) {
         throw new IllegalArgumentException("File Formatting Exception");
       }
     } catch (FileNotFoundException e) {
-      throw new IllegalArgumentException("File " + ImageUtil.write(img) + " not found!");
+      throw new IllegalArgumentException("File " + filename + " not found!");
+    } catch (IOException e) {
+      throw new IllegalArgumentException("File Formatting Exception");
     }
   }
 
+  /**
+   * Writes an image to a stream in the plain (P3) or raw (P6) PPM format. The stream is flushed
+   * but not closed.
+   *
+   * @param img the image to be written
+   * @param out the stream to write to
+   * @param raw true to write a raw (P6) file, false to write a plain (P3) one
+   * @throws IOException              if the stream cannot be written
+   * @throws IllegalArgumentException if the image or the stream is null
+   */
+  public static void writePPM(ImageInterface img, OutputStream out, boolean raw)
+      throws IOException {
+    if (img == null || out == null) {
+      throw new IllegalArgumentException("inputs can't be null");
+    }
+    int width = img.getWidth();
+    int height = img.getHeight();
+    // raw files can't hold more than 16 bits or a maximum value of 0
+    int maxValue = raw ? Math.max(1, Math.min(img.getMaxValue(), MAX_VALUE))
+        : img.getMaxValue();
+    OutputStream buffered = new BufferedOutputStream(out, BUFFER_SIZE);
+    String header = (raw ? "P6\n" : "P3\n") + width + " " + height + "\n" + maxValue + "\n";
+    buffered.write(header.getBytes(StandardCharsets.US_ASCII));
+    int[][] rows = new int[3][width];
+    int bytesPerSample = maxValue < 256 ? 1 : 2;
+    // a plain sample takes at most 5 digits and a new line
+    byte[] bytes = new byte[width * 3 * (raw ? bytesPerSample : 6)];
+    for (int i = 0; i < height; i++) {
+      for (int c = 0; c < 3; c++) {
+        img.getRow(i, c, rows[c]);
+      }
+      int length = raw ? packRow(rows, width, maxValue, bytesPerSample, bytes)
+          : printRow(rows, width, bytes);
+      buffered.write(bytes, 0, length);
+    }
+    buffered.flush();
+  }
 
   /**
-   * Format an image into PPM format ready to export.
+   * Reads the header of a PPM file, up to and including the single whitespace byte that ends it.
    *
-   * @return a PPM format string with the content of the image
+   * @param reader the reader positioned at the start of the file
+   * @return the format digit ('3' or '6'), the width, the height and the maximum value
+   * @throws IOException              if the stream cannot be read
+   * @throws IllegalArgumentException if the header is not valid
    */
+  private static int[] readHeader(ByteReader reader) throws IOException {
+    int p = reader.read();
+    int kind = reader.read();
+    if (p != 'P' || (kind != '3' && kind != '6')) {
+      throw new IllegalArgumentException("Invalid PPM file: should begin with P3 or P6");
+    }
+    int next = reader.read();
+    if (!isWhitespace(next) && next != '#') {
+      throw new IllegalArgumentException("Invalid PPM file: should begin with P3 or P6");
+    }
+    if (next == '#') {
+      reader.position--;
+    }
+    int width = reader.readInt();
+    int height = reader.readInt();
+    int maxValue = reader.readInt();
+    if (maxValue < 1 || maxValue > MAX_VALUE) {
+      throw new IllegalArgumentException("Invalid PPM file: maximum value out of range");
+    }
+    return new int[]{kind, width, height, maxValue};
+  }
 
-  private static String write(ImageInterface img) {
-    StringBuilder content = new StringBuilder();
-    content.append("P3\n");
-    content.append(img.getWidth()).append(" ");
-    content.append(img.getHeight()).append("\n");
-    content.append(img.getMaxValue()).append("\n");
-    for (int i = 0; i < img.getHeight(); i++) {
-      for (int j = 0; j < img.getWidth(); j++) {
-        RGB color = img.getPixel(j, i);
-        int red = color.getRed();
-        int green = color.getGreen();
-        int blue = color.getBlue();
-        content.append(red).append("\n");
-        content.append(green).append("\n");
-        content.append(blue).append("\n");
-      }
-    }
-    return content.toString();
+  /**
+   * Stores one row of color values into an image buffer.
+   *
+   * @param buffer the buffer being filled
+   * @param y      the row to store
+   * @param rows   the red, green and blue values of the row
+   * @throws IllegalArgumentException if a value does not fit in 16 bits
+   */
+  static void setRows(ImageBuffer buffer, int y, int[][] rows) {
+    for (int c = 0; c < 3; c++) {
+      buffer.setRow(y, c, rows[c]);
+    }
   }
 
+  /**
+   * Splits one row of raw interleaved samples into its three channels.
+   *
+   * @param raw            the samples of the row, red, green and blue for every pixel
+   * @param bytesPerSample 1 for 8-bit samples, 2 for big-endian 16-bit samples
+   * @param rows           the red, green and blue values of the row to fill
+   * @param width          the number of pixels in the row
+   */
+  private static void unpackRow(byte[] raw, int bytesPerSample, int[][] rows, int width) {
+    int k = 0;
+    for (int j = 0; j < width; j++) {
+      for (int c = 0; c < 3; c++) {
+        if (bytesPerSample == 1) {
+          rows[c][j] = raw[k++] & 0xFF;
+        } else {
+          rows[c][j] = (raw[k] & 0xFF) << 8 | (raw[k + 1] & 0xFF);
+          k += 2;
+        }
+      }
+    }
+  }
 
+  /**
+   * Interleaves one row of color values into raw samples, clamped to the maximum value.
+   *
+   * @param rows           the red, green and blue values of the row
+   * @param width          the number of pixels in the row
+   * @param maxValue       the maximum value written in the header
+   * @param bytesPerSample 1 for 8-bit samples, 2 for big-endian 16-bit samples
+   * @param dest           the array receiving the samples
+   * @return the number of bytes stored
+   */
+  private static int packRow(int[][] rows, int width, int maxValue, int bytesPerSample,
+      byte[] dest) {
+    int k = 0;
+    for (int j = 0; j < width; j++) {
+      for (int c = 0; c < 3; c++) {
+        int value = ImageUtilAddition.clamp(rows[c][j], maxValue);
+        if (bytesPerSample == 2) {
+          dest[k++] = (byte) (value >>> 8);
+        }
+        dest[k++] = (byte) value;
+      }
+    }
+    return k;
+  }
+
+  /**
+   * Prints one row of color values as plain samples, each on its own line.
+   *
+   * @param rows  the red, green and blue values of the row
+   * @param width the number of pixels in the row
+   * @param dest  the array receiving the ASCII text
+   * @return the number of bytes stored
+   */
+  private static int printRow(int[][] rows, int width, byte[] dest) {
+    int k = 0;
+    for (int j = 0; j < width; j++) {
+      for (int c = 0; c < 3; c++) {
+        int value = rows[c][j];
+        int digits = value < 10 ? 1 : value < 100 ? 2 : value < 1000 ? 3 : value < 10000 ? 4 : 5;
+        for (int d = k + digits - 1; d >= k; d--) {
+          dest[d] = (byte) ('0' + value % 10);
+          value /= 10;
+        }
+        k += digits;
+        dest[k++] = '\n';
+      }
+    }
+    return k;
+  }
+
+  /**
+   * Checks whether a byte is PPM whitespace.
+   *
+   * @param b the byte to check
+   * @return true if the byte is a space, tab, carriage return, line feed, vertical tab or form feed
+   */
+  private static boolean isWhitespace(int b) {
+    return b == ' ' || b == '\t' || b == '\n' || b == '\r' || b == 0x0B || b == '\f';
+  }
 }
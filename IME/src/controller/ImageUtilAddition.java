@@ -1,7 +1,17 @@
 package controller;
 
-import java.awt.Color;
 import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.ComponentColorModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.DirectColorModel;
+import java.awt.image.PixelInterleavedSampleModel;
+import java.awt.image.Raster;
+import java.awt.image.SampleModel;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.awt.image.WritableRaster;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
@@ -9,9 +19,8 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.util.Scanner;
 import javax.imageio.ImageIO;
-import model.Image;
+import model.ImageBuffer;
 import model.ImageInterface;
-import model.RGB;
 
 /**
  * This class is an addition (extension) to the ImageUtil class. It contains more method to support
@@ -24,26 +33,91 @@ public class ImageUtilAddition extends ImageUtil {
    *
    * @param filename the path to the file (file name of the file)
    * @return image form that this program utilize.
+   * @throws IOException if the file cannot be read or its format is not supported
    */
   public static ImageInterface readImage(String filename) throws IOException {
     BufferedImage input;
 
-    input = ImageIO.read(new FileInputStream(filename));
-    RGB[][] pixels = new RGB[input.getHeight()][input.getWidth()];
+    try (FileInputStream in = new FileInputStream(filename)) {
+      input = ImageIO.read(in);
+    }
+    if (input == null) {
+      throw new IOException("Unsupported image format: " + filename);
+    }
+    return toImage(input);
+  }
 
-    for (int i = 0; i < input.getHeight(); i++) {
-      for (int j = 0; j < input.getWidth(); j++) {
-        int rgb = input.getRGB(j, i);
-        Color col = new Color(rgb, true);
-        int red = col.getRed();
-        int green = col.getGreen();
-        int blue = col.getBlue();
-        RGB pixel = new RGB(red, green, blue);
-        pixels[i][j] = pixel;
+  /**
+   * Converts a BufferedImage to an Image. The common layouts the PNG and JPEG readers produce,
+   * 8-bit RGB or RGBA samples either packed in ints or interleaved in bytes, are read straight
+   * from the data buffer of the raster; any other layout is read a row at a time with getRGB.
+   * Alpha is ignored in both cases.
+   *
+   * @param input the image to convert
+   * @return an image with the colors of the given image and a maximum value of 256
+   * @throws IllegalArgumentException if the given image is null
+   */
+  public static ImageInterface toImage(BufferedImage input) {
+    if (input == null) {
+      throw new IllegalArgumentException("inputs can't be null");
+    }
+    int width = input.getWidth();
+    int height = input.getHeight();
+    ImageBuffer buffer = new ImageBuffer(width, height, 256);
+    int[][] rows = new int[3][width];
+    Raster raster = input.getRaster();
+    SampleModel model = raster.getSampleModel();
+    DataBuffer data = raster.getDataBuffer();
+    // position of pixel (0, 0) of the image within the data buffer
+    int x0 = -raster.getSampleModelTranslateX();
+    int y0 = -raster.getSampleModelTranslateY();
+    if (isPlainRgb(input.getColorModel()) && model instanceof SinglePixelPackedSampleModel
+        && data instanceof DataBufferInt) {
+      SinglePixelPackedSampleModel packed = (SinglePixelPackedSampleModel) model;
+      int[] pixels = ((DataBufferInt) data).getData();
+      int[] masks = packed.getBitMasks();
+      int[] shifts = packed.getBitOffsets();
+      int stride = packed.getScanlineStride();
+      for (int i = 0; i < height; i++) {
+        int offset = data.getOffset() + (y0 + i) * stride + x0;
+        for (int j = 0; j < width; j++) {
+          int pixel = pixels[offset + j];
+          for (int c = 0; c < 3; c++) {
+            rows[c][j] = (pixel & masks[c]) >>> shifts[c];
+          }
+        }
+        setRows(buffer, i, rows);
+      }
+    } else if (isPlainRgb(input.getColorModel()) && model instanceof PixelInterleavedSampleModel
+        && data instanceof DataBufferByte && data.getNumBanks() == 1) {
+      PixelInterleavedSampleModel interleaved = (PixelInterleavedSampleModel) model;
+      byte[] bytes = ((DataBufferByte) data).getData();
+      int[] bands = interleaved.getBandOffsets();
+      int pixelStride = interleaved.getPixelStride();
+      int stride = interleaved.getScanlineStride();
+      for (int i = 0; i < height; i++) {
+        int offset = data.getOffset() + (y0 + i) * stride + x0 * pixelStride;
+        for (int j = 0; j < width; j++) {
+          for (int c = 0; c < 3; c++) {
+            rows[c][j] = bytes[offset + bands[c]] & 0xFF;
+          }
+          offset += pixelStride;
+        }
+        setRows(buffer, i, rows);
+      }
+    } else {
+      int[] argb = new int[width];
+      for (int i = 0; i < height; i++) {
+        input.getRGB(0, i, width, 1, argb, 0, width);
+        for (int j = 0; j < width; j++) {
+          rows[0][j] = (argb[j] >> 16) & 0xFF;
+          rows[1][j] = (argb[j] >> 8) & 0xFF;
+          rows[2][j] = argb[j] & 0xFF;
+        }
+        setRows(buffer, i, rows);
       }
     }
-    ImageInterface image = new Image(pixels, 256);
-    return image;
+    return buffer.toImage();
   }
 
   /**
@@ -65,26 +139,29 @@ public class ImageUtilAddition extends ImageUtil {
   }
 
   /**
-   * Converts an Image to a BufferedImage.
+   * Converts an Image to a BufferedImage. Every row is packed into ints and stored into the
+   * raster in one call, which keeps the image eligible for accelerated drawing.
    *
    * @param img the image that needs to be converted to BufferedImage
    * @return BufferedImage that can be used for export
    */
   public static BufferedImage convertImage(ImageInterface img) throws IOException {
-    BufferedImage bufferedImage = new BufferedImage(img.getWidth(), img.getHeight(),
-        BufferedImage.TYPE_INT_RGB);
-
-    for (int i = 0; i < img.getHeight(); i++) {
-      for (int j = 0; j < img.getWidth(); j++) {
-        RGB rgb = img.getPixel(j, i);
-        int red = rgb.getRed();
-        int green = rgb.getGreen();
-        int blue = rgb.getBlue();
-        Color c = new Color(ImageUtilAddition.clamp(red, 255),
-            ImageUtilAddition.clamp(green, 255), ImageUtilAddition.clamp(blue, 255));
-        int rgba = c.getRGB();
-        bufferedImage.setRGB(j, i, rgba);
+    int width = img.getWidth();
+    int height = img.getHeight();
+    BufferedImage bufferedImage = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+    WritableRaster raster = bufferedImage.getRaster();
+    int[][] rows = new int[3][width];
+    int[] packed = new int[width];
+    for (int i = 0; i < height; i++) {
+      for (int c = 0; c < 3; c++) {
+        img.getRow(i, c, rows[c]);
+      }
+      for (int j = 0; j < width; j++) {
+        packed[j] = ImageUtilAddition.clamp(rows[0][j], 255) << 16
+            | ImageUtilAddition.clamp(rows[1][j], 255) << 8
+            | ImageUtilAddition.clamp(rows[2][j], 255);
       }
+      raster.setDataElements(0, i, width, 1, packed);
     }
     return bufferedImage;
   }
@@ -132,6 +209,27 @@ public class ImageUtilAddition extends ImageUtil {
     return builder.toString();
   }
 
+  /**
+   * Determines whether a color model holds plain 8-bit sRGB colors, red, green and blue as its
+   * first three components, with any alpha not premultiplied into them.
+   *
+   * @param colorModel the color model of an image
+   * @return true if the color components can be read from the raster as they are
+   */
+  private static boolean isPlainRgb(ColorModel colorModel) {
+    if (!(colorModel instanceof DirectColorModel || colorModel instanceof ComponentColorModel)
+        || !colorModel.getColorSpace().isCS_sRGB() || colorModel.isAlphaPremultiplied()
+        || colorModel.getNumColorComponents() != 3) {
+      return false;
+    }
+    for (int c = 0; c < 3; c++) {
+      if (colorModel.getComponentSize(c) != 8) {
+        return false;
+      }
+    }
+    return true;
+  }
+
   /**
    * Ensures a channel value of an RGB is within the accepted range. Prevents overflow and
    * underflow.
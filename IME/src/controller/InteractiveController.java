@@ -2,17 +2,22 @@ package controller;
 
 import java.io.FileReader;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Scanner;
+import javax.swing.SwingUtilities;
+import model.BlendMode;
 import model.Blur;
 import model.CheckerBoard;
 import model.Downscale;
 import model.Greyscale;
 import model.ILayer;
 import model.ImageInterface;
-import model.Layer;
 import model.Mosaic;
 import model.MultiImageProcessingModel;
 import model.Rainbow;
+import model.Resize;
 import model.Sepia;
 import model.Sharpening;
 import view.IEditorView;
@@ -28,6 +33,9 @@ public class InteractiveController implements ImageEditorController, Features {
   private IEditorView view;
   private StringBuilder fileNames = new StringBuilder();
   private Readable batchCommand;
+  // saves run in the background and report back on the event thread
+  private final ExportService exports = new ExportService(
+      message -> SwingUtilities.invokeLater(() -> renderMessage(message)));
 
   /**
    * The interactiveController constructor takes in a model and initializes the model.
@@ -73,6 +81,10 @@ public class InteractiveController implements ImageEditorController, Features {
           commands[1] = line.next().trim();
           layerCommands(commands[1]);
           count++;
+        } else if (commands[0].equals("history")) {
+          commands[1] = line.next().trim();
+          historyCommands(commands[1]);
+          count++;
         } else if (commands[0].equals("apply")) {
           commands[1] = line.next().trim();
           applyEffect(commands[1]);
@@ -120,6 +132,14 @@ public class InteractiveController implements ImageEditorController, Features {
           this.mosaic(fileName);
           imageView();
           break;
+        case "opacity":
+          this.opacity(fileName);
+          imageView();
+          break;
+        case "blend":
+          this.blend(fileName);
+          imageView();
+          break;
         default:
           renderMessage("Invalid Command");
       }
@@ -131,17 +151,36 @@ public class InteractiveController implements ImageEditorController, Features {
     if (fileName == null) {
       renderMessage("Could Not Load All Images");
     } else {
+      // a project saved just before must be fully written first, other saves can go on
+      exports.flush(fileName);
       // pass the path to the file as a parameter
       String files = ImageUtilAddition.readTextFile(fileName);
       String[] imageLocations;
       imageLocations = files.split("\n");
+      // every layer image is decoded at the same time, then installed in the listed order
+      List<String> layerFiles = new ArrayList<>();
+      for (String record : imageLocations) {
+        if (record.contains(".png")) {
+          layerFiles.add(record);
+        }
+      }
+      for (String file : layerFiles) {
+        exports.flush(file);
+      }
+      Iterator<ImageInterface> images = new ProjectLoader().load(layerFiles).iterator();
       for (int i = 0; i < imageLocations.length; i++) {
         String record = imageLocations[i];
         if (record.equals("!Layer!")) {
           createLayer();
         } else if (record.contains(".png")) {
           createLayer();
-          this.load(record);
+          ImageInterface image = images.next();
+          if (image == null) {
+            renderMessage("Could Not Load The File!");
+          } else {
+            model.setImage(image);
+            renderMessage("Loaded the Image");
+          }
         } else {
           renderMessage("Can't Load this MultiLayer!");
         }
@@ -153,6 +192,8 @@ public class InteractiveController implements ImageEditorController, Features {
     if (fileName == null) {
       renderMessage("Could Not Load Image");
     } else {
+      // only a save of this file is waited for, the rest keep running in the background
+      exports.flush(fileName);
       if (fileName.substring(fileName.lastIndexOf(".") + 1).equals("ppm")) {
         ImageInterface image = ImageUtil.readPPM(fileName);
         try {
@@ -182,14 +223,11 @@ public class InteractiveController implements ImageEditorController, Features {
     if (fileName == null) {
       renderMessage("Error: Could Not Save File");
     } else {
-      if ((!model.isThisVisible(model.getAll().size() - 1)) ||
-          (model.getAll().get(model.getAll().size() - 1)
-              .isEmpty())) { // if the topMost layer is not visible
-        ILayer result = new Layer();
-        ILayer layerWithImage = this.saveTopMostVisible(result, model.getAll().size() - 1);
-        saveHelper(layerWithImage.getImage(), fileName);
-      } else {
-        saveHelper(model.getImage(), fileName);
+      try {
+        // all the visible layers blended together, as they are shown
+        saveHelper(model.getComposite(), fileName);
+      } catch (IllegalStateException e) {
+        renderMessage("Please Load the Image First");
       }
     }
   }
@@ -204,34 +242,13 @@ public class InteractiveController implements ImageEditorController, Features {
   }
 
   private void exportingHelper(String type, ImageInterface image, String exportFileName) {
-    if (type.equals("ppm")) {
-      //Creating a File object
-      ImageUtilAddition.exportFile(image, exportFileName);
-    } else if (type.equals("jpg") || type.equals("jpeg") || type.equals("png")) {
-      //Creating a File object
-      try {
-        ImageUtilAddition.export(image, exportFileName);
-        System.out.print(exportFileName + "\n");
-        renderMessage("Image Exported");
-      } catch (IOException e) {
-        renderMessage(e.getMessage());
-      }
+    if (type.equals("ppm") || type.equals("jpg") || type.equals("jpeg") || type.equals("png")) {
+      // encoded and written in the background, the writer reports when the file is done
+      exports.export(image, exportFileName);
+      renderMessage("Exporting " + exportFileName);
     }
   }
 
-  private ILayer saveTopMostVisible(ILayer result, int index) {
-    for (int i = index; i >= 0; i--) {
-      ILayer layer = model.getAll().get(i);
-      if (model.isThisVisible(i) && !layer.isEmpty()) {
-        result = layer;
-        break;
-      } else {
-        continue;
-      }
-    }
-    return result;
-  }
-
   private void saveAll(String fileName) {
     if (fileName == null) {
       renderMessage("Error: Cannot Save Image");
@@ -251,10 +268,9 @@ public class InteractiveController implements ImageEditorController, Features {
       if (fileName.contains("/")) {
         try {
           if (fileName.contains("res/")) {
-            ImageUtilAddition
-                .exportText("res/" + fileName.substring(fileName.lastIndexOf("/") + 1) + ".txt",
-                    fileNames.toString());
-            renderMessage("File Exported!");
+            // written after the layer images queued before it
+            exports.exportText("res/" + fileName.substring(fileName.lastIndexOf("/") + 1) + ".txt",
+                fileNames.toString());
           } else {
             renderMessage("Please Save In The Res Folder");
           }
@@ -307,6 +323,41 @@ public class InteractiveController implements ImageEditorController, Features {
     }
   }
 
+  @Override
+  public void historyCommands(String cmd) {
+    if (cmd == null) {
+      renderMessage("Needs at Least One Argument");
+      return;
+    }
+    int before = model.getAll().size();
+    try {
+      switch (cmd.toLowerCase()) {
+        case "undo":
+          model.undo();
+          renderMessage("Undone!");
+          break;
+        case "redo":
+          model.redo();
+          renderMessage("Redone!");
+          break;
+        default:
+          renderMessage("Invalid Command");
+          return;
+      }
+    } catch (IllegalStateException e) {
+      renderMessage(e.getMessage());
+      return;
+    }
+    // the layer buttons follow the layers brought back or taken away
+    for (int size = before; size < model.getAll().size(); size++) {
+      view.addButtonLayer(Integer.toString(size + 1), this);
+    }
+    for (int size = before; size > model.getAll().size(); size--) {
+      view.removeButtonLayer(size - 1);
+    }
+    imageView();
+  }
+
   @Override
   public boolean isVisible() {
     if (model == null) {
@@ -315,6 +366,13 @@ public class InteractiveController implements ImageEditorController, Features {
     return model.isVisible();
   }
 
+  @Override
+  public void exit() {
+    // the writer finishes the files queued so far before the program ends
+    exports.close();
+    System.exit(0);
+  }
+
   private void invisible() {
     try {
       if (model.isVisible()) {
@@ -365,6 +423,10 @@ public class InteractiveController implements ImageEditorController, Features {
           this.downScale(index, secondIndex);
           imageView();
           break;
+        case "resize":
+          this.resize(index, secondIndex);
+          imageView();
+          break;
         default:
           renderMessage("Invalid Command");
       }
@@ -431,6 +493,28 @@ public class InteractiveController implements ImageEditorController, Features {
     }
   }
 
+  // sets the opacity of the current layer
+  private void opacity(String value) {
+    try {
+      model.setOpacity(model.getCurrent() - 1, Double.parseDouble(value));
+      renderMessage("Opacity Set to " + value);
+    } catch (NumberFormatException e) {
+      renderMessage("Please Input A Valid Number");
+    } catch (IllegalArgumentException e) {
+      renderMessage("Opacity Must Be Between 0 and 1 On An Existing Layer");
+    }
+  }
+
+  // sets the blend mode of the current layer
+  private void blend(String mode) {
+    try {
+      model.setBlendMode(model.getCurrent() - 1, BlendMode.valueOf(mode.toUpperCase()));
+      renderMessage("Blend Mode Set to " + mode);
+    } catch (IllegalArgumentException e) {
+      renderMessage("Please Provide a Valid Blend Mode On An Existing Layer");
+    }
+  }
+
   private void mosaic(String num) {
     int number = 0;
     try {
@@ -465,6 +549,28 @@ public class InteractiveController implements ImageEditorController, Features {
     }
   }
 
+  // resizes every layer to the given width and height with the bicubic filter
+  private void resize(String width, String height) {
+    int newWidth;
+    int newHeight;
+    try {
+      newWidth = Integer.parseInt(width);
+      newHeight = Integer.parseInt(height);
+    } catch (NumberFormatException e) {
+      renderMessage("Please Input A Valid Number");
+      return;
+    }
+    try {
+      model.setEffect(new Resize(newHeight, newWidth));
+      model.applyOperation();
+      renderMessage("Image Resized!");
+    } catch (IllegalArgumentException e) {
+      renderMessage(e.getMessage());
+    } catch (IllegalStateException e) {
+      renderMessage("Please Load the Image First");
+    }
+  }
+
   private void blur() {
     try {
       model.setEffect(new Blur());
@@ -535,7 +641,8 @@ public class InteractiveController implements ImageEditorController, Features {
 
   private void imageView() {
     try {
-      view.showImage(model.getImage(), model.isVisible());
+      // the visible layers blended together, only the tiles that changed are redrawn
+      view.showImage(model.getComposite(), true);
     } catch (IllegalStateException e) {
       view.showImage(null, false);
     }
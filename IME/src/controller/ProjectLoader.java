@@ -0,0 +1,152 @@
+package controller;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import model.ImageInterface;
+
+/**
+ * Loads the images of a multi-layer project. All the files are decoded at the same time on a
+ * bounded pool of threads and handed back in the order they were listed, so the controllers can
+ * install them as layers in that order once they are all decoded.
+ *
+ * <p>Decoding a file takes memory well beyond the size of the file, so the decodes running at the
+ * same time are capped by a memory budget: every decode first reserves an estimate of the memory
+ * it needs, from the size of the image read from its header, and waits until the decodes running
+ * before it leave enough of the budget. A file needing more than the whole budget is decoded on
+ * its own.
+ */
+public class ProjectLoader {
+
+  // bytes taken per pixel while decoding: the decoded BufferedImage plus the planes of the Image
+  private static final int BYTES_PER_PIXEL = 10;
+  // semaphore permits are counted in blocks of this many bytes so large budgets fit in an int
+  private static final int BLOCK = 1024;
+
+  private final int parallelism;
+  private final int budgetBlocks;
+
+  /**
+   * Constructs a loader that uses every available processor and up to a quarter of the maximum
+   * heap for the decodes in flight.
+   */
+  public ProjectLoader() {
+    this(Runtime.getRuntime().availableProcessors(), Runtime.getRuntime().maxMemory() / 4);
+  }
+
+  /**
+   * Constructs a loader with the given number of threads and memory budget.
+   *
+   * @param parallelism  the maximum number of files decoded at the same time
+   * @param memoryBudget the number of bytes the decodes in flight may take together
+   * @throws IllegalArgumentException if parallelism is less than 1 or the budget is not positive
+   */
+  public ProjectLoader(int parallelism, long memoryBudget) {
+    if (parallelism < 1) {
+      throw new IllegalArgumentException("Parallelism must be at least 1.");
+    }
+    if (memoryBudget <= 0) {
+      throw new IllegalArgumentException("Memory budget must be positive.");
+    }
+    this.parallelism = parallelism;
+    this.budgetBlocks = (int) Math.min(Integer.MAX_VALUE, Math.max(1, memoryBudget / BLOCK));
+  }
+
+  /**
+   * Decodes the given image files concurrently.
+   *
+   * @param files the paths of the files, PPM, PNG or JPEG
+   * @return the decoded images in the order of the files, null for the files that could not be
+   *         read
+   * @throws IllegalArgumentException if the list or one of its paths is null
+   */
+  public List<ImageInterface> load(List<String> files) {
+    if (files == null || files.contains(null)) {
+      throw new IllegalArgumentException("Files can't be null.");
+    }
+    Semaphore budget = new Semaphore(budgetBlocks, true);
+    ForkJoinPool pool = new ForkJoinPool(parallelism);
+    List<Future<ImageInterface>> decodes = new ArrayList<>();
+    try {
+      for (String file : files) {
+        decodes.add(pool.submit(() -> decode(file, budget)));
+      }
+      List<ImageInterface> images = new ArrayList<>();
+      for (Future<ImageInterface> decode : decodes) {
+        try {
+          images.add(decode.get());
+        } catch (ExecutionException e) {
+          images.add(null);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new IllegalStateException("Loading was interrupted.");
+        }
+      }
+      return images;
+    } finally {
+      pool.shutdownNow();
+    }
+  }
+
+  /**
+   * Decodes one file once its estimated memory fits in the budget.
+   *
+   * @param file   the path of the file
+   * @param budget the memory budget shared by the decodes, in blocks
+   * @return the decoded image
+   * @throws IOException              if the file cannot be read
+   * @throws InterruptedException     if the thread is interrupted while waiting for the budget
+   * @throws IllegalArgumentException if the file is not a valid PPM file
+   */
+  private ImageInterface decode(String file, Semaphore budget)
+      throws IOException, InterruptedException {
+    int blocks = (int) Math.min(budgetBlocks, Math.max(1, estimate(file) / BLOCK));
+    budget.acquire(blocks);
+    try {
+      if (file.toLowerCase().endsWith(".ppm")) {
+        return ImageUtil.readPPM(file);
+      }
+      return ImageUtilAddition.readImage(file);
+    } finally {
+      budget.release(blocks);
+    }
+  }
+
+  /**
+   * Estimates the memory decoding a file takes. The size of a PNG or JPEG image is read from its
+   * header; a PPM file takes about twice its size as 8-bit P6 and less as P3.
+   *
+   * @param file the path of the file
+   * @return the estimated number of bytes, 0 if the file cannot be read
+   */
+  private static long estimate(String file) {
+    File f = new File(file);
+    if (file.toLowerCase().endsWith(".ppm")) {
+      return 2 * f.length();
+    }
+    try (ImageInputStream in = ImageIO.createImageInputStream(f)) {
+      Iterator<ImageReader> readers = in == null ? null : ImageIO.getImageReaders(in);
+      if (readers == null || !readers.hasNext()) {
+        return 0;
+      }
+      ImageReader reader = readers.next();
+      try {
+        reader.setInput(in);
+        return (long) reader.getWidth(0) * reader.getHeight(0) * BYTES_PER_PIXEL;
+      } finally {
+        reader.dispose();
+      }
+    } catch (IOException e) {
+      return 0;
+    }
+  }
+}
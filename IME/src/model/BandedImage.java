@@ -0,0 +1,153 @@
+package model;
+
+/**
+ * Represents an image stored as horizontal bands of rows, each band with its own channel planes.
+ * A new version of the image can share the bands it does not change with the previous version
+ * and only copy the others, which is how the Compositor redraws a few tiles of a large composite
+ * without copying the whole of it.
+ *
+ * <p>Like Image, a banded image never changes once created. It is equal to an Image or another
+ * image of this package holding the same pixels, and prints the same.
+ */
+final class BandedImage implements ImageInterface {
+
+  private final int width;
+  private final int height;
+  private final int maxVal;
+  private final int bandRows;
+  private final short[][][] bands; // the red, green and blue planes of every band, from the top
+  private int hash; // computed the first time it is asked for, 0 until then
+
+  /**
+   * Constructs an image that takes ownership of the given bands without copying them.
+   *
+   * @param width    the width of the image
+   * @param height   the height of the image
+   * @param maxVal   the maximum RGB value of the image
+   * @param bandRows the number of rows of every band but the last one, which may have fewer
+   * @param bands    the channel planes of every band, each of length width times its rows
+   */
+  BandedImage(int width, int height, int maxVal, int bandRows, short[][][] bands) {
+    this.width = width;
+    this.height = height;
+    this.maxVal = maxVal;
+    this.bandRows = bandRows;
+    this.bands = bands;
+  }
+
+  /**
+   * Gets the channel planes of a band. The planes may be shared with other images, so they are
+   * only written by the Compositor, into the bands it has just created and not handed out yet.
+   *
+   * @param band the index of the band, from the top
+   * @return the red, green and blue planes of the band
+   */
+  short[][] band(int band) {
+    return bands[band];
+  }
+
+  @Override
+  public RGB getPixel(int x, int y) {
+    return new RGB(getChannel(x, y, 0), getChannel(x, y, 1), getChannel(x, y, 2));
+  }
+
+  @Override
+  public int getChannel(int x, int y, int channel) {
+    if (y < 0 || y >= height || x < 0 || x >= width) {
+      throw new IllegalArgumentException("Index out of bounds.");
+    }
+    if (channel < 0 || channel >= Image.CHANNEL) {
+      throw new IllegalArgumentException("Invalid index.");
+    }
+    short[] plane = bands[y / bandRows][channel];
+    return plane[y % bandRows * width + x] & Image.MAX_CHANNEL_VALUE;
+  }
+
+  @Override
+  public void getRow(int y, int channel, int[] dest) {
+    if (y < 0 || y >= height || channel < 0 || channel >= Image.CHANNEL) {
+      throw new IllegalArgumentException("Index out of bounds.");
+    }
+    if (dest == null || dest.length < width) {
+      throw new IllegalArgumentException("Destination row is too small.");
+    }
+    short[] plane = bands[y / bandRows][channel];
+    int offset = y % bandRows * width;
+    for (int x = 0; x < width; x++) {
+      dest[x] = plane[offset + x] & Image.MAX_CHANNEL_VALUE;
+    }
+  }
+
+  @Override
+  public int getHeight() {
+    return this.height;
+  }
+
+  @Override
+  public int getWidth() {
+    return this.width;
+  }
+
+  @Override
+  public int getMaxValue() {
+    return this.maxVal;
+  }
+
+  /**
+   * Copies the bands into one image.
+   *
+   * @return an image holding the pixels of the bands
+   */
+  @Override
+  public Image getImage() {
+    short[][] planes = new short[Image.CHANNEL][width * height];
+    for (int b = 0; b < bands.length; b++) {
+      for (int c = 0; c < Image.CHANNEL; c++) {
+        short[] plane = bands[b][c];
+        System.arraycopy(plane, 0, planes[c], b * bandRows * width, plane.length);
+      }
+    }
+    return new Image(width, height, planes, maxVal);
+  }
+
+  @Override
+  public RGB[][] getPixels() {
+    return getImage().getPixels();
+  }
+
+  @Override
+  public String toString() {
+    return Image.format(this);
+  }
+
+  /**
+   * Determines whether an object is an Image or another image of this package holding the same
+   * pixels.
+   *
+   * @param obj the object to compare with
+   * @return true if it has the same size, maximum value and pixels
+   */
+  @Override
+  public boolean equals(Object obj) {
+    if (obj == this) {
+      return true;
+    }
+    return (obj instanceof Image || obj instanceof TiledImage || obj instanceof BandedImage)
+        && Image.sameRows(this, (ImageInterface) obj);
+  }
+
+  /**
+   * Computes the same hash code as an Image holding the same pixels.
+   *
+   * @return the hash code
+   */
+  @Override
+  public int hashCode() {
+    int result = hash;
+    if (result == 0) {
+      result = Image.rowHash(this);
+      this.hash = result;
+    }
+    return result;
+  }
+}
@@ -0,0 +1,49 @@
+package model;
+
+/**
+ * The ways a layer is mixed with the layers below it when the layers are composited. The mixed
+ * value is then weighed against the value below by the opacity of the layer.
+ */
+public enum BlendMode {
+  /**
+   * The layer covers the layers below it.
+   */
+  NORMAL,
+  /**
+   * The layer darkens the layers below it: white leaves them unchanged, black gives black.
+   */
+  MULTIPLY,
+  /**
+   * The layer lightens the layers below it: black leaves them unchanged, white gives white.
+   */
+  SCREEN,
+  /**
+   * Multiplies the dark values and screens the light values of the layers below, raising their
+   * contrast with the colors of the layer.
+   */
+  OVERLAY;
+
+  /**
+   * Mixes a value of the layer with the value below it in the same channel.
+   *
+   * @param below the value of the layers below, from 0 to max
+   * @param top   the value of the layer, from 0 to max
+   * @param max   the maximum value of a channel
+   * @return the mixed value, from 0 to max
+   */
+  int blend(int below, int top, int max) {
+    switch (this) {
+      case MULTIPLY:
+        return (int) ((long) below * top / max);
+      case SCREEN:
+        return max - (int) ((long) (max - below) * (max - top) / max);
+      case OVERLAY:
+        if (2 * below <= max) {
+          return (int) (2L * below * top / max);
+        }
+        return max - (int) (2L * (max - below) * (max - top) / max);
+      default:
+        return top;
+    }
+  }
+}
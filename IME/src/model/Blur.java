@@ -1,7 +1,8 @@
 package model;
 
 /**
- * Performs an image operation that blurs the current image.
+ * Performs an image operation that blurs the current image. The blur kernel is the outer product
+ * of [1/4, 1/2, 1/4] with itself, so it is applied as two one-dimensional passes.
  */
 public class Blur extends Filtering {
 
@@ -9,7 +10,18 @@ public class Blur extends Filtering {
    * Constructs a blur operation with a default kernel.
    */
   public Blur() {
-    super(new double[][]{{0.0625, 0.125, 0.0625}, {0.125, 0.25, 0.125}, {0.0625, 0.125, 0.062}});
+    this(RowBands.defaultParallelism());
+  }
+
+  /**
+   * Constructs a blur operation with a default kernel that runs on up to the given number of
+   * threads.
+   *
+   * @param parallelism the maximum number of threads to use, 1 blurs on the calling thread
+   * @throws IllegalArgumentException if parallelism is less than 1
+   */
+  public Blur(int parallelism) {
+    super(new double[]{0.25, 0.5, 0.25}, new double[]{0.25, 0.5, 0.25}, parallelism);
   }
 
 }
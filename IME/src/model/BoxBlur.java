@@ -0,0 +1,69 @@
+package model;
+
+/**
+ * Performs an image operation that replaces every pixel by the average of the square of pixels
+ * around it, with a radius of any size. Pixels outside of the image count as black, like in the
+ * other filters. The box is applied with sliding-window sums, so the cost per pixel does not
+ * depend on the radius.
+ */
+public class BoxBlur extends Filtering {
+
+  private final int radius;
+
+  /**
+   * Constructs a box blur of the given radius.
+   *
+   * @param radius the number of pixels on each side of a pixel that are averaged, starting from 1
+   * @throws IllegalArgumentException if the radius is less than 1
+   */
+  public BoxBlur(int radius) {
+    this(radius, RowBands.defaultParallelism());
+  }
+
+  /**
+   * Constructs a box blur of the given radius that runs on up to the given number of threads.
+   *
+   * @param radius      the number of pixels on each side of a pixel that are averaged, starting
+   *                    from 1
+   * @param parallelism the maximum number of threads to use, 1 blurs on the calling thread
+   * @throws IllegalArgumentException if the radius or parallelism is less than 1
+   */
+  public BoxBlur(int radius, int parallelism) {
+    super(parallelism);
+    if (radius < 1) {
+      throw new IllegalArgumentException("Invalid radius.");
+    }
+    this.radius = radius;
+  }
+
+  @Override
+  public ImageInterface apply(ImageInterface img) {
+    if (img == null) {
+      throw new IllegalArgumentException("Image cannot be null.");
+    }
+    Image source = img.getImage();
+    int width = source.getWidth();
+    int height = source.getHeight();
+    int maxVal = source.getMaxValue();
+    short[][] result = new short[Image.CHANNEL][];
+    for (int c = 0; c < Image.CHANNEL; c++) {
+      double[] values = BoxConvolution.toDoubles(source.plane(c));
+      BoxConvolution.blur(values, width, height, radius, getParallelism());
+      result[c] = new short[values.length];
+      for (int i = 0; i < values.length; i++) {
+        result[c][i] = BoxConvolution.toChannel(values[i], maxVal);
+      }
+    }
+    return new Image(width, height, result, maxVal);
+  }
+
+  /**
+   * Gets the radius of the box, the rows a pixel depends on above and below it.
+   *
+   * @return the radius of the box
+   */
+  @Override
+  protected int reach() {
+    return radius;
+  }
+}
@@ -0,0 +1,140 @@
+package model;
+
+/**
+ * Sliding-window sums used by the box and Gaussian blurs. The sum over a window of any radius is
+ * updated with one addition and one subtraction per pixel, so the cost does not depend on the
+ * radius. Values outside of the image count as zero, like in the other filtering engines.
+ */
+final class BoxConvolution {
+
+  // sliding sums carry rounding errors, a sum just under an integer is counted as that integer
+  private static final double ROUNDING_SLACK = 1e-7;
+
+  private BoxConvolution() {
+  }
+
+  /**
+   * Converts a channel plane into doubles.
+   *
+   * @param plane the channel plane
+   * @return the values of the plane as doubles
+   */
+  static double[] toDoubles(short[] plane) {
+    double[] values = new double[plane.length];
+    for (int i = 0; i < plane.length; i++) {
+      values[i] = plane[i] & Image.MAX_CHANNEL_VALUE;
+    }
+    return values;
+  }
+
+  /**
+   * Replaces every value of the given rows by the sum of the values of its row that are at most
+   * radius pixels away.
+   *
+   * @param src    the values to sum
+   * @param dst    the plane receiving the sums
+   * @param width  the width of the image
+   * @param radius the radius of the window
+   * @param from   the first row to process
+   * @param to     the row after the last row to process
+   */
+  static void horizontalSums(double[] src, double[] dst, int width, int radius, int from,
+      int to) {
+    for (int y = from; y < to; y++) {
+      int rowOffset = y * width;
+      double sum = 0;
+      for (int x = 0; x <= Math.min(radius, width - 1); x++) {
+        sum += src[rowOffset + x];
+      }
+      for (int x = 0; x < width; x++) {
+        dst[rowOffset + x] = sum;
+        if (x + radius + 1 < width) {
+          sum += src[rowOffset + x + radius + 1];
+        }
+        if (x - radius >= 0) {
+          sum -= src[rowOffset + x - radius];
+        }
+      }
+    }
+  }
+
+  /**
+   * Replaces every value of the given columns by the sum of the values of its column that are at
+   * most radius pixels away. A row of window sums covering the columns slides down the image, so
+   * the inner loop walks along rows.
+   *
+   * @param src    the values to sum
+   * @param dst    the plane receiving the sums
+   * @param width  the width of the image
+   * @param height the height of the image
+   * @param radius the radius of the window
+   * @param from   the first column to process
+   * @param to     the column after the last column to process
+   */
+  static void verticalSums(double[] src, double[] dst, int width, int height, int radius,
+      int from, int to) {
+    double[] sums = new double[to - from];
+    for (int y = 0; y <= Math.min(height - 1, radius); y++) {
+      addRow(src, sums, y * width + from, 1);
+    }
+    for (int y = 0; y < height; y++) {
+      System.arraycopy(sums, 0, dst, y * width + from, sums.length);
+      if (y + radius + 1 < height) {
+        addRow(src, sums, (y + radius + 1) * width + from, 1);
+      }
+      if (y - radius >= 0) {
+        addRow(src, sums, (y - radius) * width + from, -1);
+      }
+    }
+  }
+
+  /**
+   * Adds or subtracts part of a row of the plane to the row of sums.
+   *
+   * @param src    the plane holding the row
+   * @param sums   the row of sums
+   * @param offset the index in the plane of the value added to the first sum
+   * @param sign   1 to add the row, -1 to subtract it
+   */
+  private static void addRow(double[] src, double[] sums, int offset, int sign) {
+    for (int x = 0; x < sums.length; x++) {
+      sums[x] += sign * src[offset + x];
+    }
+  }
+
+  /**
+   * Runs one box blur of the given radius over a plane of doubles, normalized so that the
+   * weights of the window add up to 1.
+   *
+   * @param values      the plane to blur, replaced by the result
+   * @param width       the width of the image
+   * @param height      the height of the image
+   * @param radius      the radius of the box
+   * @param parallelism the maximum number of threads to use
+   */
+  static void blur(double[] values, int width, int height, int radius, int parallelism) {
+    double[] rows = new double[values.length];
+    RowBands.run(height, parallelism,
+        (from, to) -> horizontalSums(values, rows, width, radius, from, to));
+    // the vertical sums slide down whole columns, so they are split into bands of columns
+    RowBands.run(width, parallelism,
+        (from, to) -> verticalSums(rows, values, width, height, radius, from, to));
+    double side = 2.0 * radius + 1;
+    double area = side * side;
+    for (int i = 0; i < values.length; i++) {
+      values[i] /= area;
+    }
+  }
+
+  /**
+   * Truncates a blurred value and clamps it into the range of a channel, like the other filters,
+   * after absorbing the rounding error of the sliding sums.
+   *
+   * @param value  the blurred value of a pixel
+   * @param maxVal the maximum color value
+   * @return the stored form of the clamped value
+   */
+  static short toChannel(double value, int maxVal) {
+    return Convolution.toChannel(value + ROUNDING_SLACK, maxVal);
+  }
+}
@@ -6,13 +6,13 @@ import controller.ImageUtilAddition;
  * This abstract class takes care of the color transformations being applied to images. Its
  * operations include greyscale and sepia.
  */
-public abstract class ColorTransformation implements ImageEditors {
+public abstract class ColorTransformation implements StreamingEditor {
 
   double[][] matrix;
-  private final int CHANNEL = 3;
-  private final int RED = 0;
-  private final int GREEN = 1;
-  private final int BLUE = 2;
+  private static final int CHANNEL = 3;
+  private static final int RED = 0;
+  private static final int GREEN = 1;
+  private static final int BLUE = 2;
 
   /**
    * Constructs a color transformation editor with a matrix scale to be applied on the image.
@@ -54,21 +54,109 @@ public abstract class ColorTransformation implements ImageEditors {
     if (img == null) {
       throw new IllegalArgumentException("Image cannot be null.");
     }
-    RGB[][] newPixels = new RGB[img.getHeight()][img.getWidth()];
-    for (int i = 0; i < img.getHeight(); i++) {
-      for (int j = 0; j < img.getWidth(); j++) {
-        RGB oldColor = img.getPixel(j, i);
-        RGB newColor = applyTransform(oldColor, img);
-        newPixels[i][j] = newColor;
+    return applyAll(new ColorTransformation[]{this}, img.getImage());
+  }
+
+  /**
+   * Transforms the image one row at a time and writes the result into the destination, so the
+   * image never has to be held in memory.
+   *
+   * @param img  the image to be edited
+   * @param dest the destination of the transformed image, of the size of the image
+   */
+  @Override
+  public void apply(ImageInterface img, RowWriter dest) {
+    if (img == null || dest == null) {
+      throw new IllegalArgumentException("Image cannot be null.");
+    }
+    int width = img.getWidth();
+    int height = img.getHeight();
+    if (dest.getWidth() != width || dest.getHeight() != height) {
+      throw new IllegalArgumentException("Destination must have the size of the image.");
+    }
+    int maxVal = Math.min(img.getMaxValue(), Image.MAX_CHANNEL_VALUE);
+    double[][][] tables = contributionTables(maxVal);
+    int[][] rows = new int[CHANNEL][width];
+    int[][] result = new int[CHANNEL][width];
+    int[] color = new int[CHANNEL];
+    int[] next = new int[CHANNEL];
+    for (int y = 0; y < height; y++) {
+      for (int c = 0; c < CHANNEL; c++) {
+        img.getRow(y, c, rows[c]);
+      }
+      for (int x = 0; x < width; x++) {
+        for (int c = 0; c < CHANNEL; c++) {
+          color[c] = rows[c][x];
+        }
+        transform(tables, color, next, maxVal);
+        for (int c = 0; c < CHANNEL; c++) {
+          result[c][x] = next[c];
+        }
+      }
+      for (int c = 0; c < CHANNEL; c++) {
+        dest.setRow(y, c, result[c]);
       }
     }
-    return new Image(newPixels, img.getMaxValue());
   }
 
+  /**
+   * Applies several color transformations one after the other in a single pass over the pixels.
+   * Every pixel goes through each matrix in turn and is clamped in between, so the result is the
+   * same as applying the transformations one by one, without building the images in between.
+   *
+   * @param transformations the transformations in the order they are applied
+   * @param source          the image to transform
+   * @return the transformed image
+   */
+  static Image applyAll(ColorTransformation[] transformations, Image source) {
+    int width = source.getWidth();
+    int height = source.getHeight();
+    int maxVal = Math.min(source.getMaxValue(), Image.MAX_CHANNEL_VALUE);
+    double[][][][] tables = new double[transformations.length][][][];
+    for (int t = 0; t < transformations.length; t++) {
+      tables[t] = transformations[t].contributionTables(maxVal);
+    }
+    short[][] planes = new short[CHANNEL][];
+    for (int c = 0; c < CHANNEL; c++) {
+      planes[c] = source.plane(c);
+    }
+    short[][] result = new short[CHANNEL][width * height];
+    int[] color = new int[CHANNEL];
+    int[] next = new int[CHANNEL];
+    for (int p = 0; p < width * height; p++) {
+      for (int c = 0; c < CHANNEL; c++) {
+        color[c] = planes[c][p] & Image.MAX_CHANNEL_VALUE;
+      }
+      for (int t = 0; t < transformations.length; t++) {
+        transformations[t].transform(tables[t], color, next, maxVal);
+        int[] swap = color;
+        color = next;
+        next = swap;
+      }
+      for (int c = 0; c < CHANNEL; c++) {
+        result[c][p] = (short) color[c];
+      }
+    }
+    return new Image(width, height, result, source.getMaxValue());
+  }
 
-  @Override
-  public String toString() {
-    return String.format("ColorTransformation-%s", this.getClass());
+  /**
+   * Transforms the color of one pixel according to the scale matrix.
+   *
+   * @param tables the contribution tables of the matrix
+   * @param color  the old color of the pixel
+   * @param dest   the array receiving the new color
+   * @param maxVal the maximum color value, results are clamped to it
+   */
+  private void transform(double[][][] tables, int[] color, int[] dest, int maxVal) {
+    for (int i = 0; i < CHANNEL; i++) {
+      double[][] row = tables[i];
+      int num = 0;
+      num += contribution(row[RED], i, RED, color[RED]);
+      num += contribution(row[GREEN], i, GREEN, color[GREEN]);
+      num += contribution(row[BLUE], i, BLUE, color[BLUE]);
+      dest[i] = ImageUtilAddition.clamp(num, maxVal);
+    }
   }
 
   /*
@@ -78,25 +166,41 @@ b′=a31r+a32g+a33b
  */
 
   /**
-   * Transforms the color of every pixel in this image according to the scale matrix.
+   * Precomputes the contribution of every color value up to the maximum value to every entry of
+   * the matrix, so that transforming a pixel only looks values up. Entry [i][j][v] is
+   * v * matrix[i][j], the same product the matrix multiplication computes.
    *
-   * @param color the old color of a pixel
-   * @param img   the image where the color of a pixel will be transformed
-   * @return the new color to be documented in the image
+   * @param maxVal the largest color value expected in the image
+   * @return the contribution tables indexed by output channel, input channel and value
    */
-  private RGB applyTransform(RGB color, ImageInterface img) {
-    double[] orderRGB = new double[CHANNEL];
+  private double[][][] contributionTables(int maxVal) {
+    double[][][] tables = new double[CHANNEL][CHANNEL][maxVal + 1];
     for (int i = 0; i < CHANNEL; i++) {
-      int num = 0;
       for (int j = 0; j < CHANNEL; j++) {
-        // color.getValue(j) => 0 = gets red, 1 = gets Green, 2 = gets Blue
-        num += color.getValue(j) * matrix[i][j];
+        for (int v = 0; v <= maxVal; v++) {
+          tables[i][j][v] = v * matrix[i][j];
+        }
       }
-      orderRGB[i] = num;
     }
-    return new RGB(ImageUtilAddition.clamp((int) orderRGB[RED], img.getMaxValue()),
-        ImageUtilAddition.clamp((int) orderRGB[GREEN], img.getMaxValue()),
-        ImageUtilAddition.clamp((int) orderRGB[BLUE], img.getMaxValue()));
+    return tables;
+  }
+
+  /**
+   * Looks up the contribution of a color value to a channel, computing it when the value is
+   * beyond the table, which only happens for pixels brighter than the maximum value.
+   *
+   * @param table  the contribution table of the matrix entry
+   * @param row    the output channel
+   * @param column the input channel
+   * @param value  the color value
+   * @return value * matrix[row][column]
+   */
+  private double contribution(double[] table, int row, int column, int value) {
+    return value < table.length ? table[value] : value * matrix[row][column];
   }
 
+  @Override
+  public String toString() {
+    return String.format("ColorTransformation-%s", this.getClass());
+  }
 }
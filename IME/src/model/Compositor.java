@@ -0,0 +1,329 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Composites the visible layers of a project into one image, from the bottom layer to the top
+ * one. Every layer is blended over the layers below it with its blend mode and opacity; layers
+ * are anchored at the top left corner and the composite is as large as the largest layer, with
+ * black where no layer reaches.
+ *
+ * <p>The last composite is kept and divided into square tiles. Each call compares the layers with
+ * the ones seen by the previous call and marks dirty the tiles covered by the layers whose image,
+ * visibility, opacity or blend mode changed; only those tiles are composited again, in parallel.
+ * The composite is a BandedImage one row of tiles per band: a new composite shares the bands
+ * holding no dirty tile with the previous one and only copies the bands it redraws. A tile also
+ * starts from the topmost opaque normal layer covering it instead of the bottom layer, since
+ * nothing below shows through.
+ */
+public class Compositor {
+
+  private static final int DEFAULT_TILE_SIZE = 64;
+  // opacity is applied in fixed point, as a fraction of this
+  private static final int OPAQUE = 256;
+
+  /**
+   * What a layer looked like when it was last composited.
+   */
+  private static final class State {
+
+    private ImageInterface image; // null for an empty layer, swapped when a layer is paged
+    private final boolean visible;
+    private final double opacity;
+    private final BlendMode mode;
+
+    private State(ILayer layer) {
+      this.image = layer.isEmpty() ? null : layer.getImage();
+      this.visible = layer.getVisibility();
+      this.opacity = layer.getOpacity();
+      this.mode = layer.getBlendMode();
+    }
+
+    /**
+     * Determines whether the layer shows in the composite.
+     *
+     * @return true if the layer has an image, is visible and is not fully transparent
+     */
+    private boolean shows() {
+      return image != null && visible && opacity > 0;
+    }
+
+    /**
+     * Determines whether the layer hides everything below it where it reaches.
+     *
+     * @return true if the layer shows, is fully opaque and uses the normal blend mode
+     */
+    private boolean opaque() {
+      return shows() && opacity == 1 && mode == BlendMode.NORMAL;
+    }
+
+    /**
+     * Determines whether the layer composites the same as the given state.
+     *
+     * @param other the state to compare with, may be null
+     * @return true if both show the same image in the same way, or neither shows
+     */
+    private boolean sameAs(State other) {
+      if (other == null || !shows() || !other.shows()) {
+        return (other != null && other.shows()) == shows();
+      }
+      return image == other.image && opacity == other.opacity && mode == other.mode;
+    }
+  }
+
+  private final int tileSize;
+  private final int parallelism;
+  private List<State> layers; // the layers seen by the last call, from the bottom
+  private BandedImage composite; // the last composite, null before the first one
+  private final BitSet invalidated; // tiles marked dirty by the caller since the last call
+
+  /**
+   * Constructs a compositor with 64 pixel tiles using every available processor.
+   */
+  public Compositor() {
+    this(DEFAULT_TILE_SIZE, RowBands.defaultParallelism());
+  }
+
+  /**
+   * Constructs a compositor with the given tile size and number of threads.
+   *
+   * @param tileSize    the width and height of a tile in pixels
+   * @param parallelism the maximum number of threads compositing tiles
+   * @throws IllegalArgumentException if either number is less than 1
+   */
+  public Compositor(int tileSize, int parallelism) {
+    if (tileSize < 1 || parallelism < 1) {
+      throw new IllegalArgumentException("Tile size and parallelism must be at least 1.");
+    }
+    this.tileSize = tileSize;
+    this.parallelism = parallelism;
+    this.layers = new ArrayList<>();
+    this.composite = null;
+    this.invalidated = new BitSet();
+  }
+
+  /**
+   * Composites the given layers, reusing the tiles of the last composite no change reaches.
+   *
+   * @param stack the layers, from the bottom one to the top one
+   * @return the composite image
+   * @throws IllegalArgumentException if the list or one of its layers is null
+   * @throws IllegalStateException    if no layer has an image
+   */
+  public ImageInterface composite(List<ILayer> stack) {
+    if (stack == null || stack.contains(null)) {
+      throw new IllegalArgumentException("Layers can't be null.");
+    }
+    List<State> states = new ArrayList<>();
+    int width = 0;
+    int height = 0;
+    int maxValue = 0;
+    for (ILayer layer : stack) {
+      State state = new State(layer);
+      states.add(state);
+      if (state.image != null) {
+        width = Math.max(width, state.image.getWidth());
+        height = Math.max(height, state.image.getHeight());
+        maxValue = Math.max(maxValue, state.image.getMaxValue());
+      }
+    }
+    if (maxValue == 0) {
+      throw new IllegalStateException("There is no image to composite.");
+    }
+    int tilesAcross = (width + tileSize - 1) / tileSize;
+    int tilesDown = (height + tileSize - 1) / tileSize;
+    BitSet dirty = new BitSet(tilesAcross * tilesDown);
+    boolean resized = composite == null || composite.getWidth() != width
+        || composite.getHeight() != height || composite.getMaxValue() != maxValue;
+    if (resized) {
+      dirty.set(0, tilesAcross * tilesDown);
+    } else {
+      dirty.or(invalidated);
+      for (int i = 0; i < Math.max(states.size(), layers.size()); i++) {
+        State now = i < states.size() ? states.get(i) : null;
+        State before = i < layers.size() ? layers.get(i) : null;
+        if (now == null ? before.shows() : !now.sameAs(before)) {
+          markCovered(dirty, before, tilesAcross, tilesDown);
+          markCovered(dirty, now, tilesAcross, tilesDown);
+        }
+      }
+    }
+    this.layers = states;
+    this.invalidated.clear();
+    if (dirty.isEmpty()) {
+      return composite;
+    }
+    // a band is one row of tiles, copied only if one of its tiles is redrawn
+    short[][][] bands = new short[tilesDown][][];
+    for (int ty = 0; ty < tilesDown; ty++) {
+      int first = dirty.nextSetBit(ty * tilesAcross);
+      boolean redrawn = first >= 0 && first < (ty + 1) * tilesAcross;
+      if (resized) {
+        int rows = Math.min(tileSize, height - ty * tileSize);
+        bands[ty] = new short[Image.CHANNEL][rows * width];
+      } else if (redrawn) {
+        bands[ty] = new short[Image.CHANNEL][];
+        for (int c = 0; c < Image.CHANNEL; c++) {
+          bands[ty][c] = composite.band(ty)[c].clone();
+        }
+      } else {
+        bands[ty] = composite.band(ty);
+      }
+    }
+    int[] tiles = dirty.stream().toArray();
+    BandedImage result = new BandedImage(width, height, maxValue, tileSize, bands);
+    int across = tilesAcross;
+    RowBands.run(tiles.length, 1, parallelism, (from, to) -> {
+      for (int t = from; t < to; t++) {
+        compositeTile(states, result, tiles[t] % across, tiles[t] / across);
+      }
+    });
+    this.composite = result;
+    return composite;
+  }
+
+  /**
+   * Marks a region of the composite dirty, so that the next composite redraws it even if no layer
+   * changed, as when the pixels of a layer are changed in place.
+   *
+   * @param x      the left edge of the region
+   * @param y      the top edge of the region
+   * @param width  the width of the region
+   * @param height the height of the region
+   * @throws IllegalArgumentException if the region is negative in position or size
+   */
+  public void invalidate(int x, int y, int width, int height) {
+    if (x < 0 || y < 0 || width < 0 || height < 0) {
+      throw new IllegalArgumentException("Invalid region.");
+    }
+    if (composite == null || width == 0 || height == 0) {
+      return;
+    }
+    int tilesAcross = (composite.getWidth() + tileSize - 1) / tileSize;
+    int tilesDown = (composite.getHeight() + tileSize - 1) / tileSize;
+    markRegion(invalidated, x, y, x + width, y + height, tilesAcross, tilesDown);
+  }
+
+  /**
+   * Tells the compositor that an image of the layers it last composited was replaced by another
+   * one holding the same pixels, as when a layer is paged out or back in, so that the tiles it
+   * covers are not redrawn and the image replaced is no longer referenced.
+   *
+   * @param before the image replaced
+   * @param after  the image holding the same pixels
+   */
+  public void replaced(ImageInterface before, ImageInterface after) {
+    for (State state : layers) {
+      if (state.image == before) {
+        state.image = after;
+      }
+    }
+  }
+
+  /**
+   * Marks dirty the tiles covered by a layer, if it shows.
+   *
+   * @param dirty       the dirty tiles
+   * @param state       the layer, may be null
+   * @param tilesAcross the number of tiles in a row of the composite
+   * @param tilesDown   the number of rows of tiles in the composite
+   */
+  private void markCovered(BitSet dirty, State state, int tilesAcross, int tilesDown) {
+    if (state != null && state.shows()) {
+      markRegion(dirty, 0, 0, state.image.getWidth(), state.image.getHeight(), tilesAcross,
+          tilesDown);
+    }
+  }
+
+  /**
+   * Marks dirty the tiles overlapping a region, clipped to the composite.
+   *
+   * @param dirty       the dirty tiles
+   * @param x0          the left edge of the region
+   * @param y0          the top edge of the region
+   * @param x1          the right edge of the region, exclusive
+   * @param y1          the bottom edge of the region, exclusive
+   * @param tilesAcross the number of tiles in a row of the composite
+   * @param tilesDown   the number of rows of tiles in the composite
+   */
+  private void markRegion(BitSet dirty, int x0, int y0, int x1, int y1, int tilesAcross,
+      int tilesDown) {
+    int lastColumn = Math.min(tilesAcross, (int) (((long) x1 + tileSize - 1) / tileSize));
+    int lastRow = Math.min(tilesDown, (int) (((long) y1 + tileSize - 1) / tileSize));
+    for (int ty = y0 / tileSize; ty < lastRow; ty++) {
+      int first = ty * tilesAcross + x0 / tileSize;
+      int last = ty * tilesAcross + lastColumn;
+      if (first < last) {
+        dirty.set(first, last);
+      }
+    }
+  }
+
+  /**
+   * Composites one tile of the layers into the band of the composite holding it.
+   *
+   * @param states the layers, from the bottom one
+   * @param result the composite, whose band holding the tile is written in place before it is
+   *               handed out
+   * @param tx     the column of the tile
+   * @param ty     the row of the tile, which is also its band
+   */
+  private void compositeTile(List<State> states, BandedImage result, int tx, int ty) {
+    int width = result.getWidth();
+    int height = result.getHeight();
+    int maxValue = result.getMaxValue();
+    int x0 = tx * tileSize;
+    int y0 = ty * tileSize;
+    int x1 = Math.min(width, x0 + tileSize);
+    int y1 = Math.min(height, y0 + tileSize);
+    // nothing below the topmost opaque layer covering the whole tile shows through
+    int bottom = 0;
+    for (int i = states.size() - 1; i >= 0; i--) {
+      State state = states.get(i);
+      if (state.opaque() && state.image.getWidth() >= x1 && state.image.getHeight() >= y1) {
+        bottom = i;
+        break;
+      }
+    }
+    int[] segment = new int[width];
+    for (int c = 0; c < Image.CHANNEL; c++) {
+      short[] dest = result.band(ty)[c];
+      for (int y = y0; y < y1; y++) {
+        int row = (y - y0) * width;
+        for (int x = x0; x < x1; x++) {
+          dest[row + x] = 0;
+        }
+        for (int i = bottom; i < states.size(); i++) {
+          State state = states.get(i);
+          if (!state.shows() || y >= state.image.getHeight()) {
+            continue;
+          }
+          ImageInterface img = state.image;
+          int end = Math.min(x1, img.getWidth());
+          short[] source = img instanceof Image ? ((Image) img).plane(c) : null;
+          if (img instanceof TiledImage) {
+            // only the tiles under this tile are read back
+            ((TiledImage) img).getRow(y, c, Math.min(x0, end), end, segment);
+          } else if (source == null) {
+            img.getRow(y, c, segment);
+          }
+          int sourceRow = y * img.getWidth();
+          int sourceMax = img.getMaxValue();
+          int alpha = (int) Math.round(state.opacity * OPAQUE);
+          for (int x = x0; x < end; x++) {
+            int top = source == null ? segment[x]
+                : source[sourceRow + x] & Image.MAX_CHANNEL_VALUE;
+            if (sourceMax != maxValue) {
+              top = (int) (((long) top * maxValue + sourceMax / 2) / sourceMax);
+            }
+            int below = dest[row + x] & Image.MAX_CHANNEL_VALUE;
+            int mixed = state.mode.blend(below, top, maxValue);
+            dest[row + x] = (short) (below + (((mixed - below) * alpha + OPAQUE / 2) >> 8));
+          }
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,120 @@
+package model;
+
+import controller.ImageUtilAddition;
+
+/**
+ * The convolution engine behind Filtering. It works directly on the channel planes of an Image and
+ * splits every image into an interior, where the whole kernel lies inside the image and no bounds
+ * are checked, and a border, where kernel taps falling outside the image count as zero.
+ *
+ * <p>In the interior every kernel tap is added to a whole row of sums at once, a plain loop over
+ * primitive arrays the JIT can unroll and vectorize. Each pixel still receives its taps in the
+ * same order as the border path, so both paths give bit-identical results.
+ */
+final class Convolution {
+
+  private final double[] kernel; // the square kernel flattened in row-major order
+  private final int size; // the length of a side of the kernel
+  private final int center;
+
+  /**
+   * Constructs a convolution engine for the given square kernel of odd size.
+   *
+   * @param kernel the kernel to apply
+   */
+  Convolution(double[][] kernel) {
+    this.size = kernel.length;
+    this.center = size / 2;
+    this.kernel = new double[size * size];
+    for (int i = 0; i < size; i++) {
+      System.arraycopy(kernel[i], 0, this.kernel, i * size, size);
+    }
+  }
+
+  /**
+   * Convolves the rows from (inclusive) to (exclusive) of one channel plane.
+   *
+   * @param src    the source plane
+   * @param dst    the plane receiving the filtered values
+   * @param width  the width of the image
+   * @param height the height of the image
+   * @param maxVal the maximum color value, results are clamped to it
+   * @param from   the first row to filter
+   * @param to     the row after the last row to filter
+   */
+  void apply(short[] src, short[] dst, int width, int height, int maxVal, int from, int to) {
+    double[] sums = new double[width];
+    // first and last columns (exclusive) of the interior
+    int left = center;
+    int right = width - center;
+    for (int y = from; y < to; y++) {
+      if (y < center || y >= height - center || left >= right) {
+        for (int x = 0; x < width; x++) {
+          dst[y * width + x] = toChannel(border(src, width, height, x, y), maxVal);
+        }
+        continue;
+      }
+      for (int x = left; x < right; x++) {
+        sums[x] = 0;
+      }
+      for (int i = 0; i < size; i++) {
+        int rowStart = (y - center + i) * width - center;
+        for (int j = 0; j < size; j++) {
+          double val = kernel[i * size + j];
+          int offset = rowStart + j;
+          for (int x = left; x < right; x++) {
+            sums[x] += val * (src[offset + x] & Image.MAX_CHANNEL_VALUE);
+          }
+        }
+      }
+      int rowOffset = y * width;
+      for (int x = left; x < right; x++) {
+        dst[rowOffset + x] = toChannel(sums[x], maxVal);
+      }
+      for (int x = 0; x < left; x++) {
+        dst[rowOffset + x] = toChannel(border(src, width, height, x, y), maxVal);
+      }
+      for (int x = right; x < width; x++) {
+        dst[rowOffset + x] = toChannel(border(src, width, height, x, y), maxVal);
+      }
+    }
+  }
+
+  /**
+   * Computes the filtered value of a pixel whose kernel may reach outside of the image.
+   *
+   * @param src    the source plane
+   * @param width  the width of the image
+   * @param height the height of the image
+   * @param x      the horizontal coordinate of the pixel
+   * @param y      the vertical coordinate of the pixel
+   * @return the weighted sum of the taps that fall inside the image
+   */
+  private double border(short[] src, int width, int height, int x, int y) {
+    double sum = 0;
+    for (int i = 0; i < size; i++) {
+      int moveY = y - center + i;
+      if (moveY < 0 || moveY >= height) {
+        continue;
+      }
+      for (int j = 0; j < size; j++) {
+        int moveX = x - center + j;
+        if (moveX >= 0 && moveX < width) {
+          sum += kernel[i * size + j] * (src[moveY * width + moveX] & Image.MAX_CHANNEL_VALUE);
+        }
+      }
+    }
+    return sum;
+  }
+
+  /**
+   * Truncates a weighted sum and clamps it into the range of a channel.
+   *
+   * @param sum    the weighted sum of a pixel
+   * @param maxVal the maximum color value
+   * @return the stored form of the clamped value
+   */
+  static short toChannel(double sum, int maxVal) {
+    return (short) ImageUtilAddition.clamp((int) sum, Math.min(maxVal, Image.MAX_CHANNEL_VALUE));
+  }
+}
@@ -0,0 +1,261 @@
+package model;
+
+import java.util.Arrays;
+
+/**
+ * The convolution engine used by Filtering for large kernels that are not separable. The image is
+ * cut into square tiles and every tile is convolved through a two-dimensional fast Fourier
+ * transform, so the cost per pixel grows with the logarithm of the kernel size instead of its
+ * square.
+ *
+ * <p>Each tile is read together with a margin of half a kernel on every side, with pixels outside
+ * the image read as zero, and only the part of the circular convolution that does not wrap around
+ * is kept. The result is therefore the same zero-padded convolution as Convolution computes, up to
+ * floating-point rounding. The kernel is real, so two channels are transformed at once as the real
+ * and imaginary parts of one complex tile.
+ */
+final class FftConvolution {
+
+  // a result this close to an integer is that integer, the transforms carry rounding errors
+  private static final double ROUNDING_SLACK = 1e-6;
+
+  private final int size; // the length of a side of the kernel
+  private final int center;
+  private final int fftSize; // the length of a side of a transformed tile, a power of two
+  private final int tileSize; // the length of a side of the output of one tile
+  private final double[] kernelRe; // the transform of the flipped kernel, transposed
+  private final double[] kernelIm;
+  private final double[] cos; // the twiddle factors of the transform
+  private final double[] sin;
+  private final int[] reversed; // the bit-reversal permutation of the transform
+
+  /**
+   * Constructs an FFT convolution engine for the given square kernel of odd size.
+   *
+   * @param kernel the kernel to apply
+   */
+  FftConvolution(double[][] kernel) {
+    this.size = kernel.length;
+    this.center = size / 2;
+    // large enough that most of each transform is kept as output
+    int n = 64;
+    while (n < 4 * size) {
+      n *= 2;
+    }
+    this.fftSize = n;
+    this.tileSize = n - size + 1;
+    this.cos = new double[n / 2];
+    this.sin = new double[n / 2];
+    for (int i = 0; i < n / 2; i++) {
+      cos[i] = Math.cos(2 * Math.PI * i / n);
+      sin[i] = Math.sin(2 * Math.PI * i / n);
+    }
+    this.reversed = new int[n];
+    int bits = Integer.numberOfTrailingZeros(n);
+    for (int i = 0; i < n; i++) {
+      reversed[i] = Integer.reverse(i) >>> (32 - bits);
+    }
+    // the filters weigh the pixels (correlation), which is a convolution with the flipped kernel
+    this.kernelRe = new double[n * n];
+    this.kernelIm = new double[n * n];
+    for (int i = 0; i < size; i++) {
+      for (int j = 0; j < size; j++) {
+        kernelRe[i * n + j] = kernel[size - 1 - i][size - 1 - j];
+      }
+    }
+    transform(kernelRe, kernelIm, size, false);
+  }
+
+  /**
+   * Convolves all channel planes of an image.
+   *
+   * @param src         the source planes
+   * @param dst         the planes receiving the filtered values
+   * @param width       the width of the image
+   * @param height      the height of the image
+   * @param maxVal      the maximum color value, results are clamped to it
+   * @param parallelism the maximum number of threads to use
+   */
+  void apply(short[][] src, short[][] dst, int width, int height, int maxVal, int parallelism) {
+    int tileRows = (height + tileSize - 1) / tileSize;
+    int tileColumns = (width + tileSize - 1) / tileSize;
+    RowBands.run(tileRows, 1, parallelism, (from, to) -> {
+      double[] re = new double[fftSize * fftSize];
+      double[] im = new double[fftSize * fftSize];
+      for (int tileY = from; tileY < to; tileY++) {
+        for (int tileX = 0; tileX < tileColumns; tileX++) {
+          int x0 = tileX * tileSize;
+          int y0 = tileY * tileSize;
+          // the red and green channels share one transform, blue uses the real part alone
+          for (int c = 0; c < Image.CHANNEL; c += 2) {
+            short[] second = c + 1 < Image.CHANNEL ? src[c + 1] : null;
+            convolveTile(src[c], second, re, im, width, height, x0, y0);
+            store(re, dst[c], width, height, maxVal, x0, y0);
+            if (second != null) {
+              store(im, dst[c + 1], width, height, maxVal, x0, y0);
+            }
+          }
+        }
+      }
+    });
+  }
+
+  /**
+   * Convolves one tile of up to two channel planes, leaving the results in the real and imaginary
+   * parts of the work arrays.
+   *
+   * @param first  the plane read into the real part
+   * @param second the plane read into the imaginary part, or null to leave it empty
+   * @param re     the real part of the work tile
+   * @param im     the imaginary part of the work tile
+   * @param width  the width of the image
+   * @param height the height of the image
+   * @param x0     the horizontal coordinate of the first pixel of the tile
+   * @param y0     the vertical coordinate of the first pixel of the tile
+   */
+  private void convolveTile(short[] first, short[] second, double[] re, double[] im, int width,
+      int height, int x0, int y0) {
+    int n = fftSize;
+    int used = Math.min(n, Math.min(tileSize, height - y0) + size - 1);
+    Arrays.fill(re, 0);
+    Arrays.fill(im, 0);
+    for (int i = 0; i < used; i++) {
+      int y = y0 - center + i;
+      if (y < 0 || y >= height) {
+        continue;
+      }
+      int fromX = Math.max(0, x0 - center);
+      int toX = Math.min(width, x0 - center + n);
+      for (int x = fromX; x < toX; x++) {
+        int index = i * n + x - (x0 - center);
+        re[index] = first[y * width + x] & Image.MAX_CHANNEL_VALUE;
+        if (second != null) {
+          im[index] = second[y * width + x] & Image.MAX_CHANNEL_VALUE;
+        }
+      }
+    }
+    transform(re, im, used, false);
+    for (int i = 0; i < n * n; i++) {
+      double r = re[i] * kernelRe[i] - im[i] * kernelIm[i];
+      im[i] = re[i] * kernelIm[i] + im[i] * kernelRe[i];
+      re[i] = r;
+    }
+    transform(re, im, n, true);
+  }
+
+  /**
+   * Copies the part of a convolved tile that lies inside the image into a channel plane.
+   *
+   * @param values the convolved tile
+   * @param dst    the plane receiving the filtered values
+   * @param width  the width of the image
+   * @param height the height of the image
+   * @param maxVal the maximum color value, results are clamped to it
+   * @param x0     the horizontal coordinate of the first pixel of the tile
+   * @param y0     the vertical coordinate of the first pixel of the tile
+   */
+  private void store(double[] values, short[] dst, int width, int height, int maxVal, int x0,
+      int y0) {
+    int rows = Math.min(tileSize, height - y0);
+    int columns = Math.min(tileSize, width - x0);
+    for (int v = 0; v < rows; v++) {
+      int offset = (v + size - 1) * fftSize + size - 1;
+      int rowOffset = (y0 + v) * width + x0;
+      for (int u = 0; u < columns; u++) {
+        double value = values[offset + u];
+        double nearest = Math.rint(value);
+        if (Math.abs(value - nearest) < ROUNDING_SLACK) {
+          value = nearest;
+        }
+        dst[rowOffset + u] = Convolution.toChannel(value, maxVal);
+      }
+    }
+  }
+
+  /**
+   * Transforms a square tile in place, row by row and then column by column with a transpose in
+   * between. The forward transform therefore leaves the tile transposed and the inverse transform
+   * expects a transposed tile, so the transposes cancel out between them.
+   *
+   * @param re      the real part of the tile
+   * @param im      the imaginary part of the tile
+   * @param rows    the number of leading rows that may hold non-zero values
+   * @param inverse true for the scaled inverse transform
+   */
+  private void transform(double[] re, double[] im, int rows, boolean inverse) {
+    int n = fftSize;
+    for (int i = 0; i < rows; i++) {
+      transformRow(re, im, i * n, inverse);
+    }
+    transpose(re);
+    transpose(im);
+    for (int i = 0; i < n; i++) {
+      transformRow(re, im, i * n, inverse);
+    }
+    if (inverse) {
+      double scale = 1.0 / ((double) n * n);
+      for (int i = 0; i < n * n; i++) {
+        re[i] *= scale;
+        im[i] *= scale;
+      }
+    }
+  }
+
+  /**
+   * Transforms one row of a tile in place with the iterative radix-2 algorithm.
+   *
+   * @param re      the real part of the tile
+   * @param im      the imaginary part of the tile
+   * @param offset  the index of the first value of the row
+   * @param inverse true for the unscaled inverse transform
+   */
+  private void transformRow(double[] re, double[] im, int offset, boolean inverse) {
+    int n = fftSize;
+    for (int i = 0; i < n; i++) {
+      int j = reversed[i];
+      if (i < j) {
+        double swap = re[offset + i];
+        re[offset + i] = re[offset + j];
+        re[offset + j] = swap;
+        swap = im[offset + i];
+        im[offset + i] = im[offset + j];
+        im[offset + j] = swap;
+      }
+    }
+    double sign = inverse ? 1 : -1;
+    for (int length = 2; length <= n; length *= 2) {
+      int half = length / 2;
+      int step = n / length;
+      for (int start = offset; start < offset + n; start += length) {
+        for (int k = 0; k < half; k++) {
+          double wr = cos[k * step];
+          double wi = sign * sin[k * step];
+          int a = start + k;
+          int b = a + half;
+          double tr = re[b] * wr - im[b] * wi;
+          double ti = re[b] * wi + im[b] * wr;
+          re[b] = re[a] - tr;
+          im[b] = im[a] - ti;
+          re[a] += tr;
+          im[a] += ti;
+        }
+      }
+    }
+  }
+
+  /**
+   * Transposes a square tile in place.
+   *
+   * @param values the tile to transpose
+   */
+  private void transpose(double[] values) {
+    int n = fftSize;
+    for (int i = 0; i < n; i++) {
+      for (int j = i + 1; j < n; j++) {
+        double swap = values[i * n + j];
+        values[i * n + j] = values[j * n + i];
+        values[j * n + i] = swap;
+      }
+    }
+  }
+}
@@ -1,28 +1,94 @@
 package model;
 
-import controller.ImageUtilAddition;
-
 /**
- * Represents the filtering operations that can be performed on an image.
+ * Represents the filtering operations that can be performed on an image. A filter can also be
+ * streamed over an image too large for memory, a strip of rows at a time.
  */
-public abstract class Filtering implements ImageEditors {
+public abstract class Filtering implements StreamingEditor {
+
+  // kernels that are not separable and at least this large are applied through FftConvolution
+  static final int FFT_KERNEL_SIZE = 15;
 
-  protected double[][] kernel;
+  protected double[][] kernel; // null when the filter is not given as a full kernel
+  private final int parallelism;
+  private final SeparableConvolution separable; // null when the kernel is not separable
 
   /**
-   * Constructs a filtering operation of the given kernel.
+   * Constructs a filtering operation of the given kernel that uses every available processor.
    *
    * @param kernel the kernel that will be applied to the image
    * @throws IllegalArgumentException if kernel is null or kernel is not valid
    */
   public Filtering(double[][] kernel) {
+    this(kernel, RowBands.defaultParallelism());
+  }
+
+  /**
+   * Constructs a filtering operation of the given kernel that splits the image into bands of rows
+   * filtered on up to the given number of threads. The result does not depend on the number of
+   * threads.
+   *
+   * @param kernel      the kernel that will be applied to the image
+   * @param parallelism the maximum number of threads to use, 1 filters on the calling thread
+   * @throws IllegalArgumentException if kernel is null or kernel is not valid or parallelism is
+   *                                  less than 1
+   */
+  public Filtering(double[][] kernel, int parallelism) {
     if (kernel == null) {
       throw new IllegalArgumentException("Kernel can't be null.");
     }
     if (!isValidKernel(kernel)) {
       throw new IllegalArgumentException("Invalid Kernel");
     }
+    if (parallelism < 1) {
+      throw new IllegalArgumentException("Parallelism must be at least 1.");
+    }
     this.kernel = kernel;
+    this.parallelism = parallelism;
+    this.separable = SeparableConvolution.detect(kernel);
+  }
+
+  /**
+   * Constructs a filtering operation whose subclass applies its own kernel by overriding apply,
+   * for kernels that are not stored as weights, like the sliding-window blurs.
+   *
+   * @param parallelism the maximum number of threads to use, 1 filters on the calling thread
+   * @throws IllegalArgumentException if parallelism is less than 1
+   */
+  protected Filtering(int parallelism) {
+    if (parallelism < 1) {
+      throw new IllegalArgumentException("Parallelism must be at least 1.");
+    }
+    this.kernel = null;
+    this.parallelism = parallelism;
+    this.separable = null;
+  }
+
+  /**
+   * Constructs a filtering operation of a separable kernel given as the column and row of weights
+   * whose outer product is the kernel. The kernel is applied as a horizontal pass followed by a
+   * vertical pass instead of a full 2D convolution.
+   *
+   * @param vertical    the column of weights, applied along the height of the image
+   * @param horizontal  the row of weights, applied along the width of the image
+   * @param parallelism the maximum number of threads to use, 1 filters on the calling thread
+   * @throws IllegalArgumentException if either array is null, the arrays differ in length, their
+   *                                  length is even or parallelism is less than 1
+   */
+  public Filtering(double[] vertical, double[] horizontal, int parallelism) {
+    if (vertical == null || horizontal == null) {
+      throw new IllegalArgumentException("Kernel can't be null.");
+    }
+    if (vertical.length != horizontal.length || vertical.length % 2 != 1) {
+      throw new IllegalArgumentException("Invalid Kernel");
+    }
+    if (parallelism < 1) {
+      throw new IllegalArgumentException("Parallelism must be at least 1.");
+    }
+    // the full kernel is never built, for large blurs it would take more memory than the image
+    this.kernel = null;
+    this.parallelism = parallelism;
+    this.separable = new SeparableConvolution(vertical, horizontal);
   }
 
   /**
@@ -35,16 +101,68 @@ public abstract class Filtering implements ImageEditors {
     if (img == null) {
       throw new IllegalArgumentException("Image cannot be null.");
     }
-    RGB[][] newPixels = new RGB[img.getHeight()][img.getWidth()];
-    for (int i = 0; i < img.getHeight(); i++) {
-      for (int j = 0; j < img.getWidth(); j++) {
-        RGB newRGB = applyKernel(img, j, i);
-        newPixels[i][j] = newRGB;
+    Image source = img.getImage();
+    int width = source.getWidth();
+    int height = source.getHeight();
+    int maxVal = source.getMaxValue();
+    short[][] result = new short[Image.CHANNEL][width * height];
+    if (separable != null) {
+      for (int c = 0; c < Image.CHANNEL; c++) {
+        separable.apply(source.plane(c), result[c], width, height, maxVal, parallelism);
       }
+      return new Image(width, height, result, maxVal);
     }
-    return new Image(newPixels, img.getMaxValue());
+    if (kernel == null) {
+      throw new IllegalStateException("This filter does not have a kernel to apply.");
+    }
+    if (kernel.length >= FFT_KERNEL_SIZE) {
+      short[][] planes = new short[Image.CHANNEL][];
+      for (int c = 0; c < Image.CHANNEL; c++) {
+        planes[c] = source.plane(c);
+      }
+      new FftConvolution(this.kernel).apply(planes, result, width, height, maxVal, parallelism);
+      return new Image(width, height, result, maxVal);
+    }
+    Convolution convolution = new Convolution(this.kernel);
+    RowBands.run(height, parallelism, (from, to) -> {
+      for (int c = 0; c < Image.CHANNEL; c++) {
+        convolution.apply(source.plane(c), result[c], width, height, maxVal, from, to);
+      }
+    });
+    return new Image(width, height, result, maxVal);
+  }
+
+  /**
+   * Applies the filter to the image a strip of rows at a time, reading the rows within reach of
+   * every strip along with it, and writes the result into the destination.
+   *
+   * @param img  the image to be edited
+   * @param dest the destination of the filtered image, of the size of the image
+   */
+  @Override
+  public void apply(ImageInterface img, RowWriter dest) {
+    if (img == null || dest == null) {
+      throw new IllegalArgumentException("Image cannot be null.");
+    }
+    Strips.edit(this, img, dest, reach());
   }
 
+  /**
+   * Gets the number of rows above and below a pixel that its filtered value depends on.
+   * Subclasses that apply their own kernel override this.
+   *
+   * @return the vertical radius of the kernel
+   * @throws IllegalStateException if this filter does not have a kernel
+   */
+  protected int reach() {
+    if (separable != null) {
+      return separable.radius();
+    }
+    if (kernel == null) {
+      throw new IllegalStateException("This filter does not have a kernel to apply.");
+    }
+    return kernel.length / 2;
+  }
 
   @Override
   public String toString() {
@@ -52,46 +170,14 @@ public abstract class Filtering implements ImageEditors {
   }
 
   /**
-   * Applies this kernel to its covered range of pixels.
+   * Gets the number of threads this filter may use.
    *
-   * @param img the image to be edited
-   * @param x   the horizontal coordinate of current pixel to be applied kernel
-   * @param y   the vertical coordinate of current pixel to be applied kernel
-   * @return the new color this pixel now have after applying kernel
+   * @return the maximum number of threads
    */
-  // uses the kernel to calculate each RGB values
-  private RGB applyKernel(ImageInterface img, int x, int y) {
-    // center of the kernel
-    int center = (this.kernel.length) / 2;
-    // position of the top-left corner of kernel on actual image
-    int imgX = x - center;
-    int imgY = y - center;
-    double red = 0;
-    double green = 0;
-    double blue = 0;
-    // each time kernel index increases by one (goes from top left to
-    // right), the index on the image will also go from top-left to right
-    for (int i = 0; i < this.kernel.length; i++) { // height
-      for (int j = 0; j < this.kernel.length; j++) { // width
-        // index moves with kernel index
-        int moveX = imgX + j;
-        int moveY = imgY + i;
-        if (moveX >= 0 && moveX < img.getWidth() &&
-            moveY >= 0 && moveY < img.getHeight()) {
-          double val = this.kernel[i][j];
-          red += val * (img.getPixel(moveX, moveY).getRed());
-          green += val * (img.getPixel(moveX, moveY).getGreen());
-          blue += val * (img.getPixel(moveX, moveY).getBlue());
-        }
-      }
-    }
-    int maxVal = img.getMaxValue();
-    return new RGB(ImageUtilAddition.clamp((int) red, maxVal),
-        ImageUtilAddition.clamp((int) green, maxVal),
-        ImageUtilAddition.clamp((int) blue, maxVal));
+  protected int getParallelism() {
+    return this.parallelism;
   }
 
-
   /**
    * Determines whether the kernel is a square with a center, thus a valid kernel.
    *
@@ -0,0 +1,156 @@
+package model;
+
+/**
+ * Performs an image operation that blurs the current image with a Gaussian of any standard
+ * deviation. Pixels outside of the image count as black, like in the other filters.
+ *
+ * <p>Small Gaussians are applied exactly as a separable kernel. Larger ones are approximated by
+ * three successive box blurs (whose combined shape is very close to a Gaussian), each done with
+ * sliding-window sums, so the cost per pixel does not depend on the standard deviation.
+ */
+public class GaussianBlur extends Filtering {
+
+  // above this kernel radius the three box blurs are cheaper than the exact kernel
+  private static final int EXACT_RADIUS = 3;
+  private static final int BOXES = 3;
+
+  private final double sigma;
+  private final SeparableConvolution exact; // null when the boxes are used
+
+  /**
+   * Constructs a Gaussian blur of the given standard deviation.
+   *
+   * @param sigma the standard deviation of the Gaussian in pixels
+   * @throws IllegalArgumentException if sigma is not positive
+   */
+  public GaussianBlur(double sigma) {
+    this(sigma, RowBands.defaultParallelism());
+  }
+
+  /**
+   * Constructs a Gaussian blur of the given standard deviation that runs on up to the given
+   * number of threads.
+   *
+   * @param sigma       the standard deviation of the Gaussian in pixels
+   * @param parallelism the maximum number of threads to use, 1 blurs on the calling thread
+   * @throws IllegalArgumentException if sigma is not positive or parallelism is less than 1
+   */
+  public GaussianBlur(double sigma, int parallelism) {
+    super(parallelism);
+    if (!(sigma > 0) || Double.isInfinite(sigma)) {
+      throw new IllegalArgumentException("Invalid standard deviation.");
+    }
+    this.sigma = sigma;
+    if (radius(sigma) <= EXACT_RADIUS) {
+      double[] weights = weights(sigma);
+      this.exact = new SeparableConvolution(weights, weights);
+    } else {
+      this.exact = null;
+    }
+  }
+
+  /**
+   * Samples the Gaussian of the given standard deviation up to three deviations away from the
+   * center.
+   *
+   * @param sigma the standard deviation of the Gaussian
+   * @return the normalized weights of the Gaussian
+   */
+  private static double[] weights(double sigma) {
+    int radius = radius(sigma);
+    double[] weights = new double[2 * radius + 1];
+    double total = 0;
+    for (int i = 0; i < weights.length; i++) {
+      int distance = i - radius;
+      weights[i] = Math.exp(-distance * distance / (2 * sigma * sigma));
+      total += weights[i];
+    }
+    for (int i = 0; i < weights.length; i++) {
+      weights[i] /= total;
+    }
+    return weights;
+  }
+
+  /**
+   * Gets the radius of the exact kernel of the given standard deviation.
+   *
+   * @param sigma the standard deviation of the Gaussian
+   * @return the radius covering three standard deviations
+   */
+  private static int radius(double sigma) {
+    return (int) Math.ceil(3 * sigma);
+  }
+
+  /**
+   * Gets the reach of the exact kernel, or of the three box blurs one after the other.
+   *
+   * @return the number of rows above and below a pixel that its blurred value depends on
+   */
+  @Override
+  protected int reach() {
+    if (exact != null) {
+      return exact.radius();
+    }
+    int reach = 0;
+    for (int radius : boxRadii(sigma)) {
+      reach += radius;
+    }
+    return reach;
+  }
+
+  @Override
+  public ImageInterface apply(ImageInterface img) {
+    if (img == null) {
+      throw new IllegalArgumentException("Image cannot be null.");
+    }
+    Image source = img.getImage();
+    int width = source.getWidth();
+    int height = source.getHeight();
+    int maxVal = source.getMaxValue();
+    int[] radii = boxRadii(sigma);
+    short[][] result = new short[Image.CHANNEL][];
+    for (int c = 0; c < Image.CHANNEL; c++) {
+      if (exact != null) {
+        result[c] = new short[width * height];
+        exact.apply(source.plane(c), result[c], width, height, maxVal, getParallelism());
+        continue;
+      }
+      double[] values = BoxConvolution.toDoubles(source.plane(c));
+      for (int radius : radii) {
+        BoxConvolution.blur(values, width, height, radius, getParallelism());
+      }
+      result[c] = new short[values.length];
+      for (int i = 0; i < values.length; i++) {
+        result[c][i] = BoxConvolution.toChannel(values[i], maxVal);
+      }
+    }
+    return new Image(width, height, result, maxVal);
+  }
+
+  /**
+   * Finds the radii of the box blurs whose succession has the given standard deviation. The
+   * boxes have one of two consecutive odd sizes, mixed so that their variances add up to sigma
+   * squared.
+   *
+   * @param sigma the standard deviation to approximate
+   * @return the radius of each box blur
+   */
+  private static int[] boxRadii(double sigma) {
+    double variance = sigma * sigma;
+    int lower = (int) Math.floor(Math.sqrt(12 * variance / BOXES + 1));
+    if (lower % 2 == 0) {
+      lower--;
+    }
+    int upper = lower + 2;
+    // number of boxes of the lower size
+    int lowerCount = (int) Math.round(
+        (12 * variance - BOXES * lower * lower - 4 * BOXES * lower - 3 * BOXES)
+            / (-4.0 * lower - 4));
+    int[] radii = new int[BOXES];
+    for (int i = 0; i < BOXES; i++) {
+      int size = i < lowerCount ? lower : upper;
+      radii[i] = (size - 1) / 2;
+    }
+    return radii;
+  }
+}
@@ -0,0 +1,627 @@
+package model;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * The undo and redo history of a layered model. Every step records the state of all the layers
+ * after a change: their visibility, opacity, blend mode and image, and which layer is current.
+ *
+ * <p>Images are not kept as they are. An image is split into square tiles compressed with
+ * Deflate; an image the same size as the one the layer had in the previous step only stores the
+ * tiles that changed and refers to the previous image for the rest, with a full copy every few
+ * steps so that restoring never goes back too far. An image shared with the previous step, as
+ * the images of the layers a change does not touch, is not stored again. The operations applied
+ * to the current layer that the lazy model has not computed yet are recorded as the operations
+ * themselves and computed again from the image they start from when the step is restored.
+ *
+ * <p>The compressed tiles of all the steps are kept within a memory budget: when a new step goes
+ * over it, the oldest steps are forgotten until it fits. Recording a step already forgets the
+ * steps that could be redone, and the step being shown is always kept. Restored layers are
+ * handed to the caller and not kept, so only the compressed tiles count against the budget.
+ */
+final class History {
+
+  private static final int TILE_SIZE = 64;
+  // a full copy is stored instead of changed tiles once an image is this many deltas away from one
+  private static final int CHECKPOINT_INTERVAL = 16;
+
+  /**
+   * The image of a layer as recorded in the history.
+   */
+  private interface Record {
+
+    /**
+     * Gets the stored image this record is computed from.
+     *
+     * @return the stored image
+     */
+    Stored stored();
+
+    /**
+     * Computes the recorded image from its stored image.
+     *
+     * @param stored the stored image, restored
+     * @return the recorded image
+     */
+    ImageInterface from(ImageInterface stored);
+  }
+
+  /**
+   * An image stored as compressed tiles, all of them or only the ones that differ from a base.
+   */
+  private static final class Stored implements Record {
+
+    private final int width;
+    private final int height;
+    private final int maxValue;
+    private Stored base; // the image the missing tiles come from, null when every tile is here
+    private byte[][] tiles; // compressed tiles in row order, null where the base has them
+    private int depth; // the number of bases before a full copy
+
+    /**
+     * Stores every tile of an image.
+     *
+     * @param img the image
+     */
+    private Stored(Image img) {
+      this(img, null, null);
+    }
+
+    /**
+     * Stores the tiles of an image that differ from the previous image of the layer.
+     *
+     * @param img      the image
+     * @param previous the previous image, the same size as this one
+     * @param base     the record of the previous image
+     */
+    private Stored(Image img, Image previous, Stored base) {
+      this.width = img.getWidth();
+      this.height = img.getHeight();
+      this.maxValue = img.getMaxValue();
+      this.base = base;
+      this.depth = base == null ? 0 : base.depth + 1;
+      this.tiles = compress(img, previous);
+    }
+
+    /**
+     * Determines whether a new image can be stored as the tiles changed from this one.
+     *
+     * @param img the new image
+     * @return true if the image has the same size and maximum value and this is not too many
+     *         deltas away from a full copy
+     */
+    private boolean canBeBaseOf(Image img) {
+      return img.getWidth() == width && img.getHeight() == height
+          && img.getMaxValue() == maxValue && depth < CHECKPOINT_INTERVAL;
+    }
+
+    @Override
+    public Stored stored() {
+      return this;
+    }
+
+    @Override
+    public ImageInterface from(ImageInterface stored) {
+      return stored;
+    }
+
+    /**
+     * Decompresses the image, taking every tile from the newest record that has it.
+     *
+     * @return the image
+     */
+    private Image restore() {
+      short[][] planes = new short[Image.CHANNEL][width * height];
+      BitSet filled = new BitSet(tiles.length);
+      Inflater inflater = new Inflater();
+      try {
+        for (Stored record = this; record != null; record = record.base) {
+          for (int t = 0; t < tiles.length; t++) {
+            if (!filled.get(t) && record.tiles[t] != null) {
+              inflate(inflater, record.tiles[t], planes, t);
+              filled.set(t);
+            }
+          }
+        }
+      } finally {
+        inflater.end();
+      }
+      return new Image(width, height, planes, maxValue);
+    }
+
+    /**
+     * Adds this record and the records it depends on to the given set.
+     *
+     * @param stored the set of stored images
+     */
+    private void collect(Set<Stored> stored) {
+      for (Stored record = this; record != null && stored.add(record); record = record.base) {
+        // the bases are added by the loop
+      }
+    }
+
+    /**
+     * Stores every tile here, so this record no longer depends on the records before it.
+     */
+    private void flatten() {
+      if (base != null) {
+        this.tiles = compress(restore(), null);
+        this.base = null;
+        this.depth = 0;
+      }
+    }
+
+    /**
+     * Gets the number of bytes the compressed tiles of this record take.
+     *
+     * @return the number of bytes
+     */
+    private long bytes() {
+      long bytes = 0;
+      for (byte[] tile : tiles) {
+        bytes += tile == null ? 0 : tile.length;
+      }
+      return bytes;
+    }
+
+    /**
+     * Compresses the tiles of an image that differ from another image.
+     *
+     * @param img      the image
+     * @param previous the image to compare with, null to compress every tile
+     * @return the compressed tiles in row order, null for the tiles that did not change
+     */
+    private byte[][] compress(Image img, Image previous) {
+      int across = (width + TILE_SIZE - 1) / TILE_SIZE;
+      int down = (height + TILE_SIZE - 1) / TILE_SIZE;
+      byte[][] result = new byte[across * down][];
+      Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+      try {
+        for (int t = 0; t < result.length; t++) {
+          if (previous == null || !sameTile(img, previous, t)) {
+            result[t] = deflate(deflater, img, t);
+          }
+        }
+      } finally {
+        deflater.end();
+      }
+      return result;
+    }
+
+    /**
+     * Gets the bounds of a tile.
+     *
+     * @param t the index of the tile in row order
+     * @return the left, top, right and bottom edges of the tile, right and bottom exclusive
+     */
+    private int[] bounds(int t) {
+      int across = (width + TILE_SIZE - 1) / TILE_SIZE;
+      int x0 = t % across * TILE_SIZE;
+      int y0 = t / across * TILE_SIZE;
+      return new int[]{x0, y0, Math.min(width, x0 + TILE_SIZE), Math.min(height, y0 + TILE_SIZE)};
+    }
+
+    /**
+     * Determines whether a tile is the same in two images of the same size.
+     *
+     * @param a the first image
+     * @param b the second image
+     * @param t the index of the tile
+     * @return true if every value of the tile is the same
+     */
+    private boolean sameTile(Image a, Image b, int t) {
+      int[] bounds = bounds(t);
+      for (int c = 0; c < Image.CHANNEL; c++) {
+        short[] planeA = a.plane(c);
+        short[] planeB = b.plane(c);
+        for (int y = bounds[1]; y < bounds[3]; y++) {
+          int row = y * width;
+          for (int x = bounds[0]; x < bounds[2]; x++) {
+            if (planeA[row + x] != planeB[row + x]) {
+              return false;
+            }
+          }
+        }
+      }
+      return true;
+    }
+
+    /**
+     * Compresses one tile of an image, its three channels one after the other.
+     *
+     * @param deflater the compressor to use
+     * @param img      the image
+     * @param t        the index of the tile
+     * @return the compressed tile
+     */
+    private byte[] deflate(Deflater deflater, Image img, int t) {
+      int[] bounds = bounds(t);
+      int tileWidth = bounds[2] - bounds[0];
+      ByteBuffer raw = ByteBuffer.allocate(
+          Image.CHANNEL * tileWidth * (bounds[3] - bounds[1]) * Short.BYTES);
+      for (int c = 0; c < Image.CHANNEL; c++) {
+        short[] plane = img.plane(c);
+        for (int y = bounds[1]; y < bounds[3]; y++) {
+          raw.asShortBuffer().put(plane, y * width + bounds[0], tileWidth);
+          raw.position(raw.position() + tileWidth * Short.BYTES);
+        }
+      }
+      deflater.reset();
+      deflater.setInput(raw.array());
+      deflater.finish();
+      byte[] buffer = new byte[raw.capacity() / 2 + 64];
+      int length = 0;
+      while (!deflater.finished()) {
+        if (length == buffer.length) {
+          buffer = Arrays.copyOf(buffer, buffer.length * 2);
+        }
+        length += deflater.deflate(buffer, length, buffer.length - length);
+      }
+      return Arrays.copyOf(buffer, length);
+    }
+
+    /**
+     * Decompresses one tile into the planes of an image.
+     *
+     * @param inflater the decompressor to use
+     * @param tile     the compressed tile
+     * @param planes   the planes of the image
+     * @param t        the index of the tile
+     */
+    private void inflate(Inflater inflater, byte[] tile, short[][] planes, int t) {
+      int[] bounds = bounds(t);
+      int tileWidth = bounds[2] - bounds[0];
+      ByteBuffer raw = ByteBuffer.allocate(
+          Image.CHANNEL * tileWidth * (bounds[3] - bounds[1]) * Short.BYTES);
+      inflater.reset();
+      inflater.setInput(tile);
+      try {
+        while (raw.position() < raw.capacity()) {
+          int read = inflater.inflate(raw.array(), raw.position(), raw.remaining());
+          if (read == 0 && (inflater.finished() || inflater.needsInput())) {
+            throw new IllegalStateException("A tile of the history is corrupted.");
+          }
+          raw.position(raw.position() + read);
+        }
+      } catch (DataFormatException e) {
+        throw new IllegalStateException("A tile of the history is corrupted.");
+      }
+      raw.rewind();
+      for (int c = 0; c < Image.CHANNEL; c++) {
+        for (int y = bounds[1]; y < bounds[3]; y++) {
+          raw.asShortBuffer().get(planes[c], y * width + bounds[0], tileWidth);
+          raw.position(raw.position() + tileWidth * Short.BYTES);
+        }
+      }
+    }
+  }
+
+  /**
+   * An image recorded as operations to apply again to a stored image.
+   */
+  private static final class Derived implements Record {
+
+    private final Stored base;
+    private final OperationChain operations;
+
+    private Derived(Stored base, List<ImageEditors> operations) {
+      this.base = base;
+      this.operations = new OperationChain(operations);
+    }
+
+    @Override
+    public Stored stored() {
+      return base;
+    }
+
+    @Override
+    public ImageInterface from(ImageInterface stored) {
+      return operations.apply(stored);
+    }
+  }
+
+  /**
+   * A layer as recorded in a step.
+   */
+  private static final class LayerRecord {
+
+    private final Record image; // null for an empty layer
+    private final boolean visible;
+    private final double opacity;
+    private final BlendMode mode;
+
+    private LayerRecord(Record image, ILayer layer) {
+      this.image = image;
+      this.visible = layer.getVisibility();
+      this.opacity = layer.getOpacity();
+      this.mode = layer.getBlendMode();
+    }
+  }
+
+  /**
+   * The state of all the layers after a change.
+   */
+  private static final class Step {
+
+    private final List<LayerRecord> layers;
+    private final int current; // the index of the current layer, -1 when there is none
+
+    private Step(List<LayerRecord> layers, int current) {
+      this.layers = layers;
+      this.current = current;
+    }
+  }
+
+  /**
+   * The layers of a step restored as new layers, to replace the layers of the model.
+   */
+  static final class Restored {
+
+    private final List<ILayer> layers;
+    private final int current;
+
+    private Restored(List<ILayer> layers, int current) {
+      this.layers = Collections.unmodifiableList(layers);
+      this.current = current;
+    }
+
+    /**
+     * Gets the restored layers.
+     *
+     * @return the layers, from the bottom one
+     */
+    List<ILayer> getLayers() {
+      return layers;
+    }
+
+    /**
+     * Gets the index of the current layer of the step.
+     *
+     * @return the index of the current layer, -1 when there is none
+     */
+    int getCurrent() {
+      return current;
+    }
+  }
+
+  private final long budget;
+  private final List<Step> steps;
+  private int position; // the index of the step being shown, -1 before the first step
+  // the stored images of the layers of the step being shown and what they stand for, null for an
+  // empty layer
+  private List<Stored> stored;
+  private List<ImageInterface> images;
+
+  /**
+   * Constructs an empty history keeping its steps within the given number of bytes.
+   *
+   * @param budget the number of bytes the compressed images of all the steps may take
+   * @throws IllegalArgumentException if the budget is negative
+   */
+  History(long budget) {
+    if (budget < 0) {
+      throw new IllegalArgumentException("History budget can't be negative.");
+    }
+    this.budget = budget;
+    this.steps = new ArrayList<>();
+    this.position = -1;
+    this.stored = new ArrayList<>();
+    this.images = new ArrayList<>();
+  }
+
+  /**
+   * Records the state of the layers after a change as a new step. The steps that could be redone
+   * are forgotten.
+   *
+   * @param layers  the layers, from the bottom one
+   * @param current the current layer, null when there is none
+   * @param pending the operations applied to the current layer that are not in its image yet
+   */
+  void record(List<ILayer> layers, ILayer current, List<ImageEditors> pending) {
+    Map<ImageInterface, Stored> known = new IdentityHashMap<>();
+    for (int i = 0; i < images.size(); i++) {
+      if (images.get(i) != null) {
+        known.put(images.get(i), stored.get(i));
+      }
+    }
+    List<LayerRecord> records = new ArrayList<>();
+    List<Stored> recordedStored = new ArrayList<>();
+    List<ImageInterface> recordedImages = new ArrayList<>();
+    for (int i = 0; i < layers.size(); i++) {
+      ILayer layer = layers.get(i);
+      ImageInterface img = layer.isEmpty() ? null : layer.getImage();
+      Stored record = null;
+      if (img != null) {
+        record = known.get(img);
+        if (record == null) {
+          record = store(img, i);
+          known.put(img, record);
+        }
+      }
+      if (img != null && layer == current && !pending.isEmpty()) {
+        records.add(new LayerRecord(new Derived(record, pending), layer));
+      } else {
+        records.add(new LayerRecord(record, layer));
+      }
+      recordedStored.add(record);
+      recordedImages.add(img);
+    }
+    steps.subList(position + 1, steps.size()).clear();
+    steps.add(new Step(records, layers.indexOf(current)));
+    this.position = steps.size() - 1;
+    this.stored = recordedStored;
+    this.images = recordedImages;
+    trim();
+  }
+
+  /**
+   * Determines whether there is a step before the one being shown.
+   *
+   * @return true if a step can be undone
+   */
+  boolean canUndo() {
+    return position > 0;
+  }
+
+  /**
+   * Determines whether there is a step after the one being shown.
+   *
+   * @return true if a step can be redone
+   */
+  boolean canRedo() {
+    return position < steps.size() - 1;
+  }
+
+  /**
+   * Goes back to the step before the one being shown.
+   *
+   * @return the layers of the step to show
+   * @throws IllegalStateException if there is no step to undo
+   */
+  Restored undo() {
+    if (!canUndo()) {
+      throw new IllegalStateException("Nothing to undo.");
+    }
+    return show(position - 1);
+  }
+
+  /**
+   * Goes forward to the step after the one being shown.
+   *
+   * @return the layers of the step to show
+   * @throws IllegalStateException if there is no step to redo
+   */
+  Restored redo() {
+    if (!canRedo()) {
+      throw new IllegalStateException("Nothing to redo.");
+    }
+    return show(position + 1);
+  }
+
+  /**
+   * Gets the number of bytes the compressed images of all the steps take.
+   *
+   * @return the number of bytes
+   */
+  long usedBytes() {
+    Set<Stored> all = Collections.newSetFromMap(new IdentityHashMap<>());
+    for (Step step : steps) {
+      for (LayerRecord layer : step.layers) {
+        if (layer.image != null) {
+          layer.image.stored().collect(all);
+        }
+      }
+    }
+    long bytes = 0;
+    for (Stored record : all) {
+      bytes += record.bytes();
+    }
+    return bytes;
+  }
+
+  /**
+   * Stores a new image of a layer, as the tiles changed from the image the layer had in the step
+   * being shown when possible.
+   *
+   * @param img   the image
+   * @param index the index of the layer
+   * @return the stored image
+   */
+  private Stored store(ImageInterface img, int index) {
+    Image image = img.getImage();
+    if (index < images.size() && images.get(index) != null) {
+      Stored previous = stored.get(index);
+      if (previous.canBeBaseOf(image)) {
+        return new Stored(image, images.get(index).getImage(), previous);
+      }
+    }
+    return new Stored(image);
+  }
+
+  /**
+   * Tells the history that an image of the step being shown was replaced by another one holding
+   * the same pixels, as when a layer is paged out, so that it is not stored again.
+   *
+   * @param before the image replaced
+   * @param after  the image holding the same pixels
+   */
+  void replaced(ImageInterface before, ImageInterface after) {
+    for (int i = 0; i < images.size(); i++) {
+      if (images.get(i) == before) {
+        images.set(i, after);
+      }
+    }
+  }
+
+  /**
+   * Restores the layers of a step and makes it the step being shown. The images the step shares
+   * with the step shown before are reused instead of being restored again.
+   *
+   * @param index the index of the step
+   * @return the layers of the step, which the history does not keep
+   */
+  private Restored show(int index) {
+    Map<Stored, ImageInterface> shown = new IdentityHashMap<>();
+    for (int i = 0; i < images.size(); i++) {
+      if (images.get(i) != null) {
+        shown.put(stored.get(i), images.get(i));
+      }
+    }
+    Step step = steps.get(index);
+    List<ILayer> restored = new ArrayList<>();
+    List<Stored> restoredStored = new ArrayList<>();
+    List<ImageInterface> restoredImages = new ArrayList<>();
+    for (LayerRecord record : step.layers) {
+      Layer layer = new Layer();
+      Stored base = null;
+      ImageInterface img = null;
+      if (record.image != null) {
+        base = record.image.stored();
+        img = shown.get(base);
+        if (img == null) {
+          img = base.restore();
+          shown.put(base, img);
+        }
+        layer.setImage(record.image.from(img));
+      }
+      layer.setVisibility(record.visible);
+      layer.setOpacity(record.opacity);
+      layer.setBlendMode(record.mode);
+      restored.add(layer);
+      restoredStored.add(base);
+      restoredImages.add(img);
+    }
+    this.position = index;
+    this.stored = restoredStored;
+    this.images = restoredImages;
+    return new Restored(restored, step.current);
+  }
+
+  /**
+   * Forgets the oldest steps until the history fits in its budget or only the step being shown is
+   * left. It is called right after a step is recorded, when no step can be redone.
+   */
+  private void trim() {
+    while (position > 0 && usedBytes() > budget) {
+      steps.remove(0);
+      this.position--;
+      // the new oldest step must not depend on the step just forgotten
+      for (LayerRecord layer : steps.get(0).layers) {
+        if (layer.image != null) {
+          layer.image.stored().flatten();
+        }
+      }
+    }
+  }
+}
@@ -40,4 +40,34 @@ public interface ILayer {
    * @return a boolean
    */
   boolean isEmpty();
+
+  /**
+   * Sets how much of the layer shows over the layers below it when the layers are composited.
+   *
+   * @param opacity the opacity, from 0 (transparent) to 1 (opaque)
+   * @throws IllegalArgumentException if the opacity is not between 0 and 1
+   */
+  void setOpacity(double opacity);
+
+  /**
+   * Gets the opacity of this layer.
+   *
+   * @return the opacity, from 0 (transparent) to 1 (opaque)
+   */
+  double getOpacity();
+
+  /**
+   * Sets how the layer is mixed with the layers below it when the layers are composited.
+   *
+   * @param mode the blend mode
+   * @throws IllegalArgumentException if the mode is null
+   */
+  void setBlendMode(BlendMode mode);
+
+  /**
+   * Gets the blend mode of this layer.
+   *
+   * @return the blend mode
+   */
+  BlendMode getBlendMode();
 }
@@ -3,12 +3,24 @@ package model;
 import java.util.Arrays;
 
 /**
- * Represents a 2D image made of pixels.
+ * Represents a 2D image made of pixels. The pixels are stored as three planar channel arrays
+ * (red, green and blue) of unsigned 16-bit values in row-major order, so no RGB object is kept
+ * per pixel. An image is immutable, so its planes can be shared with other images and buffers
+ * instead of being copied.
+ *
+ * <p>An image also caches its mipmap pyramid, the successive reductions to half its size, which is
+ * built level by level the first time a downscale needs it.
  */
 public class Image implements ImageInterface {
 
-  private final RGB[][] pixels;
+  static final int CHANNEL = 3;
+  static final int MAX_CHANNEL_VALUE = 0xFFFF;
+
+  private final int width;
+  private final int height;
+  private final short[][] channels;
   private final int maxVal;
+  private volatile Image half; // the next level of the mipmap pyramid, null until first needed
 
   /**
    * Construct an image with the given pixels and a set maximum color value.
@@ -20,14 +32,9 @@ public class Image implements ImageInterface {
     if (pixels == null || !validPixels(pixels)) {
       throw new IllegalArgumentException("Pixels can't be null.");
     }
-    RGB[][] copy = new RGB[pixels.length][pixels[0].length];
-    for (int i = 0; i < pixels.length; i++) {
-      for (int j = 0; j < pixels[0].length; j++) {
-        copy[i][j] = new RGB(pixels[i][j].getRed(), pixels[i][j].getGreen(),
-            pixels[i][j].getBlue());
-      }
-    }
-    this.pixels = copy;
+    this.height = pixels.length;
+    this.width = pixels[0].length;
+    this.channels = pack(pixels);
     this.maxVal = 255;
   }
 
@@ -42,28 +49,35 @@ public class Image implements ImageInterface {
     if (pixels == null || !validPixels(pixels) || maxVal < 0) {
       throw new IllegalArgumentException("Input Invalid");
     }
-    RGB[][] copy = new RGB[pixels.length][pixels[0].length];
-    for (int i = 0; i < pixels.length; i++) {
-      for (int j = 0; j < pixels[0].length; j++) {
-        copy[i][j] = new RGB(pixels[i][j].getRed(), pixels[i][j].getGreen(),
-            pixels[i][j].getBlue());
-      }
-    }
-    this.pixels = copy;
+    this.height = pixels.length;
+    this.width = pixels[0].length;
+    this.channels = pack(pixels);
+    this.maxVal = maxVal;
+  }
+
+  /**
+   * Constructs an image that takes ownership of the given channel planes without copying them.
+   * Only used by the classes of this package that have just filled the planes themselves.
+   *
+   * @param width    the width of the image
+   * @param height   the height of the image
+   * @param channels the red, green and blue planes, each of length width * height
+   * @param maxVal   the maximum RGB value of the image
+   */
+  Image(int width, int height, short[][] channels, int maxVal) {
+    this.width = width;
+    this.height = height;
+    this.channels = channels;
     this.maxVal = maxVal;
   }
 
 
   @Override
   public RGB[][] getPixels() {
-    if (this.pixels == null || !validPixels(this.pixels)) {
-      throw new IllegalStateException("No pixels loaded in this image.");
-    }
-    RGB[][] copy = new RGB[pixels.length][pixels[0].length];
-    for (int i = 0; i < pixels.length; i++) {
-      for (int j = 0; j < pixels[0].length; j++) {
-        copy[i][j] = new RGB(pixels[i][j].getRed(), pixels[i][j].getGreen(),
-            pixels[i][j].getBlue());
+    RGB[][] copy = new RGB[height][width];
+    for (int i = 0; i < height; i++) {
+      for (int j = 0; j < width; j++) {
+        copy[i][j] = this.getPixel(j, i);
       }
     }
     return copy;
@@ -79,24 +93,49 @@ public class Image implements ImageInterface {
    */
   @Override
   public RGB getPixel(int x, int y) {
-    if (y >= 0 && y < pixels.length && x >= 0 && x < pixels[y].length) {
-      return pixels[y][x];
+    if (y >= 0 && y < height && x >= 0 && x < width) {
+      int index = y * width + x;
+      return new RGB(channels[0][index] & MAX_CHANNEL_VALUE,
+          channels[1][index] & MAX_CHANNEL_VALUE, channels[2][index] & MAX_CHANNEL_VALUE);
     } else {
       throw new IllegalArgumentException("Index out of bounds.");
     }
   }
 
+  @Override
+  public int getChannel(int x, int y, int channel) {
+    if (y < 0 || y >= height || x < 0 || x >= width) {
+      throw new IllegalArgumentException("Index out of bounds.");
+    }
+    if (channel < 0 || channel >= CHANNEL) {
+      throw new IllegalArgumentException("Invalid index.");
+    }
+    return channels[channel][y * width + x] & MAX_CHANNEL_VALUE;
+  }
+
+  @Override
+  public void getRow(int y, int channel, int[] dest) {
+    if (y < 0 || y >= height || channel < 0 || channel >= CHANNEL) {
+      throw new IllegalArgumentException("Index out of bounds.");
+    }
+    if (dest == null || dest.length < width) {
+      throw new IllegalArgumentException("Destination row is too small.");
+    }
+    short[] plane = channels[channel];
+    int offset = y * width;
+    for (int j = 0; j < width; j++) {
+      dest[j] = plane[offset + j] & MAX_CHANNEL_VALUE;
+    }
+  }
+
   @Override
   public int getHeight() {
-    return this.pixels.length;
+    return this.height;
   }
 
   @Override
   public int getWidth() {
-    if (pixels.length > 0) {
-      return pixels[0].length;
-    }
-    return 0;
+    return this.width;
   }
 
 
@@ -110,19 +149,6 @@ public class Image implements ImageInterface {
     return this.maxVal;
   }
 
-  /*
-  @Override
-  public String toString() {
-    StringBuilder s = new StringBuilder();
-    for (int i = 0; i < height; i++) {
-      for (int j = 0; j < width; j++) {
-        s.append(pixels[i][j].toString());
-      }
-    }
-    return s.toString();
-  }
-*/
-
   /**
    * Determines whether the given pixels is valid.
    *
@@ -135,7 +161,7 @@ public class Image implements ImageInterface {
       result = false;
     }
     for (RGB[] row : pixels) {
-      if (row.length != pixels[0].length || row.length == 0) {
+      if (row == null || row.length != pixels[0].length || row.length == 0) {
         result = false;
         break;
       }
@@ -149,6 +175,42 @@ public class Image implements ImageInterface {
     return result;
   }
 
+  /**
+   * Copies the given pixels into three planar channel arrays.
+   *
+   * @param pixels the valid, rectangular pixels of the image
+   * @return the red, green and blue planes of the pixels
+   * @throws IllegalArgumentException if a color value does not fit in 16 bits
+   */
+  private static short[][] pack(RGB[][] pixels) {
+    int width = pixels[0].length;
+    short[][] planes = new short[CHANNEL][pixels.length * width];
+    for (int i = 0; i < pixels.length; i++) {
+      for (int j = 0; j < width; j++) {
+        RGB color = pixels[i][j];
+        int index = i * width + j;
+        planes[0][index] = toChannel(color.getRed());
+        planes[1][index] = toChannel(color.getGreen());
+        planes[2][index] = toChannel(color.getBlue());
+      }
+    }
+    return planes;
+  }
+
+  /**
+   * Converts a color value into its stored 16-bit form.
+   *
+   * @param value the color value
+   * @return the color value as an unsigned short
+   * @throws IllegalArgumentException if the value is negative or does not fit in 16 bits
+   */
+  static short toChannel(int value) {
+    if ((value & ~MAX_CHANNEL_VALUE) != 0) {
+      throw new IllegalArgumentException("Invalid color values.");
+    }
+    return (short) value;
+  }
+
   /**
    * Format an image into PPM format ready to export.
    *
@@ -159,32 +221,67 @@ public class Image implements ImageInterface {
     content.append(this.getHeight()).append(" ");
     content.append(this.getWidth()).append("\n");
     content.append(this.maxVal).append("\n");
-    for (int i = 0; i < this.getHeight(); i++) {
-      for (int j = 0; j < this.getWidth(); j++) {
-        RGB color = this.getPixel(j, i);
-        int red = color.getRed();
-        int green = color.getGreen();
-        int blue = color.getBlue();
-        content.append(red).append("\n");
-        content.append(green).append("\n");
-        content.append(blue).append("\n");
-      }
+    for (int i = 0; i < width * height; i++) {
+      content.append(channels[0][i] & MAX_CHANNEL_VALUE).append("\n");
+      content.append(channels[1][i] & MAX_CHANNEL_VALUE).append("\n");
+      content.append(channels[2][i] & MAX_CHANNEL_VALUE).append("\n");
     }
     return content.toString();
   }
 
+  /**
+   * Gets this image. An image never changes after it is constructed, so it is returned as it is
+   * instead of being copied.
+   *
+   * @return this image
+   */
   @Override
   public Image getImage() {
-    return new Image(this.pixels, this.maxVal);
+    return this;
+  }
+
+  /**
+   * Gets the channel plane of the given color index. The plane is shared, never modify it.
+   *
+   * @param channel the color index (0-red 1-green 2-blue)
+   * @return the row-major plane of that channel
+   */
+  short[] plane(int channel) {
+    return this.channels[channel];
+  }
+
+  /**
+   * Gets this image reduced to half its size, every new pixel averaging the area it covers. The
+   * reduction is computed once and kept with the image, so repeated downscales of the same image
+   * share it.
+   *
+   * @return the next level of the mipmap pyramid of this image
+   */
+  Image halved() {
+    Image result = half;
+    if (result == null) {
+      synchronized (this) {
+        result = half;
+        if (result == null) {
+          result = Resampler.resample(this, Math.max(1, width / 2), Math.max(1, height / 2),
+              ResampleFilter.BOX, RowBands.defaultParallelism());
+          half = result;
+        }
+      }
+    }
+    return result;
   }
 
 
   @Override
   public boolean equals(Object obj) {
     if (obj instanceof Image) {
-      return Arrays.deepEquals(this.pixels, ((Image) obj).pixels)
-          && this.getHeight() == ((Image) obj).getHeight()
-          && this.getWidth() == ((Image) obj).getWidth() && this.maxVal == ((Image) obj).maxVal;
+      Image other = (Image) obj;
+      return this.height == other.height && this.width == other.width
+          && this.maxVal == other.maxVal && Arrays.deepEquals(this.channels, other.channels);
+    } else if (obj instanceof TiledImage || obj instanceof BandedImage) {
+      // the same pixels stored another way
+      return obj.equals(this);
     } else {
       return false;
     }
@@ -192,6 +289,84 @@ public class Image implements ImageInterface {
 
   @Override
   public int hashCode() {
-    return Arrays.deepHashCode(this.pixels) * this.getHeight() * this.getWidth() * this.maxVal;
+    return Arrays.deepHashCode(this.channels) * this.getHeight() * this.getWidth() * this.maxVal;
+  }
+
+  /**
+   * Determines whether two images have the same size, maximum value and pixels, comparing them
+   * one row at a time. Used by the images of this package that are equal to an Image holding the
+   * same pixels.
+   *
+   * @param a the first image
+   * @param b the second image
+   * @return true if both hold the same pixels
+   */
+  static boolean sameRows(ImageInterface a, ImageInterface b) {
+    int width = a.getWidth();
+    if (b.getWidth() != width || b.getHeight() != a.getHeight()
+        || b.getMaxValue() != a.getMaxValue()) {
+      return false;
+    }
+    int[] row = new int[width];
+    int[] otherRow = new int[width];
+    for (int c = 0; c < CHANNEL; c++) {
+      for (int y = 0; y < a.getHeight(); y++) {
+        a.getRow(y, c, row);
+        b.getRow(y, c, otherRow);
+        if (!Arrays.equals(row, otherRow)) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Computes the hash code an Image holding the pixels of the given image has, one row at a time.
+   *
+   * @param img the image
+   * @return the hash code
+   */
+  static int rowHash(ImageInterface img) {
+    int[] row = new int[img.getWidth()];
+    int planes = 1;
+    for (int c = 0; c < CHANNEL; c++) {
+      // the hash of the plane of the channel, as Arrays.hashCode of its short values
+      int plane = 1;
+      for (int y = 0; y < img.getHeight(); y++) {
+        img.getRow(y, c, row);
+        for (int value : row) {
+          plane = 31 * plane + toChannel(value);
+        }
+      }
+      planes = 31 * planes + plane;
+    }
+    return planes * img.getHeight() * img.getWidth() * img.getMaxValue();
+  }
+
+  /**
+   * Formats an image the way toString formats an Image, one row at a time.
+   *
+   * @param img the image
+   * @return a PPM format string with the content of the image
+   */
+  static String format(ImageInterface img) {
+    int width = img.getWidth();
+    StringBuilder content = new StringBuilder();
+    content.append(img.getHeight()).append(" ");
+    content.append(width).append("\n");
+    content.append(img.getMaxValue()).append("\n");
+    int[][] rows = new int[CHANNEL][width];
+    for (int y = 0; y < img.getHeight(); y++) {
+      for (int c = 0; c < CHANNEL; c++) {
+        img.getRow(y, c, rows[c]);
+      }
+      for (int x = 0; x < width; x++) {
+        content.append(rows[0][x]).append("\n");
+        content.append(rows[1][x]).append("\n");
+        content.append(rows[2][x]).append("\n");
+      }
+    }
+    return content.toString();
   }
 }
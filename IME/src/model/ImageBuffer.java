@@ -0,0 +1,245 @@
+package model;
+
+/**
+ * Represents a writable grid of pixels used to build a new image. Like Image, the pixels are
+ * stored in planar channel arrays so editors, readers and the view can write whole rows without
+ * creating an RGB for every pixel. Once filled, the buffer is turned into an Image.
+ *
+ * <p>Planes are copied on write: a buffer started from an existing image shares its planes until
+ * a channel is first written, and toImage() hands the planes over without copying them, so a
+ * later write to the buffer copies the written channel first.
+ */
+public class ImageBuffer implements RowWriter {
+
+  private final int width;
+  private final int height;
+  private final int maxVal;
+  private final short[][] channels;
+  private final boolean[] shared;
+
+  /**
+   * Constructs a black buffer of the given size.
+   *
+   * @param width  the width of the image, starting from 1
+   * @param height the height of the image, starting from 1
+   * @param maxVal the maximum RGB value of the image
+   * @throws IllegalArgumentException if any of the dimensions or the maximum value is invalid
+   */
+  public ImageBuffer(int width, int height, int maxVal) {
+    if (width <= 0 || height <= 0 || maxVal < 0 || (long) width * height > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("Invalid image dimension.");
+    }
+    this.width = width;
+    this.height = height;
+    this.maxVal = maxVal;
+    this.channels = new short[Image.CHANNEL][width * height];
+    this.shared = new boolean[Image.CHANNEL];
+  }
+
+  /**
+   * Constructs a buffer holding the pixels of the given image. If the image is an Image its
+   * planes are shared and only copied when a channel is written.
+   *
+   * @param source the image to start from
+   * @throws IllegalArgumentException if the given image is null
+   */
+  public ImageBuffer(ImageInterface source) {
+    if (source == null) {
+      throw new IllegalArgumentException("Image cannot be null.");
+    }
+    this.width = source.getWidth();
+    this.height = source.getHeight();
+    this.maxVal = source.getMaxValue();
+    this.channels = new short[Image.CHANNEL][];
+    this.shared = new boolean[Image.CHANNEL];
+    if (source instanceof Image) {
+      for (int c = 0; c < Image.CHANNEL; c++) {
+        this.channels[c] = ((Image) source).plane(c);
+        this.shared[c] = true;
+      }
+    } else {
+      int[] row = new int[width];
+      for (int c = 0; c < Image.CHANNEL; c++) {
+        this.channels[c] = new short[width * height];
+        for (int i = 0; i < height; i++) {
+          source.getRow(i, c, row);
+          for (int j = 0; j < width; j++) {
+            this.channels[c][i * width + j] = Image.toChannel(row[j]);
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Get the width of the buffer.
+   *
+   * @return the width in pixels
+   */
+  @Override
+  public int getWidth() {
+    return this.width;
+  }
+
+  /**
+   * Get the height of the buffer.
+   *
+   * @return the height in pixels
+   */
+  @Override
+  public int getHeight() {
+    return this.height;
+  }
+
+  /**
+   * Get the maximum RGB value of the image being built.
+   *
+   * @return an integer representing the maximum RGB value
+   */
+  public int getMaxValue() {
+    return this.maxVal;
+  }
+
+  /**
+   * Get a single color value of the specified pixel.
+   *
+   * @param x       the x-coordinate of the pixel
+   * @param y       the y-coordinate of the pixel
+   * @param channel the color index (0-red 1-green 2-blue)
+   * @return the color value of the pixel in the given channel
+   * @throws IllegalArgumentException if the given indices or channel are invalid
+   */
+  public int getChannel(int x, int y, int channel) {
+    checkPosition(x, y);
+    checkChannel(channel);
+    return channels[channel][y * width + x] & Image.MAX_CHANNEL_VALUE;
+  }
+
+  /**
+   * Sets the color of the specified pixel.
+   *
+   * @param x     the x-coordinate of the pixel
+   * @param y     the y-coordinate of the pixel
+   * @param red   the red value of the pixel
+   * @param green the green value of the pixel
+   * @param blue  the blue value of the pixel
+   * @throws IllegalArgumentException if the indices are invalid or a value is out of range
+   */
+  public void setPixel(int x, int y, int red, int green, int blue) {
+    checkPosition(x, y);
+    int index = y * width + x;
+    short r = Image.toChannel(red);
+    short g = Image.toChannel(green);
+    short b = Image.toChannel(blue);
+    writable(0)[index] = r;
+    writable(1)[index] = g;
+    writable(2)[index] = b;
+  }
+
+  /**
+   * Copies one color channel of a whole row of pixels into the given array.
+   *
+   * @param y       the y-coordinate of the row
+   * @param channel the color index (0-red 1-green 2-blue)
+   * @param dest    the array to fill, at least as long as the width of the buffer
+   * @throws IllegalArgumentException if the row or channel is invalid or dest is too small
+   */
+  public void getRow(int y, int channel, int[] dest) {
+    checkRow(y, channel, dest);
+    short[] plane = channels[channel];
+    int offset = y * width;
+    for (int j = 0; j < width; j++) {
+      dest[j] = plane[offset + j] & Image.MAX_CHANNEL_VALUE;
+    }
+  }
+
+  /**
+   * Sets one color channel of a whole row of pixels from the given array.
+   *
+   * @param y       the y-coordinate of the row
+   * @param channel the color index (0-red 1-green 2-blue)
+   * @param src     the color values of the row, at least as long as the width of the buffer
+   * @throws IllegalArgumentException if the row or channel is invalid, src is too small or a
+   *                                  value is out of range
+   */
+  @Override
+  public void setRow(int y, int channel, int[] src) {
+    checkRow(y, channel, src);
+    short[] plane = writable(channel);
+    int offset = y * width;
+    for (int j = 0; j < width; j++) {
+      plane[offset + j] = Image.toChannel(src[j]);
+    }
+  }
+
+  /**
+   * Creates an image holding the current content of this buffer. The planes are handed over to
+   * the image without copying; writing to this buffer afterwards does not change the image.
+   *
+   * @return a new image with the pixels of this buffer
+   */
+  public Image toImage() {
+    for (int c = 0; c < Image.CHANNEL; c++) {
+      shared[c] = true;
+    }
+    return new Image(width, height, channels.clone(), maxVal);
+  }
+
+  /**
+   * Gets the plane of the given channel for writing, copying it first if it is shared with an
+   * image.
+   *
+   * @param channel the color index (0-red 1-green 2-blue)
+   * @return a plane that only this buffer uses
+   */
+  private short[] writable(int channel) {
+    if (shared[channel]) {
+      channels[channel] = channels[channel].clone();
+      shared[channel] = false;
+    }
+    return channels[channel];
+  }
+
+  /**
+   * Checks that the given coordinates are inside the buffer.
+   *
+   * @param x the x-coordinate of the pixel
+   * @param y the y-coordinate of the pixel
+   * @throws IllegalArgumentException if the coordinates are out of bounds
+   */
+  private void checkPosition(int x, int y) {
+    if (x < 0 || x >= width || y < 0 || y >= height) {
+      throw new IllegalArgumentException("Index out of bounds.");
+    }
+  }
+
+  /**
+   * Checks that the given channel is a valid color index.
+   *
+   * @param channel the color index
+   * @throws IllegalArgumentException if the index is not 0, 1 or 2
+   */
+  private void checkChannel(int channel) {
+    if (channel < 0 || channel >= Image.CHANNEL) {
+      throw new IllegalArgumentException("Invalid index.");
+    }
+  }
+
+  /**
+   * Checks the arguments of a row access.
+   *
+   * @param y       the y-coordinate of the row
+   * @param channel the color index
+   * @param row     the array holding the row
+   * @throws IllegalArgumentException if any of the arguments is invalid
+   */
+  private void checkRow(int y, int channel, int[] row) {
+    if (y < 0 || y >= height) {
+      throw new IllegalArgumentException("Index out of bounds.");
+    }
+    checkChannel(channel);
+    if (row == null || row.length < width) {
+      throw new IllegalArgumentException("Row array is too small.");
+    }
+  }
+}
@@ -15,6 +15,27 @@ public interface ImageInterface {
    */
   RGB getPixel(int x, int y);
 
+  /**
+   * Get a single color value of the specified pixel without creating an RGB.
+   *
+   * @param x       the x-coordinate of the pixel in the image pixels
+   * @param y       the y-coordinate of the pixel in the image pixels
+   * @param channel the color index (0-red 1-green 2-blue)
+   * @return the color value of the pixel in the given channel
+   * @throws IllegalArgumentException if the given indices or channel are invalid
+   */
+  int getChannel(int x, int y, int channel);
+
+  /**
+   * Copies one color channel of a whole row of pixels into the given array.
+   *
+   * @param y       the y-coordinate of the row
+   * @param channel the color index (0-red 1-green 2-blue)
+   * @param dest    the array to fill, at least as long as the width of the image
+   * @throws IllegalArgumentException if the row or channel is invalid or dest is too small
+   */
+  void getRow(int y, int channel, int[] dest);
+
   /**
    * Get the height of the image.
    *
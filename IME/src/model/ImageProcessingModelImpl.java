@@ -1,13 +1,23 @@
 package model;
 
+import java.util.Collections;
+
 /**
  * This class represents the implementation of the image processing model interface. It handles the
  * import and export of an image and performs specific operations on the image.
+ *
+ * <p>In lazy mode applyOperation only records the operation. The recorded operations are applied
+ * as one OperationChain, which fuses adjacent color transformations, the first time the image is
+ * needed; setting a new image before that drops them without computing anything. The size of the
+ * image is known without applying them when none of them changes the size. If applying them
+ * fails, they are dropped and the error is thrown once, leaving the image as it was before them.
  */
 public class ImageProcessingModelImpl implements ImageProcessingModel {
 
   private ImageInterface img;
   private ImageEditors ie;
+  private final boolean lazy;
+  private OperationChain pending; // operations not applied to img yet, null when there are none
 
   /**
    * Constructs an implementation of image processing model with an image and an editing operation.
@@ -22,6 +32,8 @@ public class ImageProcessingModelImpl implements ImageProcessingModel {
     }
     this.img = img;
     this.ie = ie;
+    this.lazy = false;
+    this.pending = null;
   }
 
   /**
@@ -29,8 +41,20 @@ public class ImageProcessingModelImpl implements ImageProcessingModel {
    * constructor.
    */
   public ImageProcessingModelImpl() {
+    this(false);
+  }
+
+  /**
+   * Constructs an ImageProcessingModelImpl object without setting the fields, choosing whether
+   * operations are applied when requested or deferred until the image is needed.
+   *
+   * @param lazy true to defer operations until the image is needed
+   */
+  public ImageProcessingModelImpl(boolean lazy) {
     this.img = null;
     this.ie = null;
+    this.lazy = lazy;
+    this.pending = null;
   }
 
   /**
@@ -45,6 +69,12 @@ public class ImageProcessingModelImpl implements ImageProcessingModel {
   @Override
   public ImageInterface getImage() {
     if (img != null) {
+      if (pending != null) {
+        OperationChain chain = pending;
+        // dropped before it runs, so a failed chain is not run again by every later call
+        this.pending = null;
+        this.img = chain.apply(img);
+      }
       return this.img;
     } else {
       throw new IllegalStateException("Cannot get image because image has not been loaded.");
@@ -57,6 +87,8 @@ public class ImageProcessingModelImpl implements ImageProcessingModel {
       throw new IllegalArgumentException("Image Can't Be Null");
     }
     this.img = img;
+    // the new image replaces the result of the deferred operations, so they are never computed
+    this.pending = null;
   }
 
 
@@ -83,7 +115,7 @@ public class ImageProcessingModelImpl implements ImageProcessingModel {
     if (this.img == null) {
       throw new IllegalStateException("Image needs to be loaded");
     }
-    return img.getHeight();
+    return sizedImage().getHeight();
   }
 
   @Override
@@ -91,17 +123,32 @@ public class ImageProcessingModelImpl implements ImageProcessingModel {
     if (this.img == null) {
       throw new IllegalStateException("Image needs to be loaded");
     }
-    return img.getWidth();
+    return sizedImage().getWidth();
+  }
+
+  /**
+   * Gets an image the size of the image with the deferred operations applied, applying them only
+   * if one of them may change the size.
+   *
+   * @return the image, or the image the deferred operations start from
+   */
+  private ImageInterface sizedImage() {
+    return pending == null || pending.keepsSize() ? img : getImage();
   }
 
   @Override
   public void applyOperation() {
-    if (hasStarted()) {
-      this.img = ie.apply(img);
-    } else {
+    if (!hasStarted()) {
       throw new IllegalStateException(
           "Cannot apply operation because image processing has not started.");
     }
+    if (!lazy) {
+      this.img = ie.apply(img);
+    } else if (pending == null) {
+      this.pending = new OperationChain(Collections.singletonList(ie));
+    } else {
+      this.pending = pending.then(ie);
+    }
   }
 
 }
@@ -0,0 +1,113 @@
+package model;
+
+import java.util.Arrays;
+
+/**
+ * Labels every pixel of an image with its nearest mosaic seed by jump flooding, building the
+ * Voronoi partition of the seeds in raster space. Every seed starts at its own pixel; each round
+ * a pixel looks at the labels of the eight pixels a step away and keeps the nearest seed among
+ * them, and the step halves from about half the image down to one pixel. One extra round with a
+ * step of one fixes most of the remaining errors.
+ *
+ * <p>The number of rounds only depends on the size of the image, not on the number of seeds, but
+ * the partition is approximate: a few pixels may end up with a seed slightly farther than the
+ * nearest one. Distances are compared as squared integers and ties go to the lowest seed index.
+ */
+final class JumpFlooding {
+
+  private JumpFlooding() {
+  }
+
+  /**
+   * Labels every pixel with the index of its nearest seed.
+   *
+   * @param rows        the row of every seed
+   * @param columns     the column of every seed
+   * @param height      the height of the image
+   * @param width       the width of the image
+   * @param parallelism the maximum number of threads to use
+   * @return the seed index of every pixel, in row-major order
+   */
+  static int[] label(int[] rows, int[] columns, int height, int width, int parallelism) {
+    int[] labels = new int[width * height];
+    Arrays.fill(labels, -1);
+    for (int s = rows.length - 1; s >= 0; s--) {
+      labels[rows[s] * width + columns[s]] = s;
+    }
+    int[] next = new int[width * height];
+    int start = Integer.highestOneBit(Math.max(1, Math.max(width, height) - 1));
+    // the steps halve from start down to 1, then one more round with a step of 1
+    int rounds = Integer.numberOfTrailingZeros(start) + 2;
+    for (int i = 0; i < rounds; i++) {
+      int step = Math.max(1, start >> i);
+      int[] src = labels;
+      int[] dst = next;
+      RowBands.run(height, parallelism,
+          (from, to) -> round(rows, columns, src, dst, width, height, step, from, to));
+      next = src;
+      labels = dst;
+    }
+    return labels;
+  }
+
+  /**
+   * Runs one round of jump flooding over the given rows.
+   *
+   * @param rows    the row of every seed
+   * @param columns the column of every seed
+   * @param src     the labels after the previous round
+   * @param dst     the labels after this round
+   * @param width   the width of the image
+   * @param height  the height of the image
+   * @param step    the distance to the pixels looked at
+   * @param from    the first row to process
+   * @param to      the row after the last row to process
+   */
+  private static void round(int[] rows, int[] columns, int[] src, int[] dst, int width,
+      int height, int step, int from, int to) {
+    for (int y = from; y < to; y++) {
+      for (int x = 0; x < width; x++) {
+        int best = src[y * width + x];
+        long bestDistance = best < 0 ? Long.MAX_VALUE : distance(rows, columns, best, y, x);
+        for (int dy = -step; dy <= step; dy += step) {
+          int ny = y + dy;
+          if (ny < 0 || ny >= height) {
+            continue;
+          }
+          for (int dx = -step; dx <= step; dx += step) {
+            int nx = x + dx;
+            if (nx < 0 || nx >= width) {
+              continue;
+            }
+            int seed = src[ny * width + nx];
+            if (seed < 0 || seed == best) {
+              continue;
+            }
+            long d = distance(rows, columns, seed, y, x);
+            if (d < bestDistance || (d == bestDistance && seed < best)) {
+              bestDistance = d;
+              best = seed;
+            }
+          }
+        }
+        dst[y * width + x] = best;
+      }
+    }
+  }
+
+  /**
+   * Computes the squared distance between a seed and a pixel.
+   *
+   * @param rows    the row of every seed
+   * @param columns the column of every seed
+   * @param seed    the index of the seed
+   * @param y       the row of the pixel
+   * @param x       the column of the pixel
+   * @return the squared distance
+   */
+  private static long distance(int[] rows, int[] columns, int seed, int y, int x) {
+    long dr = rows[seed] - y;
+    long dc = columns[seed] - x;
+    return dr * dr + dc * dc;
+  }
+}
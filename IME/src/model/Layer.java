@@ -11,6 +11,8 @@ public class Layer implements ILayer {
 
   Optional<ImageInterface> img;
   boolean visible;
+  double opacity;
+  BlendMode mode;
 
   /**
    * The constructor for the layer class that takes in Image as its parameter.
@@ -18,6 +20,8 @@ public class Layer implements ILayer {
   public Layer() {
     this.img = Optional.empty();
     this.visible = true;
+    this.opacity = 1;
+    this.mode = BlendMode.NORMAL;
   }
 
   /**
@@ -31,6 +35,8 @@ public class Layer implements ILayer {
     }
     this.img = Optional.of(image.getImage());
     this.visible = true;
+    this.opacity = 1;
+    this.mode = BlendMode.NORMAL;
   }
 
   @Override
@@ -43,9 +49,10 @@ public class Layer implements ILayer {
   }
 
   @Override
-  public Image getImage() throws IllegalStateException {
+  public ImageInterface getImage() throws IllegalStateException {
     if (img.isPresent()) {
-      return img.get().getImage();
+      // a paged out image stays paged out, its tiles are read as they are needed
+      return img.get();
     } else {
       throw new IllegalStateException("No image in this layer.");
     }
@@ -71,4 +78,30 @@ public class Layer implements ILayer {
   public boolean isEmpty() {
     return this.img.isEmpty();
   }
+
+  @Override
+  public void setOpacity(double opacity) {
+    if (!(opacity >= 0 && opacity <= 1)) {
+      throw new IllegalArgumentException("Opacity must be between 0 and 1.");
+    }
+    this.opacity = opacity;
+  }
+
+  @Override
+  public double getOpacity() {
+    return this.opacity;
+  }
+
+  @Override
+  public void setBlendMode(BlendMode mode) {
+    if (mode == null) {
+      throw new IllegalArgumentException("Blend Mode Can't Be Null");
+    }
+    this.mode = mode;
+  }
+
+  @Override
+  public BlendMode getBlendMode() {
+    return this.mode;
+  }
 }
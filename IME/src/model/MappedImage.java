@@ -0,0 +1,240 @@
+package model;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Represents an image whose pixels stay in a raw (P6) PPM file that is mapped into memory instead
+ * of being read onto the heap, so images larger than the heap can be edited. The operating
+ * system pages the pixels in and out as rows are read or written.
+ *
+ * <p>The pixel region is mapped in chunks of whole rows, each below the 2 GB limit of a single
+ * mapping. Samples are bytes when the maximum value is below 256 and big-endian 16-bit values
+ * otherwise, red, green and blue for every pixel. A writable image is the destination of a
+ * streaming editor; its rows can be written from several threads as long as they are different
+ * rows.
+ */
+public class MappedImage implements ImageInterface, RowWriter {
+
+  private final int width;
+  private final int height;
+  private final int maxVal;
+  private final int bytesPerSample;
+  private final int rowBytes;
+  private final int rowsPerChunk;
+  private final MappedByteBuffer[] chunks;
+
+  /**
+   * Maps the pixel region of a raw PPM file whose header has already been read or written.
+   *
+   * @param filename the path of the file
+   * @param offset   the position of the first pixel in the file, right after the header
+   * @param width    the width of the image
+   * @param height   the height of the image
+   * @param maxVal   the maximum RGB value of the image, between 1 and 65535
+   * @param writable true to map the file for writing, which makes it at least as long as the
+   *                 pixel region
+   * @throws IllegalArgumentException if any argument is invalid, the file cannot be found or a
+   *                                  row does not fit in one mapping
+   */
+  public MappedImage(String filename, long offset, int width, int height, int maxVal,
+      boolean writable) {
+    if (filename == null || offset < 0 || width <= 0 || height <= 0 || maxVal < 1
+        || maxVal > Image.MAX_CHANNEL_VALUE) {
+      throw new IllegalArgumentException("Input Invalid");
+    }
+    this.width = width;
+    this.height = height;
+    this.maxVal = maxVal;
+    this.bytesPerSample = maxVal < 256 ? 1 : 2;
+    long bytes = (long) width * Image.CHANNEL * bytesPerSample;
+    if (bytes > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("Image is too wide.");
+    }
+    this.rowBytes = (int) bytes;
+    this.rowsPerChunk = Math.min(height, Integer.MAX_VALUE / rowBytes);
+    this.chunks = new MappedByteBuffer[(height + rowsPerChunk - 1) / rowsPerChunk];
+    FileChannel.MapMode mode = writable ? FileChannel.MapMode.READ_WRITE
+        : FileChannel.MapMode.READ_ONLY;
+    try (FileChannel channel = writable
+        ? FileChannel.open(Paths.get(filename), StandardOpenOption.READ, StandardOpenOption.WRITE)
+        : FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+      if (!writable && channel.size() < offset + (long) rowBytes * height) {
+        throw new IllegalArgumentException("Invalid PPM file: pixel data is truncated");
+      }
+      // the mappings stay valid after the channel is closed
+      for (int i = 0; i < chunks.length; i++) {
+        int rows = Math.min(rowsPerChunk, height - i * rowsPerChunk);
+        chunks[i] = channel.map(mode, offset + (long) i * rowsPerChunk * rowBytes,
+            (long) rows * rowBytes);
+      }
+    } catch (NoSuchFileException e) {
+      throw new IllegalArgumentException("File " + filename + " not found!");
+    } catch (IOException e) {
+      throw new IllegalArgumentException("Could not map " + filename);
+    }
+  }
+
+  @Override
+  public RGB getPixel(int x, int y) {
+    return new RGB(getChannel(x, y, 0), getChannel(x, y, 1), getChannel(x, y, 2));
+  }
+
+  @Override
+  public int getChannel(int x, int y, int channel) {
+    if (y < 0 || y >= height || x < 0 || x >= width) {
+      throw new IllegalArgumentException("Index out of bounds.");
+    }
+    if (channel < 0 || channel >= Image.CHANNEL) {
+      throw new IllegalArgumentException("Invalid index.");
+    }
+    return sample(chunks[y / rowsPerChunk], position(y, x, channel));
+  }
+
+  @Override
+  public void getRow(int y, int channel, int[] dest) {
+    checkRow(y, channel, dest);
+    MappedByteBuffer chunk = chunks[y / rowsPerChunk];
+    int position = position(y, 0, channel);
+    int step = Image.CHANNEL * bytesPerSample;
+    for (int j = 0; j < width; j++) {
+      dest[j] = sample(chunk, position);
+      position += step;
+    }
+  }
+
+  /**
+   * Sets one color channel of a whole row of pixels in the mapped file.
+   *
+   * @param y       the y-coordinate of the row
+   * @param channel the color index (0-red 1-green 2-blue)
+   * @param src     the color values of the row, at least as long as the width of the image
+   * @throws IllegalArgumentException if the row or channel is invalid, src is too small or a
+   *                                  value does not fit in a sample
+   * @throws java.nio.ReadOnlyBufferException if the image was not mapped for writing
+   */
+  @Override
+  public void setRow(int y, int channel, int[] src) {
+    checkRow(y, channel, src);
+    int largest = bytesPerSample == 1 ? 0xFF : Image.MAX_CHANNEL_VALUE;
+    MappedByteBuffer chunk = chunks[y / rowsPerChunk];
+    int position = position(y, 0, channel);
+    int step = Image.CHANNEL * bytesPerSample;
+    for (int j = 0; j < width; j++) {
+      int value = src[j];
+      if (value < 0 || value > largest) {
+        throw new IllegalArgumentException("Invalid color values.");
+      }
+      if (bytesPerSample == 1) {
+        chunk.put(position, (byte) value);
+      } else {
+        chunk.putShort(position, (short) value);
+      }
+      position += step;
+    }
+  }
+
+  @Override
+  public int getHeight() {
+    return this.height;
+  }
+
+  @Override
+  public int getWidth() {
+    return this.width;
+  }
+
+  /**
+   * Get the maximum RGB value of the image.
+   *
+   * @return an integer representing the maximum RGB value
+   */
+  @Override
+  public int getMaxValue() {
+    return this.maxVal;
+  }
+
+  /**
+   * Reads the whole image onto the heap. Only meant for images that fit in memory; stream the
+   * others with a StreamingEditor instead.
+   *
+   * @return an image holding the pixels of the file
+   * @throws IllegalStateException if the image has more pixels than an Image can hold
+   */
+  @Override
+  public Image getImage() {
+    if ((long) width * height > Integer.MAX_VALUE) {
+      throw new IllegalStateException("Image is too large to be loaded into memory.");
+    }
+    return Strips.copy(this, 0, height);
+  }
+
+  /**
+   * Get the pixels of the image, read onto the heap.
+   *
+   * @return a copy of the pixels of the image
+   * @throws IllegalStateException if the image has more pixels than an Image can hold
+   */
+  @Override
+  public RGB[][] getPixels() {
+    return getImage().getPixels();
+  }
+
+  /**
+   * Writes the rows written so far back to the file.
+   */
+  public void force() {
+    for (MappedByteBuffer chunk : chunks) {
+      if (!chunk.isReadOnly()) {
+        chunk.force();
+      }
+    }
+  }
+
+  /**
+   * Computes the position of a sample within the chunk holding its row.
+   *
+   * @param y       the y-coordinate of the pixel
+   * @param x       the x-coordinate of the pixel
+   * @param channel the color index
+   * @return the position of the first byte of the sample
+   */
+  private int position(int y, int x, int channel) {
+    return (y % rowsPerChunk) * rowBytes + (x * Image.CHANNEL + channel) * bytesPerSample;
+  }
+
+  /**
+   * Reads the sample at the given position of a chunk.
+   *
+   * @param chunk    the chunk holding the sample
+   * @param position the position of the first byte of the sample
+   * @return the unsigned value of the sample
+   */
+  private int sample(MappedByteBuffer chunk, int position) {
+    if (bytesPerSample == 1) {
+      return chunk.get(position) & 0xFF;
+    }
+    return chunk.getShort(position) & Image.MAX_CHANNEL_VALUE;
+  }
+
+  /**
+   * Checks the arguments of a row access.
+   *
+   * @param y       the y-coordinate of the row
+   * @param channel the color index
+   * @param row     the array holding the row
+   * @throws IllegalArgumentException if any of the arguments is invalid
+   */
+  private void checkRow(int y, int channel, int[] row) {
+    if (y < 0 || y >= height || channel < 0 || channel >= Image.CHANNEL) {
+      throw new IllegalArgumentException("Index out of bounds.");
+    }
+    if (row == null || row.length < width) {
+      throw new IllegalArgumentException("Row array is too small.");
+    }
+  }
+}
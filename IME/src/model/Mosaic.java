@@ -1,9 +1,5 @@
 package model;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
 import java.util.Random;
 
 /**
@@ -11,8 +7,27 @@ import java.util.Random;
  */
 public class Mosaic implements ImageEditors {
 
-  private final Random rand;
+  /**
+   * The ways pixels can be assigned to their seed.
+   */
+  public enum Engine {
+    /**
+     * Every pixel looks up its exact nearest seed in a grid of seed buckets.
+     */
+    NEAREST_SEED,
+    /**
+     * The Voronoi partition of the seeds is built in raster space by jump flooding. It does not
+     * slow down with the number of seeds but may give a few pixels a slightly farther seed.
+     */
+    JUMP_FLOOD
+  }
+
+  private final Random rand; // used when the mosaic has no seed of its own
+  private final long seed;
+  private final boolean seeded;
   private final int numSeeds;
+  private final Engine engine;
+  private final int parallelism;
 
   /**
    * Creates an image mosaic object with the given number of seeds, which determines the degree of
@@ -22,11 +37,76 @@ public class Mosaic implements ImageEditors {
    * @throws IllegalArgumentException if number of seeds is too small
    */
   public Mosaic(int numSeeds) {
+    this(numSeeds, Engine.NEAREST_SEED);
+  }
+
+  /**
+   * Creates an image mosaic object with the given number of seeds that assigns pixels to seeds
+   * with the given engine.
+   *
+   * @param numSeeds number of pixels to be selected in the image that are seeds, starting from 1
+   * @param engine   the way pixels are assigned to their seed
+   * @throws IllegalArgumentException if number of seeds is too small or the engine is null
+   */
+  public Mosaic(int numSeeds, Engine engine) {
+    this(numSeeds, engine, 0, false, RowBands.defaultParallelism());
+  }
+
+  /**
+   * Creates an image mosaic object whose seed positions are drawn from a random number generator
+   * started from the given seed, so that the same image always gives the same mosaic.
+   *
+   * @param numSeeds   number of pixels to be selected in the image that are seeds, starting from 1
+   * @param randomSeed the seed of the random number generator
+   * @throws IllegalArgumentException if number of seeds is too small
+   */
+  public Mosaic(int numSeeds, long randomSeed) {
+    this(numSeeds, Engine.NEAREST_SEED, randomSeed, RowBands.defaultParallelism());
+  }
+
+  /**
+   * Creates an image mosaic object with a seeded random number generator that labels the pixels
+   * on up to the given number of threads. The result does not depend on the number of threads.
+   *
+   * @param numSeeds    number of pixels to be selected in the image that are seeds, starting
+   *                    from 1
+   * @param engine      the way pixels are assigned to their seed
+   * @param randomSeed  the seed of the random number generator
+   * @param parallelism the maximum number of threads to use, 1 labels on the calling thread
+   * @throws IllegalArgumentException if number of seeds is too small, the engine is null or
+   *                                  parallelism is less than 1
+   */
+  public Mosaic(int numSeeds, Engine engine, long randomSeed, int parallelism) {
+    this(numSeeds, engine, randomSeed, true, parallelism);
+  }
+
+  /**
+   * Creates an image mosaic object, with or without a seed for its random number generator.
+   *
+   * @param numSeeds    number of pixels to be selected in the image that are seeds
+   * @param engine      the way pixels are assigned to their seed
+   * @param randomSeed  the seed of the random number generator, ignored when not seeded
+   * @param seeded      whether every application restarts the generator from randomSeed
+   * @param parallelism the maximum number of threads to use
+   * @throws IllegalArgumentException if any of the arguments is invalid
+   */
+  private Mosaic(int numSeeds, Engine engine, long randomSeed, boolean seeded,
+      int parallelism) {
     if (numSeeds <= 0) {
       throw new IllegalArgumentException("Need more seeds to perform mosaic.");
     }
-    this.rand = new Random();
+    if (engine == null) {
+      throw new IllegalArgumentException("Engine can't be null.");
+    }
+    if (parallelism < 1) {
+      throw new IllegalArgumentException("Parallelism must be at least 1.");
+    }
+    this.rand = seeded ? null : new Random();
+    this.seed = randomSeed;
+    this.seeded = seeded;
     this.numSeeds = numSeeds;
+    this.engine = engine;
+    this.parallelism = parallelism;
   }
 
   @Override
@@ -38,146 +118,83 @@ public class Mosaic implements ImageEditors {
       throw new IllegalStateException("Too many seeds.");
     }
 
-    // randomly create a number of seeds
-    Map<Indices, List<Indices>> groups = new HashMap<>(numSeeds);
-    for (int i = 0; i < numSeeds; i++) {
-      int row = rand.nextInt(img.getHeight());
-      int column = rand.nextInt(img.getWidth());
-      Indices seedPosn = new Indices(row, column);
-      if (!groups.containsKey(seedPosn)) {
-        groups.put(seedPosn, new ArrayList<>());
-      } else {
-        i -= 1;
-      }
-    }
+    Image source = img.getImage();
+    int height = source.getHeight();
+    int width = source.getWidth();
 
-    // for every pixel in the image
-    for (int i = 0; i < img.getHeight(); i++) {
-      for (int j = 0; j < img.getWidth(); j++) {
-        Indices pixelPosn = new Indices(i, j);
-        // if not a seed
-        if (!groups.containsKey(pixelPosn)) {
-          //find its closet seed and join its group
-          findSeed(pixelPosn, groups);
-        }
-      }
+    // randomly pick distinct seed positions with a partial Fisher-Yates shuffle of all positions
+    Random random = seeded ? new Random(seed) : rand;
+    int[] positions = new int[width * height];
+    for (int p = 0; p < positions.length; p++) {
+      positions[p] = p;
     }
-
-    RGB[][] newPixels = new RGB[img.getHeight()][img.getWidth()];
-    // average color in every group
-    for (Indices seed : groups.keySet()) {
-      averageColor(seed, groups, img.getPixels(), newPixels);
+    int[] seedRows = new int[numSeeds];
+    int[] seedColumns = new int[numSeeds];
+    for (int i = 0; i < numSeeds; i++) {
+      int pick = i + random.nextInt(positions.length - i);
+      int position = positions[pick];
+      positions[pick] = positions[i];
+      positions[i] = position;
+      seedRows[i] = position / width;
+      seedColumns[i] = position % width;
     }
 
-    return new Image(newPixels);
-  }
-
-  /**
-   * Finds the closet seed of the given pixel position and joins the group of that seed.
-   *
-   * @param pixelPosn the current pixel position awaiting to be paired with the closet seed
-   * @param groups    all seed groups available
-   */
-  private void findSeed(Indices pixelPosn, Map<Indices, List<Indices>> groups) {
-    Indices closet = null;
-    double min = Double.POSITIVE_INFINITY;
-    for (Indices seed : groups.keySet()) {
-      if (pixelPosn.distance(seed) < min) {
-        min = pixelPosn.distance(seed);
-        closet = seed;
-      }
+    int[] labels;
+    if (engine == Engine.JUMP_FLOOD) {
+      labels = JumpFlooding.label(seedRows, seedColumns, height, width, parallelism);
+    } else {
+      // every pixel joins the group of its closest seed
+      SeedGrid grid = new SeedGrid(seedRows, seedColumns, height, width);
+      int[] nearest = new int[width * height];
+      RowBands.run(height, parallelism, (from, to) -> {
+        for (int i = from; i < to; i++) {
+          for (int j = 0; j < width; j++) {
+            nearest[i * width + j] = grid.nearest(i, j);
+          }
+        }
+      });
+      labels = nearest;
     }
-    groups.get(closet).add(pixelPosn);
+    return average(source, labels, numSeeds);
   }
 
   /**
-   * Average the colors of the group that the given seed belongs and reflect on the new mosaic image
-   * pixels.
+   * Paints every pixel with the average color, rounded, of the pixels sharing its label. The
+   * colors are summed into primitive accumulators in one sweep over the image and written in a
+   * second one, so the source pixels are read exactly once.
    *
-   * @param seed      the current seed of the group
-   * @param groups    all seed groups
-   * @param oldPixels the pixels of the original image
-   * @param newPixels the pixels of the mosaic image
+   * @param source the image to average
+   * @param labels the seed index of every pixel, in row-major order
+   * @param seeds  the number of seeds
+   * @return the mosaic image
    */
-  private void averageColor(Indices seed, Map<Indices, List<Indices>> groups, RGB[][] oldPixels,
-      RGB[][] newPixels) {
-    int totalR = oldPixels[seed.getI()][seed.getJ()].getRed();
-    int totalG = oldPixels[seed.getI()][seed.getJ()].getGreen();
-    int totalB = oldPixels[seed.getI()][seed.getJ()].getBlue();
-    int size = 1;
-
-    for (Indices pixelPosn : groups.get(seed)) {
-      totalR += oldPixels[pixelPosn.getI()][pixelPosn.getJ()].getRed();
-      totalG += oldPixels[pixelPosn.getI()][pixelPosn.getJ()].getGreen();
-      totalB += oldPixels[pixelPosn.getI()][pixelPosn.getJ()].getBlue();
-      size += 1;
-    }
-
-    int aveR = totalR / size;
-    int aveG = totalG / size;
-    int aveB = totalB / size;
-    RGB groupColor = new RGB(aveR, aveG, aveB);
-
-    newPixels[seed.getI()][seed.getJ()] = groupColor;
-    for (Indices pixelPosn : groups.get(seed)) {
-      newPixels[pixelPosn.getI()][pixelPosn.getJ()] = groupColor;
+  private static Image average(Image source, int[] labels, int seeds) {
+    long[][] sums = new long[Image.CHANNEL][seeds];
+    int[] sizes = new int[seeds];
+    short[][] planes = new short[Image.CHANNEL][];
+    for (int c = 0; c < Image.CHANNEL; c++) {
+      planes[c] = source.plane(c);
     }
-  }
-
-  /**
-   * Represents the indices of a pixel in a 2D array of pixels.
-   */
-  private static class Indices {
-
-    private final int i;
-    private final int j;
-
-    /**
-     * Constructs an indices with the given i and j index.
-     *
-     * @param i the row index of a 2D array
-     * @param j the column index of a 2D array
-     * @throws IllegalArgumentException if row and column indexing is too small
-     */
-    private Indices(int i, int j) {
-      if (i < 0 || j < 0) {
-        throw new IllegalArgumentException("Invalid indices.");
+    for (int p = 0; p < labels.length; p++) {
+      int seed = labels[p];
+      sizes[seed]++;
+      for (int c = 0; c < Image.CHANNEL; c++) {
+        sums[c][seed] += planes[c][p] & Image.MAX_CHANNEL_VALUE;
       }
-      this.i = i;
-      this.j = j;
     }
-
-    /**
-     * Gets the row index of this indices.
-     *
-     * @return the row index value
-     */
-    private int getI() {
-      return this.i;
-    }
-
-    /**
-     * Gets the column index of this indices.
-     *
-     * @return the column index value
-     */
-    private int getJ() {
-      return this.j;
+    short[][] averages = new short[Image.CHANNEL][seeds];
+    for (int c = 0; c < Image.CHANNEL; c++) {
+      for (int s = 0; s < seeds; s++) {
+        // rounded to the nearest value, every seed has at least its own pixel
+        averages[c][s] = (short) ((sums[c][s] + sizes[s] / 2) / sizes[s]);
+      }
     }
-
-    /**
-     * Compute the distance between this indices and the given indices.
-     *
-     * @param other the given indices to be compare with this indices
-     * @return the distance between this indices and the given indices in a double
-     * @throws IllegalArgumentException if null argument is passed
-     */
-    private double distance(Indices other) {
-      if (other == null) {
-        throw new IllegalArgumentException("The given indices is null.");
+    short[][] result = new short[Image.CHANNEL][labels.length];
+    for (int c = 0; c < Image.CHANNEL; c++) {
+      for (int p = 0; p < labels.length; p++) {
+        result[c][p] = averages[c][labels[p]];
       }
-      return Math
-          .sqrt(Math.pow(other.getI() - this.getI(), 2) + Math.pow(other.getJ() - this.getJ(), 2));
     }
+    return new Image(source.getWidth(), source.getHeight(), result, source.getMaxValue());
   }
 }
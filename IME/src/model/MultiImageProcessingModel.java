@@ -81,5 +81,48 @@ public interface MultiImageProcessingModel extends ImageProcessingModel {
    */
   int getCurrent();
 
+  /**
+   * Sets the opacity of a layer, used when the layers are composited.
+   *
+   * @param index   the index of the layer
+   * @param opacity the opacity, from 0 (transparent) to 1 (opaque)
+   * @throws IllegalArgumentException if the index is out of bounds or the opacity is not between
+   *                                  0 and 1
+   */
+  void setOpacity(int index, double opacity);
+
+  /**
+   * Sets the blend mode of a layer, used when the layers are composited.
+   *
+   * @param index the index of the layer
+   * @param mode  the blend mode
+   * @throws IllegalArgumentException if the index is out of bounds or the mode is null
+   */
+  void setBlendMode(int index, BlendMode mode);
+
+  /**
+   * Composites all the visible layers, blended from the bottom layer to the top one. Only the
+   * parts of the image covered by layers that changed since the last composite are redrawn.
+   *
+   * @return the composite image
+   * @throws IllegalStateException if no layer has an image
+   */
+  ImageInterface getComposite();
+
+  /**
+   * Undoes the last change to the layers: a new image, an applied operation, or a layer created,
+   * removed, moved, hidden or shown, or given a new opacity or blend mode.
+   *
+   * @throws IllegalStateException if there is no change to undo
+   */
+  void undo();
+
+  /**
+   * Redoes the last change undone, if no other change was made since.
+   *
+   * @throws IllegalStateException if there is no change to redo
+   */
+  void redo();
+
 }
 
@@ -1,10 +1,20 @@
 package model;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Stack;
 
 /**
  * The MultiImageProcessingModelImpl is what implements the MultiImageprocessingModel interface. It
  * provides more functionality than the ImageProcessingModel and hence is the enhanced version.
+ *
+ * <p>Every change to the layers is recorded in a History that can be undone and redone. The
+ * operations applied to the current layer are kept in the history as operations while the lazy
+ * model has not computed them, so recording them does not compute them either.
+ *
+ * <p>Only the current layer is kept on the heap as it is. The other layers are paged out as
+ * TiledImages to a TileStore, which keeps the tiles read most recently in memory and the rest in
+ * a spill file, so a project of many large layers does not have to fit in the heap.
  */
 public class MultiImageProcessingModelImpl implements
     MultiImageProcessingModel {
@@ -12,21 +22,60 @@ public class MultiImageProcessingModelImpl implements
   private final Stack<ILayer> stackOfLayers;
   private ImageProcessingModelImpl model;
   private ILayer currentLayer;
+  private final Compositor compositor;
+  private final History history;
+  private final TileStore tiles;
+  // operations applied to the current layer by the lazy model and not stored in the layer yet
+  private final List<ImageEditors> pending;
 
   /**
-   * Constructs a model all empty.
+   * Constructs a model all empty, whose undo history takes up to an eighth of the maximum heap.
    */
   public MultiImageProcessingModelImpl() {
-    //this.currentLayer = null;
+    this(Runtime.getRuntime().maxMemory() / 8);
+  }
+
+  /**
+   * Constructs a model all empty whose undo history takes up to the given number of bytes and
+   * whose inactive layers keep up to a quarter of the maximum heap in memory.
+   *
+   * @param historyBudget the number of bytes the compressed images of the history may take
+   * @throws IllegalArgumentException if the budget is negative
+   */
+  public MultiImageProcessingModelImpl(long historyBudget) {
+    this(historyBudget, new TileStore(Runtime.getRuntime().maxMemory() / 4));
+  }
+
+  /**
+   * Constructs a model all empty whose undo history takes up to the given number of bytes and
+   * whose inactive layers are paged out to the given store. The oldest changes are forgotten when
+   * the history grows larger.
+   *
+   * @param historyBudget the number of bytes the compressed images of the history may take
+   * @param tiles         the store holding the tiles of the layers that are not current
+   * @throws IllegalArgumentException if the budget is negative or the store is null
+   */
+  public MultiImageProcessingModelImpl(long historyBudget, TileStore tiles) {
+    if (tiles == null) {
+      throw new IllegalArgumentException("Tile store can't be null.");
+    }
+    this.tiles = tiles;
     this.stackOfLayers = new Stack<>();
-    this.model = new ImageProcessingModelImpl();
+    this.model = new ImageProcessingModelImpl(true);
     this.currentLayer = null;
+    this.compositor = new Compositor();
+    this.history = new History(historyBudget);
+    this.pending = new ArrayList<>();
+    record();
   }
 
   @Override
   public void createLayer() {
+    syncCurrent();
     this.stackOfLayers.push(new Layer());
     this.currentLayer = this.stackOfLayers.get(this.stackOfLayers.size() - 1);
+    pageOutInactive();
+    record();
   }
 
   // set it to certain layer (image or empty);
@@ -35,14 +84,16 @@ public class MultiImageProcessingModelImpl implements
     if (index < 0 || index >= stackOfLayers.size()) {
       throw new IllegalArgumentException("Index out of bound.");
     }
+    syncCurrent();
     this.currentLayer = this.stackOfLayers.get(index);
     try {
       // if there is an image
-      model.setImage(this.currentLayer.getImage());
+      model.setImage(pageInCurrent());
     } catch (IllegalStateException e) {
       // if there's no image, set the img to null
-      model = new ImageProcessingModelImpl();
+      model = new ImageProcessingModelImpl(true);
     }
+    pageOutInactive();
   }
 
   // load image
@@ -56,6 +107,8 @@ public class MultiImageProcessingModelImpl implements
     }
     this.currentLayer.setImage(img);
     model.setImage(img);
+    pending.clear();
+    record();
   }
 
   // load Effect
@@ -69,18 +122,28 @@ public class MultiImageProcessingModelImpl implements
 
   @Override
   public void applyOperation() {
-    if (model.getEffect() == null || model.getImage() == null) {
-      throw new IllegalStateException("Effect and Image should be loaded first");
-    }
     if (this.currentLayer == null) {
       throw new IllegalStateException("Create a Layer First");
     }
-    if (model.getEffect() instanceof Downscale) {
+    ImageEditors effect = model.getEffect();
+    if (effect instanceof Downscale || effect instanceof Resize) {
+      // the current layer takes the model's result below instead of resampling its stored image
       for (ILayer layer : this.stackOfLayers) {
-        layer.setImage(model.getEffect().apply(layer.getImage()));
+        if (layer != this.currentLayer) {
+          layer.setImage(effect.apply(layer.getImage()));
+        }
       }
+      pageOutInactive();
     }
-    model.setImage(model.getEffect().apply(model.getImage()));
+    // deferred by the lazy model until the image is shown or exported
+    model.applyOperation();
+    if (effect instanceof Downscale || effect instanceof Resize || effect instanceof Mosaic) {
+      // every layer is stored already, and a random mosaic could not be recomputed the same
+      syncCurrent();
+    } else {
+      pending.add(effect);
+    }
+    record();
   }
 
   @Override
@@ -96,9 +159,12 @@ public class MultiImageProcessingModelImpl implements
       this.setCurrent(index - 1);// how bout this
     } else if (getCurrent() - 1 == index && index == 0) {
       this.currentLayer = null;
-      model = new ImageProcessingModelImpl();
+      model = new ImageProcessingModelImpl(true);
+      pending.clear();
     }
-    return this.stackOfLayers.remove(index);
+    ILayer removed = this.stackOfLayers.remove(index);
+    record();
+    return removed;
   }
 
   @Override
@@ -114,6 +180,7 @@ public class MultiImageProcessingModelImpl implements
     ILayer replacement = this.stackOfLayers.get(from);
     this.stackOfLayers.set(from, destination);
     this.stackOfLayers.set(to, replacement);
+    record();
   }
 
   // same as old model, use delegation
@@ -157,6 +224,7 @@ public class MultiImageProcessingModelImpl implements
     }
     ILayer img = this.stackOfLayers.get(index);
     img.setVisibility(b);
+    record();
   }
 
   @Override
@@ -193,6 +261,7 @@ public class MultiImageProcessingModelImpl implements
 
   @Override
   public Stack<ILayer> getAll() {
+    syncCurrent();
     Stack<ILayer> result = new Stack<>();
     for (ILayer layer : this.stackOfLayers) {
       result.add(layer);
@@ -208,6 +277,111 @@ public class MultiImageProcessingModelImpl implements
     }*/
     return this.stackOfLayers.indexOf(this.currentLayer) + 1;
   }
+
+  @Override
+  public void setOpacity(int index, double opacity) {
+    if (index < 0 || index >= this.stackOfLayers.size()) {
+      throw new IllegalArgumentException("Index Out of Bounds!");
+    }
+    this.stackOfLayers.get(index).setOpacity(opacity);
+    record();
+  }
+
+  @Override
+  public void setBlendMode(int index, BlendMode mode) {
+    if (index < 0 || index >= this.stackOfLayers.size()) {
+      throw new IllegalArgumentException("Index Out of Bounds!");
+    }
+    this.stackOfLayers.get(index).setBlendMode(mode);
+    record();
+  }
+
+  @Override
+  public ImageInterface getComposite() {
+    syncCurrent();
+    return compositor.composite(this.stackOfLayers);
+  }
+
+  /**
+   * Stores the edited image of the current layer back into the layer. The operations applied to
+   * the current layer are deferred by the lazy model, so the layer is only brought up to date
+   * when the other layers or the composite need it.
+   */
+  private void syncCurrent() {
+    if (this.currentLayer != null && !this.currentLayer.isEmpty()) {
+      this.currentLayer.setImage(model.getImage());
+    }
+    pending.clear();
+  }
+
+  @Override
+  public void undo() {
+    restore(history.undo());
+  }
+
+  @Override
+  public void redo() {
+    restore(history.redo());
+  }
+
+  /**
+   * Brings the image of the current layer back onto the heap, to be edited.
+   *
+   * @return the image of the current layer
+   * @throws IllegalStateException if the current layer has no image
+   */
+  private ImageInterface pageInCurrent() {
+    ImageInterface paged = this.currentLayer.getImage();
+    if (!(paged instanceof TiledImage)) {
+      return paged;
+    }
+    Image resident = paged.getImage();
+    history.replaced(paged, resident);
+    compositor.replaced(paged, resident);
+    this.currentLayer.setImage(resident);
+    return resident;
+  }
+
+  /**
+   * Pages out the images of the layers other than the current one that are still on the heap.
+   */
+  private void pageOutInactive() {
+    for (ILayer layer : this.stackOfLayers) {
+      if (layer != this.currentLayer && !layer.isEmpty()
+          && !(layer.getImage() instanceof TiledImage)) {
+        ImageInterface resident = layer.getImage();
+        TiledImage paged = new TiledImage(resident, tiles);
+        history.replaced(resident, paged);
+        compositor.replaced(resident, paged);
+        layer.setImage(paged);
+      }
+    }
+  }
+
+  /**
+   * Records the layers as they are now as a step of the history.
+   */
+  private void record() {
+    history.record(this.stackOfLayers, this.currentLayer, pending);
+  }
+
+  /**
+   * Replaces the layers with the ones of a step of the history.
+   *
+   * @param step the layers of the step, restored
+   */
+  private void restore(History.Restored step) {
+    this.stackOfLayers.clear();
+    this.stackOfLayers.addAll(step.getLayers());
+    this.pending.clear();
+    this.currentLayer = step.getCurrent() < 0 ? null : this.stackOfLayers.get(step.getCurrent());
+    if (this.currentLayer == null || this.currentLayer.isEmpty()) {
+      model = new ImageProcessingModelImpl(true);
+    } else {
+      model.setImage(pageInCurrent());
+    }
+    pageOutInactive();
+  }
 }
 
 
@@ -0,0 +1,117 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Represents a sequence of image operations applied one after the other as a single image
+ * operation. Adjacent color transformations in the sequence are fused: they run together in one
+ * pass over the pixels, each pixel going through every matrix in turn, instead of one pass and one
+ * new image per transformation. The result is the same as applying the operations one by one.
+ */
+public class OperationChain implements ImageEditors {
+
+  private final List<ImageEditors> operations;
+
+  /**
+   * Constructs a chain of the given operations.
+   *
+   * @param operations the operations in the order they are applied
+   * @throws IllegalArgumentException if the list or any of the operations is null
+   */
+  public OperationChain(List<ImageEditors> operations) {
+    if (operations == null) {
+      throw new IllegalArgumentException("Operations can't be null.");
+    }
+    for (ImageEditors operation : operations) {
+      if (operation == null) {
+        throw new IllegalArgumentException("Operations can't be null.");
+      }
+    }
+    this.operations = Collections.unmodifiableList(new ArrayList<>(operations));
+  }
+
+  /**
+   * Creates a chain that applies the operations of this chain followed by the given operation.
+   *
+   * @param operation the operation to add to the end of the chain
+   * @return a new chain with the operation added
+   * @throws IllegalArgumentException if the operation is null
+   */
+  public OperationChain then(ImageEditors operation) {
+    if (operation == null) {
+      throw new IllegalArgumentException("Operations can't be null.");
+    }
+    List<ImageEditors> longer = new ArrayList<>(operations);
+    longer.add(operation);
+    return new OperationChain(longer);
+  }
+
+  /**
+   * Get the operations of this chain.
+   *
+   * @return the operations in the order they are applied
+   */
+  public List<ImageEditors> getOperations() {
+    return this.operations;
+  }
+
+  /**
+   * Determines whether the chain gives back an image the size of the one it is applied to, which
+   * is known for color transformations, filters and mosaics.
+   *
+   * @return true if every operation of the chain keeps the size of the image
+   */
+  public boolean keepsSize() {
+    for (ImageEditors operation : operations) {
+      boolean keeps = operation instanceof ColorTransformation || operation instanceof Filtering
+          || operation instanceof Mosaic
+          || operation instanceof OperationChain && ((OperationChain) operation).keepsSize();
+      if (!keeps) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public ImageInterface apply(ImageInterface img) {
+    if (img == null) {
+      throw new IllegalArgumentException("Image cannot be null.");
+    }
+    ImageInterface result = img;
+    List<ColorTransformation> fused = new ArrayList<>();
+    for (ImageEditors operation : operations) {
+      if (operation instanceof ColorTransformation) {
+        fused.add((ColorTransformation) operation);
+        continue;
+      }
+      result = applyFused(fused, result);
+      result = operation.apply(result);
+    }
+    return applyFused(fused, result);
+  }
+
+  /**
+   * Applies the pending run of color transformations, if any, and empties it.
+   *
+   * @param fused the adjacent color transformations waiting to be applied
+   * @param img   the image to transform
+   * @return the transformed image, or the given image if there was nothing to apply
+   */
+  private static ImageInterface applyFused(List<ColorTransformation> fused, ImageInterface img) {
+    if (fused.isEmpty()) {
+      return img;
+    }
+    Image result = ColorTransformation.applyAll(
+        fused.toArray(new ColorTransformation[0]), img.getImage());
+    fused.clear();
+    return result;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("OperationChain-%s", this.operations);
+  }
+}
@@ -44,14 +44,16 @@ public class RGB implements IRGB {
 
   @Override
   public int getValue(int index) {
-    int[] listOfRGB = new int[3];
-    listOfRGB[0] = this.red;
-    listOfRGB[1] = this.green;
-    listOfRGB[2] = this.blue;
-    if (index < 0 || index >= listOfRGB.length) {
-      throw new IllegalArgumentException("Invalid index.");
+    switch (index) {
+      case 0:
+        return this.red;
+      case 1:
+        return this.green;
+      case 2:
+        return this.blue;
+      default:
+        throw new IllegalArgumentException("Invalid index.");
     }
-    return listOfRGB[index];
   }
 
   /*
@@ -0,0 +1,73 @@
+package model;
+
+/**
+ * The filters an image can be resampled with when its size changes.
+ */
+public enum ResampleFilter {
+  /**
+   * Every new pixel is the average of the part of the image it covers, weighted by area. Best
+   * suited to large reductions, where it does not alias.
+   */
+  BOX(0.5),
+  /**
+   * Every new pixel mixes the four pixels around the spot it maps to. Downscale aligns the corners
+   * of both images, as the original downscale of the program did; Resize aligns pixel centers.
+   */
+  BILINEAR(1),
+  /**
+   * Cubic convolution over four pixels in each direction (Catmull-Rom), sharper than bilinear.
+   */
+  BICUBIC(2),
+  /**
+   * Windowed sinc over six pixels in each direction (Lanczos with three lobes), the sharpest of
+   * the filters.
+   */
+  LANCZOS(3);
+
+  private final double radius;
+
+  ResampleFilter(double radius) {
+    this.radius = radius;
+  }
+
+  /**
+   * Gets the distance from the center beyond which the filter weighs nothing, in source pixels
+   * when the image is not reduced.
+   *
+   * @return the radius of the filter
+   */
+  double radius() {
+    return this.radius;
+  }
+
+  /**
+   * Gets the weight of a source pixel at the given distance from the spot a new pixel maps to.
+   * The box filter is integrated over pixel areas instead and does not use this.
+   *
+   * @param x the distance in filter units
+   * @return the unnormalized weight
+   */
+  double weight(double x) {
+    x = Math.abs(x);
+    switch (this) {
+      case BILINEAR:
+        return x < 1 ? 1 - x : 0;
+      case BICUBIC:
+        if (x < 1) {
+          return (1.5 * x - 2.5) * x * x + 1;
+        }
+        return x < 2 ? ((-0.5 * x + 2.5) * x - 4) * x + 2 : 0;
+      case LANCZOS:
+        if (x == 0) {
+          return 1;
+        }
+        if (x >= radius) {
+          return 0;
+        }
+        double px = Math.PI * x;
+        return radius * Math.sin(px) * Math.sin(px / radius) / (px * px);
+      default:
+        return x <= 0.5 ? 1 : 0;
+    }
+  }
+}
@@ -0,0 +1,373 @@
+package model;
+
+import controller.ImageUtilAddition;
+
+/**
+ * The resampling engine behind Downscale and Resize. The weights every new column and every new
+ * row give to the source pixels are computed once per size change, then applied as a horizontal
+ * pass over the channel planes followed by a vertical pass, each split into bands of rows run in
+ * parallel. Images too large for memory are resampled the same way a strip of rows at a time.
+ *
+ * <p>When an image is reduced, the filters are stretched to cover all the source pixels that fall
+ * into a new pixel, so large reductions average instead of skipping pixels. Downscale asks for the
+ * corner-aligned bilinear mapping of the original downscale; everything else aligns pixel
+ * centers, which keeps enlargements symmetric.
+ *
+ * <p>Reductions start from the smallest level of the mipmap pyramid of the source that is still
+ * at least twice the new size, so they read a fraction of the pixels and the bilinear filter only
+ * ever skips pixels of an image already averaged down. Reductions by less than four keep starting
+ * from the source and give the same results as the original downscale.
+ */
+final class Resampler {
+
+  private Resampler() {
+  }
+
+  /**
+   * The source pixels and weights contributing to every new pixel along one direction.
+   */
+  private static final class Weights {
+
+    private final int taps; // the number of slots per new pixel, unused slots weigh zero
+    private final int[] indices;
+    private final double[] weights;
+
+    private Weights(int size, int taps) {
+      this.taps = taps;
+      this.indices = new int[size * taps];
+      this.weights = new double[size * taps];
+    }
+  }
+
+  /**
+   * Resamples an image to the given size, with the corner-aligned bilinear mapping of the original
+   * downscale.
+   *
+   * @param source      the image to resample
+   * @param newWidth    the width of the new image
+   * @param newHeight   the height of the new image
+   * @param filter      the filter to resample with
+   * @param parallelism the maximum number of threads to use
+   * @return the resampled image
+   */
+  static Image resample(Image source, int newWidth, int newHeight, ResampleFilter filter,
+      int parallelism) {
+    return resample(source, newWidth, newHeight, filter, true, parallelism);
+  }
+
+  /**
+   * Resamples an image to the given size.
+   *
+   * @param source        the image to resample
+   * @param newWidth      the width of the new image
+   * @param newHeight     the height of the new image
+   * @param filter        the filter to resample with
+   * @param cornerAligned whether the bilinear filter aligns the corners of both images instead of
+   *                      the pixel centers, ignored by the other filters
+   * @param parallelism   the maximum number of threads to use
+   * @return the resampled image
+   */
+  static Image resample(Image source, int newWidth, int newHeight, ResampleFilter filter,
+      boolean cornerAligned, int parallelism) {
+    int width = source.getWidth();
+    int height = source.getHeight();
+    int maxVal = Math.min(source.getMaxValue(), Image.MAX_CHANNEL_VALUE);
+    Weights columns = weights(filter, cornerAligned, width, newWidth);
+    Weights rows = weights(filter, cornerAligned, height, newHeight);
+    short[][] result = new short[Image.CHANNEL][newWidth * newHeight];
+    double[] between = new double[height * newWidth];
+    for (int c = 0; c < Image.CHANNEL; c++) {
+      short[] src = source.plane(c);
+      short[] dst = result[c];
+      RowBands.run(height, parallelism,
+          (from, to) -> horizontalPass(src, between, width, newWidth, columns, from, to));
+      RowBands.run(newHeight, parallelism,
+          (from, to) -> verticalPass(between, 0, dst, 0, newWidth, rows, maxVal, from, to));
+    }
+    return new Image(newWidth, newHeight, result, source.getMaxValue());
+  }
+
+  /**
+   * Resamples an image to the size of the destination a strip of new rows at a time, reading
+   * only the source rows every strip depends on, so neither image has to fit in memory. The
+   * result is the same as resampling the whole source at once, without the mipmap pyramid.
+   *
+   * @param source        the image to resample
+   * @param dest          the destination of the new image, of the new size
+   * @param filter        the filter to resample with
+   * @param cornerAligned whether the bilinear filter aligns the corners of both images instead of
+   *                      the pixel centers, ignored by the other filters
+   * @param parallelism   the maximum number of threads to use
+   */
+  static void resample(ImageInterface source, RowWriter dest, ResampleFilter filter,
+      boolean cornerAligned, int parallelism) {
+    int width = source.getWidth();
+    int height = source.getHeight();
+    int newWidth = dest.getWidth();
+    int newHeight = dest.getHeight();
+    int maxVal = Math.min(source.getMaxValue(), Image.MAX_CHANNEL_VALUE);
+    Weights columns = weights(filter, cornerAligned, width, newWidth);
+    Weights rows = weights(filter, cornerAligned, height, newHeight);
+    int[] row = new int[newWidth];
+    for (int start = 0; start < newHeight; ) {
+      // grow the strip of new rows while the source rows it reads stay within the budget
+      int first = firstSourceRow(rows, start);
+      int last = lastSourceRow(rows, start);
+      int end = start + 1;
+      while (end < newHeight) {
+        int nextFirst = Math.min(first, firstSourceRow(rows, end));
+        int nextLast = Math.max(last, lastSourceRow(rows, end));
+        if ((long) (nextLast - nextFirst + 1) * width > Strips.STRIP_PIXELS) {
+          break;
+        }
+        first = nextFirst;
+        last = nextLast;
+        end++;
+      }
+      Image strip = Strips.copy(source, first, last + 1);
+      int stripHeight = last - first + 1;
+      int from = start;
+      int sourceFrom = first;
+      double[] between = new double[stripHeight * newWidth];
+      short[] band = new short[(end - start) * newWidth];
+      for (int c = 0; c < Image.CHANNEL; c++) {
+        short[] src = strip.plane(c);
+        RowBands.run(stripHeight, parallelism,
+            (a, b) -> horizontalPass(src, between, width, newWidth, columns, a, b));
+        RowBands.run(end - start, parallelism, (a, b) -> verticalPass(between, sourceFrom, band,
+            from, newWidth, rows, maxVal, from + a, from + b));
+        for (int y = start; y < end; y++) {
+          for (int x = 0; x < newWidth; x++) {
+            row[x] = band[(y - start) * newWidth + x] & Image.MAX_CHANNEL_VALUE;
+          }
+          dest.setRow(y, c, row);
+        }
+      }
+      start = end;
+    }
+  }
+
+  /**
+   * Finds the first source row a new row reads.
+   *
+   * @param rows the weights of every new row
+   * @param y    the new row
+   * @return the lowest source row with a weight in the new row
+   */
+  private static int firstSourceRow(Weights rows, int y) {
+    int first = Integer.MAX_VALUE;
+    for (int k = y * rows.taps; k < (y + 1) * rows.taps; k++) {
+      if (rows.weights[k] != 0) {
+        first = Math.min(first, rows.indices[k]);
+      }
+    }
+    return first;
+  }
+
+  /**
+   * Finds the last source row a new row reads.
+   *
+   * @param rows the weights of every new row
+   * @param y    the new row
+   * @return the highest source row with a weight in the new row
+   */
+  private static int lastSourceRow(Weights rows, int y) {
+    int last = -1;
+    for (int k = y * rows.taps; k < (y + 1) * rows.taps; k++) {
+      if (rows.weights[k] != 0) {
+        last = Math.max(last, rows.indices[k]);
+      }
+    }
+    return last;
+  }
+
+  /**
+   * Finds the level of the mipmap pyramid of an image to start a reduction from: the smallest one
+   * whose sides are still at least twice the new sides.
+   *
+   * @param source    the image to reduce
+   * @param newWidth  the width of the new image
+   * @param newHeight the height of the new image
+   * @return the source itself or one of its cached reductions
+   */
+  static Image startingLevel(Image source, int newWidth, int newHeight) {
+    Image level = source;
+    while (level.getWidth() / 2 >= 2 * newWidth && level.getHeight() / 2 >= 2 * newHeight) {
+      level = level.halved();
+    }
+    return level;
+  }
+
+  /**
+   * Resamples the given rows of a plane along its width.
+   *
+   * @param src      the source plane
+   * @param dst      the plane receiving the rows at the new width
+   * @param width    the width of the source
+   * @param newWidth the new width
+   * @param columns  the weights of every new column
+   * @param from     the first row to resample
+   * @param to       the row after the last row to resample
+   */
+  private static void horizontalPass(short[] src, double[] dst, int width, int newWidth,
+      Weights columns, int from, int to) {
+    for (int y = from; y < to; y++) {
+      int rowOffset = y * width;
+      for (int x = 0; x < newWidth; x++) {
+        double sum = 0;
+        for (int k = x * columns.taps; k < (x + 1) * columns.taps; k++) {
+          sum += columns.weights[k] * (src[rowOffset + columns.indices[k]]
+              & Image.MAX_CHANNEL_VALUE);
+        }
+        dst[y * newWidth + x] = sum;
+      }
+    }
+  }
+
+  /**
+   * Resamples the given new rows along the height and stores the rounded, clamped results.
+   *
+   * @param src         the rows at the new width
+   * @param srcFirstRow the source row held at the start of src
+   * @param dst         the plane receiving the new image
+   * @param dstFirstRow the new row held at the start of dst
+   * @param newWidth    the new width
+   * @param rows        the weights of every new row
+   * @param maxVal      the maximum color value, results are clamped to it
+   * @param from        the first new row to compute
+   * @param to          the new row after the last new row to compute
+   */
+  private static void verticalPass(double[] src, int srcFirstRow, short[] dst, int dstFirstRow,
+      int newWidth, Weights rows, int maxVal, int from, int to) {
+    double[] sums = new double[newWidth];
+    for (int y = from; y < to; y++) {
+      for (int x = 0; x < newWidth; x++) {
+        sums[x] = 0;
+      }
+      for (int k = y * rows.taps; k < (y + 1) * rows.taps; k++) {
+        double weight = rows.weights[k];
+        if (weight == 0) {
+          continue;
+        }
+        int offset = (rows.indices[k] - srcFirstRow) * newWidth;
+        for (int x = 0; x < newWidth; x++) {
+          sums[x] += weight * src[offset + x];
+        }
+      }
+      for (int x = 0; x < newWidth; x++) {
+        dst[(y - dstFirstRow) * newWidth + x] = (short) ImageUtilAddition.clamp(
+            (int) Math.round(sums[x]), maxVal);
+      }
+    }
+  }
+
+  /**
+   * Computes the weights of every new pixel along one direction.
+   *
+   * @param filter        the filter to resample with
+   * @param cornerAligned whether the bilinear filter aligns the corners instead of the centers
+   * @param size          the number of source pixels along the direction
+   * @param newSize       the number of new pixels along the direction
+   * @return the weights of every new pixel
+   */
+  private static Weights weights(ResampleFilter filter, boolean cornerAligned, int size,
+      int newSize) {
+    if (filter == ResampleFilter.BOX) {
+      return boxWeights(size, newSize);
+    }
+    if (filter == ResampleFilter.BILINEAR && cornerAligned) {
+      return bilinearWeights(size, newSize);
+    }
+    return kernelWeights(filter, size, newSize);
+  }
+
+  /**
+   * Computes bilinear weights with the corner-aligned mapping of the original downscale: new
+   * pixel i maps to i / newSize * size and mixes the two source pixels around that spot, or takes
+   * the one it falls on exactly.
+   *
+   * @param size    the number of source pixels
+   * @param newSize the number of new pixels
+   * @return the weights of every new pixel
+   */
+  private static Weights bilinearWeights(int size, int newSize) {
+    Weights table = new Weights(newSize, 2);
+    for (int i = 0; i < newSize; i++) {
+      double position = ((double) i) / newSize * size;
+      double floor = Math.floor(position);
+      double ceil = Math.ceil(position);
+      table.indices[2 * i] = (int) floor;
+      table.indices[2 * i + 1] = Math.min((int) ceil, size - 1);
+      if (position == floor) {
+        table.weights[2 * i] = 1;
+      } else {
+        table.weights[2 * i] = ceil - position;
+        table.weights[2 * i + 1] = position - floor;
+      }
+    }
+    return table;
+  }
+
+  /**
+   * Computes area weights: every new pixel covers an interval of the source and every source
+   * pixel weighs the length it shares with that interval.
+   *
+   * @param size    the number of source pixels
+   * @param newSize the number of new pixels
+   * @return the weights of every new pixel
+   */
+  private static Weights boxWeights(int size, int newSize) {
+    double scale = (double) size / newSize;
+    Weights table = new Weights(newSize, (int) Math.ceil(scale) + 1);
+    for (int i = 0; i < newSize; i++) {
+      double low = i * scale;
+      double high = Math.min(size, (i + 1) * scale);
+      int k = i * table.taps;
+      for (int j = (int) Math.floor(low); j < high && k < (i + 1) * table.taps; j++) {
+        double overlap = Math.min(high, j + 1) - Math.max(low, j);
+        if (overlap > 0) {
+          table.indices[k] = j;
+          table.weights[k] = overlap / (high - low);
+          k++;
+        }
+      }
+    }
+    return table;
+  }
+
+  /**
+   * Computes the weights of a convolution filter, with pixel centers aligned and the filter
+   * stretched by the reduction factor when the image is reduced. Taps beyond the edges use the
+   * edge pixel, and the weights of each new pixel are normalized to add up to 1.
+   *
+   * @param filter  the filter to resample with
+   * @param size    the number of source pixels
+   * @param newSize the number of new pixels
+   * @return the weights of every new pixel
+   */
+  private static Weights kernelWeights(ResampleFilter filter, int size, int newSize) {
+    double scale = (double) size / newSize;
+    double stretch = Math.max(1, scale);
+    double support = filter.radius() * stretch;
+    Weights table = new Weights(newSize, (int) Math.ceil(2 * support) + 1);
+    for (int i = 0; i < newSize; i++) {
+      double center = (i + 0.5) * scale - 0.5;
+      int first = (int) Math.ceil(center - support);
+      int k = i * table.taps;
+      double total = 0;
+      for (int j = first; j <= center + support && k < (i + 1) * table.taps; j++) {
+        double weight = filter.weight((j - center) / stretch);
+        if (weight != 0) {
+          table.indices[k] = Math.min(size - 1, Math.max(0, j));
+          table.weights[k] = weight;
+          total += weight;
+          k++;
+        }
+      }
+      for (int t = i * table.taps; t < k; t++) {
+        table.weights[t] /= total;
+      }
+    }
+    return table;
+  }
+}
@@ -0,0 +1,94 @@
+package model;
+
+/**
+ * Represents a resizing image processing operation that enlarges or reduces an image to the given
+ * dimension, each side independently. The image is resampled by Resampler with one of the
+ * ResampleFilter filters, bicubic unless another one is chosen, with the pixel centers of both
+ * images aligned.
+ */
+public class Resize implements StreamingEditor {
+
+  private final int newHeight;
+  private final int newWidth;
+  private final ResampleFilter filter;
+  private final int parallelism;
+
+  /**
+   * Creates a resize operation that resamples the image to the given size with the bicubic
+   * filter.
+   *
+   * @param newHeight the new height of the image in integer
+   * @param newWidth  the new width of the image in integer
+   * @throws IllegalArgumentException if either height or width is invalid
+   */
+  public Resize(int newHeight, int newWidth) {
+    this(newHeight, newWidth, ResampleFilter.BICUBIC);
+  }
+
+  /**
+   * Creates a resize operation that resamples the image with the given filter.
+   *
+   * @param newHeight the new height of the image in integer
+   * @param newWidth  the new width of the image in integer
+   * @param filter    the filter to resample with
+   * @throws IllegalArgumentException if either height or width is invalid or the filter is null
+   */
+  public Resize(int newHeight, int newWidth, ResampleFilter filter) {
+    this(newHeight, newWidth, filter, RowBands.defaultParallelism());
+  }
+
+  /**
+   * Creates a resize operation that resamples the image with the given filter on up to the given
+   * number of threads. The result does not depend on the number of threads.
+   *
+   * @param newHeight   the new height of the image in integer
+   * @param newWidth    the new width of the image in integer
+   * @param filter      the filter to resample with
+   * @param parallelism the maximum number of threads to use, 1 resamples on the calling thread
+   * @throws IllegalArgumentException if either height or width is invalid, the filter is null or
+   *                                  parallelism is less than 1
+   */
+  public Resize(int newHeight, int newWidth, ResampleFilter filter, int parallelism) {
+    if (newHeight <= 0 || newWidth <= 0) {
+      throw new IllegalArgumentException("New dimension is too small.");
+    }
+    if (filter == null) {
+      throw new IllegalArgumentException("Filter can't be null.");
+    }
+    if (parallelism < 1) {
+      throw new IllegalArgumentException("Parallelism must be at least 1.");
+    }
+    this.newHeight = newHeight;
+    this.newWidth = newWidth;
+    this.filter = filter;
+    this.parallelism = parallelism;
+  }
+
+  @Override
+  public ImageInterface apply(ImageInterface img) {
+    if (img == null) {
+      throw new IllegalArgumentException("Null image.");
+    }
+    Image source = Resampler.startingLevel(img.getImage(), newWidth, newHeight);
+    return Resampler.resample(source, newWidth, newHeight, filter, false, parallelism);
+  }
+
+  /**
+   * Resamples the image a strip of rows at a time into the destination, reading only the rows
+   * every strip depends on. The mipmap pyramid is not used, so large reductions read every pixel
+   * of the image once.
+   *
+   * @param img  the image to be edited
+   * @param dest the destination of the new image, of the new size
+   */
+  @Override
+  public void apply(ImageInterface img, RowWriter dest) {
+    if (img == null || dest == null) {
+      throw new IllegalArgumentException("Null image.");
+    }
+    if (dest.getWidth() != newWidth || dest.getHeight() != newHeight) {
+      throw new IllegalArgumentException("Destination must have the new size.");
+    }
+    Resampler.resample(img, dest, filter, false, parallelism);
+  }
+}
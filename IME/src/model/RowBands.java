@@ -0,0 +1,114 @@
+package model;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Splits the rows of an image into bands and runs a task over every band, on a fork-join pool when
+ * more than one thread is allowed. Every row is handed to exactly one band, so a task that only
+ * writes the rows it is given produces the same result whatever the number of threads.
+ */
+final class RowBands {
+
+  // a band is never split below this many rows, smaller bands cost more to schedule than to run
+  private static final int MIN_BAND_ROWS = 16;
+
+  /**
+   * Work done on a band of rows.
+   */
+  interface Task {
+
+    /**
+     * Processes the rows from (inclusive) to (exclusive).
+     *
+     * @param from the first row of the band
+     * @param to   the row after the last row of the band
+     */
+    void run(int from, int to);
+  }
+
+  private RowBands() {
+  }
+
+  /**
+   * Gets the number of threads used when the caller does not choose one. It is the parallelism of
+   * the common pool, so that default runs share that pool instead of starting threads of their own.
+   *
+   * @return the parallelism of the common fork-join pool, at least 1
+   */
+  static int defaultParallelism() {
+    return Math.max(1, ForkJoinPool.getCommonPoolParallelism());
+  }
+
+  /**
+   * Runs the given task over all rows, using at most the given number of threads.
+   *
+   * @param rows        the number of rows to process
+   * @param parallelism the maximum number of threads, 1 runs the task on the calling thread
+   * @param task        the work done on each band
+   */
+  static void run(int rows, int parallelism, Task task) {
+    run(rows, MIN_BAND_ROWS, parallelism, task);
+  }
+
+  /**
+   * Runs the given task over all rows, using at most the given number of threads and never
+   * splitting below the given number of rows. Callers whose rows are expensive, like rows of
+   * tiles, allow smaller bands than the default.
+   *
+   * @param rows        the number of rows to process
+   * @param minBandRows the smallest number of rows worth a band of its own, starting from 1
+   * @param parallelism the maximum number of threads, 1 runs the task on the calling thread
+   * @param task        the work done on each band
+   */
+  static void run(int rows, int minBandRows, int parallelism, Task task) {
+    if (parallelism <= 1 || rows < 2 * minBandRows) {
+      task.run(0, rows);
+      return;
+    }
+    // a few bands per thread so that uneven bands still keep every thread busy
+    int bands = Math.min(parallelism * 4, rows / minBandRows);
+    int bandRows = (rows + bands - 1) / bands;
+    // only a count other than the default pays for a pool of its own
+    if (parallelism == defaultParallelism()) {
+      ForkJoinPool.commonPool().invoke(new Band(task, 0, rows, bandRows));
+    } else {
+      ForkJoinPool pool = new ForkJoinPool(parallelism);
+      try {
+        pool.invoke(new Band(task, 0, rows, bandRows));
+      } finally {
+        pool.shutdown();
+      }
+    }
+  }
+
+  /**
+   * A range of rows that splits itself in halves until it is no bigger than one band.
+   */
+  private static final class Band extends RecursiveAction {
+
+    private static final long serialVersionUID = 1L;
+
+    private final Task task;
+    private final int from;
+    private final int to;
+    private final int bandRows;
+
+    private Band(Task task, int from, int to, int bandRows) {
+      this.task = task;
+      this.from = from;
+      this.to = to;
+      this.bandRows = bandRows;
+    }
+
+    @Override
+    protected void compute() {
+      if (to - from <= bandRows) {
+        task.run(from, to);
+      } else {
+        int middle = from + (to - from) / 2;
+        invokeAll(new Band(task, from, middle, bandRows), new Band(task, middle, to, bandRows));
+      }
+    }
+  }
+}
@@ -0,0 +1,34 @@
+package model;
+
+/**
+ * Represents a destination that an image can be written into one row at a time, like an image
+ * buffer in memory or a memory-mapped image file. Streaming editors write their results through
+ * this interface so the whole result never has to be held in memory.
+ */
+public interface RowWriter {
+
+  /**
+   * Get the width of the destination.
+   *
+   * @return the width in pixels
+   */
+  int getWidth();
+
+  /**
+   * Get the height of the destination.
+   *
+   * @return the height in pixels
+   */
+  int getHeight();
+
+  /**
+   * Sets one color channel of a whole row of pixels from the given array.
+   *
+   * @param y       the y-coordinate of the row
+   * @param channel the color index (0-red 1-green 2-blue)
+   * @param src     the color values of the row, at least as long as the width of the destination
+   * @throws IllegalArgumentException if the row or channel is invalid, src is too small or a
+   *                                  value is out of range
+   */
+  void setRow(int y, int channel, int[] src);
+}
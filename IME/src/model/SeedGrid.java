@@ -0,0 +1,113 @@
+package model;
+
+/**
+ * A uniform grid of buckets over the seeds of a mosaic, used to find the seed nearest to a pixel
+ * without comparing the pixel with every seed. The cells are sized so that a cell holds about one
+ * seed, and a query only visits the rings of cells around the pixel that can still hold a closer
+ * seed, so a query costs about the same whatever the number of seeds.
+ *
+ * <p>Distances are compared as squared integers. When several seeds are equally near, the one
+ * with the lowest index wins, so the answer does not depend on the layout of the grid.
+ */
+final class SeedGrid {
+
+  private final int[] rows;
+  private final int[] columns;
+  private final int cellSize;
+  private final int gridRows;
+  private final int gridColumns;
+  // the seeds of cell c are order[cellStart[c]] up to order[cellStart[c + 1] - 1]
+  private final int[] cellStart;
+  private final int[] order;
+
+  /**
+   * Builds the grid over the given seeds of an image.
+   *
+   * @param rows    the row of every seed
+   * @param columns the column of every seed
+   * @param height  the height of the image
+   * @param width   the width of the image
+   */
+  SeedGrid(int[] rows, int[] columns, int height, int width) {
+    this.rows = rows;
+    this.columns = columns;
+    this.cellSize = Math.max(1, (int) Math.sqrt((double) width * height / rows.length));
+    this.gridRows = (height + cellSize - 1) / cellSize;
+    this.gridColumns = (width + cellSize - 1) / cellSize;
+    // counting sort of the seeds by cell
+    this.cellStart = new int[gridRows * gridColumns + 1];
+    for (int s = 0; s < rows.length; s++) {
+      cellStart[cell(rows[s], columns[s]) + 1]++;
+    }
+    for (int c = 0; c < gridRows * gridColumns; c++) {
+      cellStart[c + 1] += cellStart[c];
+    }
+    this.order = new int[rows.length];
+    int[] next = new int[gridRows * gridColumns];
+    System.arraycopy(cellStart, 0, next, 0, next.length);
+    for (int s = 0; s < rows.length; s++) {
+      order[next[cell(rows[s], columns[s])]++] = s;
+    }
+  }
+
+  /**
+   * Gets the cell holding the given position.
+   *
+   * @param row    the row of the position
+   * @param column the column of the position
+   * @return the index of the cell
+   */
+  private int cell(int row, int column) {
+    return (row / cellSize) * gridColumns + column / cellSize;
+  }
+
+  /**
+   * Finds the seed nearest to the given pixel.
+   *
+   * @param row    the row of the pixel
+   * @param column the column of the pixel
+   * @return the index of the nearest seed, the lowest index among equally near seeds
+   */
+  int nearest(int row, int column) {
+    int cellRow = row / cellSize;
+    int cellColumn = column / cellSize;
+    int best = -1;
+    long bestDistance = Long.MAX_VALUE;
+    for (int ring = 0; ; ring++) {
+      int top = cellRow - ring;
+      int bottom = cellRow + ring;
+      int left = cellColumn - ring;
+      int right = cellColumn + ring;
+      for (int r = Math.max(0, top); r <= Math.min(gridRows - 1, bottom); r++) {
+        // inner rows of the ring only have their two end cells on the ring
+        int step = (r == top || r == bottom) ? 1 : Math.max(1, right - left);
+        for (int c = left; c <= right; c += step) {
+          if (c < 0 || c >= gridColumns) {
+            continue;
+          }
+          int cell = r * gridColumns + c;
+          for (int k = cellStart[cell]; k < cellStart[cell + 1]; k++) {
+            int s = order[k];
+            long dr = rows[s] - row;
+            long dc = columns[s] - column;
+            long distance = dr * dr + dc * dc;
+            if (distance < bestDistance || (distance == bestDistance && s < best)) {
+              bestDistance = distance;
+              best = s;
+            }
+          }
+        }
+      }
+      if (top <= 0 && left <= 0 && bottom >= gridRows - 1 && right >= gridColumns - 1) {
+        return best;
+      }
+      // any seed outside the rings visited so far is at least this far along a row or a column
+      long reach = Math.min(
+          Math.min(row - (long) top * cellSize + 1, (long) (bottom + 1) * cellSize - row),
+          Math.min(column - (long) left * cellSize + 1, (long) (right + 1) * cellSize - column));
+      if (best >= 0 && bestDistance < reach * reach) {
+        return best;
+      }
+    }
+  }
+}
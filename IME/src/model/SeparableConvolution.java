@@ -0,0 +1,186 @@
+package model;
+
+/**
+ * The convolution engine used by Filtering for separable kernels, kernels that are the outer
+ * product of a column of weights and a row of weights. Such a kernel is applied as a horizontal
+ * pass with the row weights followed by a vertical pass with the column weights, so a k x k
+ * kernel costs 2k multiplications per pixel instead of k * k.
+ *
+ * <p>Taps falling outside the image count as zero, as in Convolution. The intermediate result is
+ * kept in doubles and is only truncated after the second pass, so the result equals the full 2D
+ * convolution up to floating-point rounding, and exactly when the weights are sums of powers of
+ * two like the blur kernel.
+ */
+final class SeparableConvolution {
+
+  // relative difference under which a kernel entry counts as equal to the product of its weights
+  private static final double TOLERANCE = 1e-12;
+
+  private final double[] vertical;
+  private final double[] horizontal;
+  private final int center;
+
+  /**
+   * Constructs an engine for the kernel whose entry (i, j) is vertical[i] * horizontal[j].
+   *
+   * @param vertical   the column of weights, applied along the height of the image
+   * @param horizontal the row of weights, applied along the width of the image
+   */
+  SeparableConvolution(double[] vertical, double[] horizontal) {
+    this.vertical = vertical.clone();
+    this.horizontal = horizontal.clone();
+    this.center = vertical.length / 2;
+  }
+
+  /**
+   * Gets the number of taps on each side of the center of the kernel.
+   *
+   * @return the radius of the kernel
+   */
+  int radius() {
+    return this.center;
+  }
+
+  /**
+   * Finds the column and row weights of the given square kernel if it is separable.
+   *
+   * @param kernel the square kernel to decompose
+   * @return an engine for the kernel, or null if the kernel is not separable
+   */
+  static SeparableConvolution detect(double[][] kernel) {
+    int size = kernel.length;
+    // the largest entry gives the most accurate factors
+    int pivotRow = 0;
+    int pivotColumn = 0;
+    for (int i = 0; i < size; i++) {
+      for (int j = 0; j < size; j++) {
+        if (Math.abs(kernel[i][j]) > Math.abs(kernel[pivotRow][pivotColumn])) {
+          pivotRow = i;
+          pivotColumn = j;
+        }
+      }
+    }
+    double pivot = kernel[pivotRow][pivotColumn];
+    if (pivot == 0) {
+      return null;
+    }
+    double[] vertical = new double[size];
+    double[] horizontal = new double[size];
+    for (int i = 0; i < size; i++) {
+      vertical[i] = kernel[i][pivotColumn];
+      horizontal[i] = kernel[pivotRow][i] / pivot;
+    }
+    for (int i = 0; i < size; i++) {
+      for (int j = 0; j < size; j++) {
+        if (Math.abs(kernel[i][j] - vertical[i] * horizontal[j]) > TOLERANCE * Math.abs(pivot)) {
+          return null;
+        }
+      }
+    }
+    return new SeparableConvolution(vertical, horizontal);
+  }
+
+  /**
+   * Convolves one channel plane of an image.
+   *
+   * @param src         the source plane
+   * @param dst         the plane receiving the filtered values
+   * @param width       the width of the image
+   * @param height      the height of the image
+   * @param maxVal      the maximum color value, results are clamped to it
+   * @param parallelism the maximum number of threads to use
+   */
+  void apply(short[] src, short[] dst, int width, int height, int maxVal, int parallelism) {
+    double[] rows = new double[width * height];
+    RowBands.run(height, parallelism, (from, to) -> horizontalPass(src, rows, width, from, to));
+    RowBands.run(height, parallelism,
+        (from, to) -> verticalPass(rows, dst, width, height, maxVal, from, to));
+  }
+
+  /**
+   * Applies the row weights along the given rows of the source plane.
+   *
+   * @param src   the source plane
+   * @param dst   the intermediate plane receiving the weighted sums
+   * @param width the width of the image
+   * @param from  the first row to filter
+   * @param to    the row after the last row to filter
+   */
+  private void horizontalPass(short[] src, double[] dst, int width, int from, int to) {
+    int left = Math.min(center, width);
+    int right = Math.max(left, width - center);
+    for (int y = from; y < to; y++) {
+      int rowOffset = y * width;
+      for (int j = 0; j < horizontal.length; j++) {
+        double val = horizontal[j];
+        int offset = rowOffset - center + j;
+        for (int x = left; x < right; x++) {
+          dst[rowOffset + x] += val * (src[offset + x] & Image.MAX_CHANNEL_VALUE);
+        }
+      }
+      for (int x = 0; x < left; x++) {
+        dst[rowOffset + x] = horizontalBorder(src, width, rowOffset, x);
+      }
+      for (int x = right; x < width; x++) {
+        dst[rowOffset + x] = horizontalBorder(src, width, rowOffset, x);
+      }
+    }
+  }
+
+  /**
+   * Computes the horizontal sum of a pixel whose row weights may reach outside of the image.
+   *
+   * @param src       the source plane
+   * @param width     the width of the image
+   * @param rowOffset the index of the first pixel of the row in the plane
+   * @param x         the horizontal coordinate of the pixel
+   * @return the weighted sum of the taps that fall inside the image
+   */
+  private double horizontalBorder(short[] src, int width, int rowOffset, int x) {
+    double sum = 0;
+    for (int j = 0; j < horizontal.length; j++) {
+      int moveX = x - center + j;
+      if (moveX >= 0 && moveX < width) {
+        sum += horizontal[j] * (src[rowOffset + moveX] & Image.MAX_CHANNEL_VALUE);
+      }
+    }
+    return sum;
+  }
+
+  /**
+   * Applies the column weights along the given rows of the intermediate plane and stores the
+   * clamped results.
+   *
+   * @param src    the intermediate plane from the horizontal pass
+   * @param dst    the plane receiving the filtered values
+   * @param width  the width of the image
+   * @param height the height of the image
+   * @param maxVal the maximum color value, results are clamped to it
+   * @param from   the first row to filter
+   * @param to     the row after the last row to filter
+   */
+  private void verticalPass(double[] src, short[] dst, int width, int height, int maxVal,
+      int from, int to) {
+    double[] sums = new double[width];
+    for (int y = from; y < to; y++) {
+      for (int x = 0; x < width; x++) {
+        sums[x] = 0;
+      }
+      for (int i = 0; i < vertical.length; i++) {
+        int moveY = y - center + i;
+        if (moveY < 0 || moveY >= height) {
+          continue;
+        }
+        double val = vertical[i];
+        int offset = moveY * width;
+        for (int x = 0; x < width; x++) {
+          sums[x] += val * src[offset + x];
+        }
+      }
+      int rowOffset = y * width;
+      for (int x = 0; x < width; x++) {
+        dst[rowOffset + x] = Convolution.toChannel(sums[x], maxVal);
+      }
+    }
+  }
+}
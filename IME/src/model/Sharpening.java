@@ -9,10 +9,21 @@ public class Sharpening extends Filtering {
    * Constructs a sharpening operation with a default kernel.
    */
   public Sharpening() {
+    this(RowBands.defaultParallelism());
+  }
+
+  /**
+   * Constructs a sharpening operation with a default kernel that runs on up to the given number
+   * of threads.
+   *
+   * @param parallelism the maximum number of threads to use, 1 sharpens on the calling thread
+   * @throws IllegalArgumentException if parallelism is less than 1
+   */
+  public Sharpening(int parallelism) {
     super(new double[][]{{-0.125, -0.125, -0.125, -0.125, -0.125},
         {-0.125, 0.25, 0.25, 0.25, -0.125},
         {-0.125, 0.25, 1, 0.25, -0.125},
         {-0.125, 0.25, 0.25, 0.25, -0.125},
-        {-0.125, -0.125, -0.125, -0.125, -0.125}});
+        {-0.125, -0.125, -0.125, -0.125, -0.125}}, parallelism);
   }
 }
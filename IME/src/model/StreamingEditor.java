@@ -0,0 +1,21 @@
+package model;
+
+/**
+ * Represents an image editor that can also stream its result: the source is read and the result
+ * written a band of rows at a time, so neither has to fit in memory. This is what lets an editor
+ * run over a memory-mapped image larger than the heap and write into another one.
+ */
+public interface StreamingEditor extends ImageEditors {
+
+  /**
+   * Applies the editor to the given image and writes the result into the given destination, row
+   * by row. Only a band of rows of the source is held in memory at a time.
+   *
+   * @param img  the image to be edited
+   * @param dest the destination of the result, of the size of the result
+   * @throws IllegalArgumentException if either argument is null or the destination does not have
+   *                                  the size of the result
+   * @throws IllegalStateException    if the editor cannot be applied to the image
+   */
+  void apply(ImageInterface img, RowWriter dest);
+}
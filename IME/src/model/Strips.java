@@ -0,0 +1,68 @@
+package model;
+
+/**
+ * Streams an editor over an image one strip of rows at a time. Every strip is read together with
+ * the rows around it that its result depends on, edited in memory, and only its own rows of the
+ * result are written to the destination, so the result is the same as editing the whole image at
+ * once while only a strip is ever held in memory.
+ */
+final class Strips {
+
+  // the number of pixels aimed at per strip, about 24 MB of channel planes
+  static final int STRIP_PIXELS = 1 << 22;
+
+  private Strips() {
+  }
+
+  /**
+   * Edits an image strip by strip into a destination of the same size.
+   *
+   * @param editor the editor to apply to every strip
+   * @param source the image to edit
+   * @param dest   the destination of the result
+   * @param reach  the number of rows above and below a row of the result depends on
+   * @throws IllegalArgumentException if the destination does not have the size of the source
+   */
+  static void edit(ImageEditors editor, ImageInterface source, RowWriter dest, int reach) {
+    int width = source.getWidth();
+    int height = source.getHeight();
+    if (dest.getWidth() != width || dest.getHeight() != height) {
+      throw new IllegalArgumentException("Destination must have the size of the image.");
+    }
+    int rows = Math.max(Math.max(1, STRIP_PIXELS / width), 4 * reach);
+    int[] row = new int[width];
+    for (int from = 0; from < height; from += rows) {
+      int to = Math.min(height, from + rows);
+      int first = Math.max(0, from - reach);
+      ImageInterface strip = copy(source, first, Math.min(height, to + reach));
+      ImageInterface edited = editor.apply(strip);
+      for (int y = from; y < to; y++) {
+        for (int c = 0; c < Image.CHANNEL; c++) {
+          edited.getRow(y - first, c, row);
+          dest.setRow(y, c, row);
+        }
+      }
+    }
+  }
+
+  /**
+   * Copies the given rows of an image into a new image.
+   *
+   * @param source the image to copy from
+   * @param from   the first row to copy
+   * @param to     the row after the last row to copy
+   * @return an image holding the rows, with the maximum value of the source
+   */
+  static Image copy(ImageInterface source, int from, int to) {
+    int width = source.getWidth();
+    ImageBuffer buffer = new ImageBuffer(width, to - from, source.getMaxValue());
+    int[] row = new int[width];
+    for (int y = from; y < to; y++) {
+      for (int c = 0; c < Image.CHANNEL; c++) {
+        source.getRow(y, c, row);
+        buffer.setRow(y - from, c, row);
+      }
+    }
+    return buffer.toImage();
+  }
+}
@@ -0,0 +1,226 @@
+package model;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Holds the tiles of TiledImages within a memory budget. The tiles read most recently stay on the
+ * heap; when the tiles on the heap take more than the budget, the least recently used ones are
+ * paged out to a spill file on local disk and read back the next time they are needed.
+ *
+ * <p>Tiles never change once created, so a tile is written to the spill file at most once and
+ * dropping it from the heap again later costs nothing. The space of a tile in the spill file is
+ * reused once its image is no longer referenced. The spill file is a temporary file, created the
+ * first time a tile is paged out and deleted when the program exits.
+ */
+public class TileStore {
+
+  /**
+   * A rectangle of pixels of an image, on the heap or paged out to the spill file.
+   */
+  static final class Tile {
+
+    private final int width;
+    private final int height;
+    private short[][] data; // the channels of the tile in row order, null when paged out
+    private long slot; // the position of the tile in the spill file, -1 if never written
+
+    /**
+     * Constructs a tile on the heap.
+     *
+     * @param width  the width of the tile
+     * @param height the height of the tile
+     * @param data   the channels of the tile in row order
+     */
+    Tile(int width, int height, short[][] data) {
+      this.width = width;
+      this.height = height;
+      this.data = data;
+      this.slot = -1;
+    }
+
+    /**
+     * Gets the number of bytes the tile takes on the heap or in the spill file.
+     *
+     * @return the number of bytes
+     */
+    private int bytes() {
+      return Image.CHANNEL * width * height * Short.BYTES;
+    }
+  }
+
+  private final long budget;
+  private final Map<Tile, Boolean> resident; // the tiles on the heap, least recently used first
+  private long residentBytes;
+  private final Map<Integer, Deque<Long>> freeSlots; // reusable spill file space by slot size
+  private FileChannel spill; // null until the first tile is paged out
+  private long spillLength;
+
+  /**
+   * Constructs a store keeping up to the given number of bytes of tiles on the heap.
+   *
+   * @param memoryBudget the number of bytes of tiles kept on the heap
+   * @throws IllegalArgumentException if the budget is negative
+   */
+  public TileStore(long memoryBudget) {
+    if (memoryBudget < 0) {
+      throw new IllegalArgumentException("Memory budget can't be negative.");
+    }
+    this.budget = memoryBudget;
+    this.resident = new LinkedHashMap<>(16, 0.75f, true);
+    this.residentBytes = 0;
+    this.freeSlots = new LinkedHashMap<>();
+    this.spill = null;
+    this.spillLength = 0;
+  }
+
+  /**
+   * Gets the number of bytes of tiles on the heap.
+   *
+   * @return the number of bytes
+   */
+  public synchronized long getResidentBytes() {
+    return this.residentBytes;
+  }
+
+  /**
+   * Gets the length of the spill file, which only grows when no paged out tile can be replaced.
+   *
+   * @return the number of bytes of the spill file, 0 if nothing was paged out
+   */
+  public synchronized long getSpillLength() {
+    return this.spillLength;
+  }
+
+  /**
+   * Adds a new tile on the heap, paging out the least recently used tiles if needed.
+   *
+   * @param tile the new tile
+   * @throws IllegalStateException if a tile cannot be written to the spill file
+   */
+  synchronized void add(Tile tile) {
+    resident.put(tile, Boolean.TRUE);
+    residentBytes += tile.bytes();
+    trim();
+  }
+
+  /**
+   * Gets the pixels of a tile, reading it back from the spill file if it was paged out. The
+   * returned channels stay valid even if the tile is paged out again.
+   *
+   * @param tile the tile
+   * @return the channels of the tile in row order
+   * @throws IllegalStateException if the tile cannot be read from or written to the spill file
+   */
+  synchronized short[][] load(Tile tile) {
+    short[][] data = tile.data;
+    if (data != null) {
+      resident.get(tile); // most recently used now
+      return data;
+    }
+    ByteBuffer raw = ByteBuffer.allocate(tile.bytes());
+    try {
+      while (raw.hasRemaining()) {
+        if (spill.read(raw, tile.slot + raw.position()) < 0) {
+          throw new IOException("Spill file is too short.");
+        }
+      }
+    } catch (IOException e) {
+      throw new IllegalStateException("Could not read a tile back: " + e.getMessage());
+    }
+    raw.flip();
+    int pixels = tile.width * tile.height;
+    data = new short[Image.CHANNEL][pixels];
+    for (int c = 0; c < Image.CHANNEL; c++) {
+      raw.asShortBuffer().get(data[c]);
+      raw.position(raw.position() + pixels * Short.BYTES);
+    }
+    tile.data = data;
+    add(tile);
+    return data;
+  }
+
+  /**
+   * Drops the tiles of an image that is no longer referenced, making their spill file space
+   * available to new tiles.
+   *
+   * @param tiles the tiles of the image
+   */
+  synchronized void release(Tile[] tiles) {
+    for (Tile tile : tiles) {
+      if (resident.remove(tile) != null) {
+        residentBytes -= tile.bytes();
+      }
+      if (tile.slot >= 0) {
+        freeSlots.computeIfAbsent(tile.bytes(), size -> new ArrayDeque<>()).push(tile.slot);
+        tile.slot = -1;
+      }
+      tile.data = null;
+    }
+  }
+
+  /**
+   * Pages out the least recently used tiles until the tiles on the heap fit in the budget.
+   *
+   * @throws IllegalStateException if a tile cannot be written to the spill file
+   */
+  private void trim() {
+    Iterator<Tile> oldest = resident.keySet().iterator();
+    while (residentBytes > budget && oldest.hasNext()) {
+      Tile tile = oldest.next();
+      if (tile.slot < 0) {
+        write(tile);
+      }
+      oldest.remove();
+      residentBytes -= tile.bytes();
+      tile.data = null;
+    }
+  }
+
+  /**
+   * Writes a tile to the spill file, in the space of a released tile of the same size if there is
+   * one.
+   *
+   * @param tile the tile, on the heap
+   * @throws IllegalStateException if the tile cannot be written
+   */
+  private void write(Tile tile) {
+    int pixels = tile.width * tile.height;
+    ByteBuffer raw = ByteBuffer.allocate(tile.bytes());
+    for (int c = 0; c < Image.CHANNEL; c++) {
+      raw.asShortBuffer().put(tile.data[c]);
+      raw.position(raw.position() + pixels * Short.BYTES);
+    }
+    raw.flip();
+    try {
+      if (spill == null) {
+        File file = File.createTempFile("tiles", ".spill");
+        file.deleteOnExit();
+        spill = FileChannel.open(file.toPath(), StandardOpenOption.READ,
+            StandardOpenOption.WRITE);
+      }
+      Deque<Long> free = freeSlots.get(tile.bytes());
+      long slot;
+      if (free != null && !free.isEmpty()) {
+        slot = free.pop();
+      } else {
+        slot = spillLength;
+        spillLength += tile.bytes();
+      }
+      while (raw.hasRemaining()) {
+        spill.write(raw, slot + raw.position());
+      }
+      tile.slot = slot;
+    } catch (IOException e) {
+      throw new IllegalStateException("Could not page out a tile: " + e.getMessage());
+    }
+  }
+}
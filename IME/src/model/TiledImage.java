@@ -0,0 +1,213 @@
+package model;
+
+import java.lang.ref.Cleaner;
+
+/**
+ * Represents an image stored as square tiles in a TileStore, so that only the tiles being read
+ * are on the heap and the rest can be paged out to disk. Reading a pixel or a row reads back the
+ * tiles it falls in if they were paged out.
+ *
+ * <p>Like Image, a tiled image never changes once created. The tiles are given back to the store
+ * once the image is no longer referenced. A tiled image is equal to an Image or a TiledImage
+ * holding the same pixels, and prints the same.
+ */
+public final class TiledImage implements ImageInterface {
+
+  /**
+   * The width and height of a tile in pixels.
+   */
+  public static final int TILE_SIZE = 256;
+
+  private static final Cleaner CLEANER = Cleaner.create();
+
+  private final int width;
+  private final int height;
+  private final int maxVal;
+  private final int tilesAcross;
+  private final TileStore store;
+  private final TileStore.Tile[] tiles; // in row order
+  private int hash; // computed the first time it is asked for, 0 until then
+
+  /**
+   * Copies an image into tiles held by the given store.
+   *
+   * @param source the image to copy
+   * @param store  the store holding the tiles
+   * @throws IllegalArgumentException if either argument is null
+   * @throws IllegalStateException    if tiles cannot be paged out to the spill file
+   */
+  public TiledImage(ImageInterface source, TileStore store) {
+    if (source == null || store == null) {
+      throw new IllegalArgumentException("Input Invalid");
+    }
+    this.width = source.getWidth();
+    this.height = source.getHeight();
+    this.maxVal = source.getMaxValue();
+    this.tilesAcross = (width + TILE_SIZE - 1) / TILE_SIZE;
+    this.store = store;
+    int tilesDown = (height + TILE_SIZE - 1) / TILE_SIZE;
+    this.tiles = new TileStore.Tile[tilesAcross * tilesDown];
+    int[] row = new int[width];
+    for (int ty = 0; ty < tilesDown; ty++) {
+      // a band of tiles is copied at a time so that the source is read row by row
+      int top = ty * TILE_SIZE;
+      int tileHeight = Math.min(TILE_SIZE, height - top);
+      short[][][] band = new short[tilesAcross][Image.CHANNEL][];
+      for (int tx = 0; tx < tilesAcross; tx++) {
+        for (int c = 0; c < Image.CHANNEL; c++) {
+          band[tx][c] = new short[tileWidth(tx) * tileHeight];
+        }
+      }
+      for (int y = 0; y < tileHeight; y++) {
+        for (int c = 0; c < Image.CHANNEL; c++) {
+          source.getRow(top + y, c, row);
+          for (int tx = 0; tx < tilesAcross; tx++) {
+            int tileWidth = tileWidth(tx);
+            short[] dest = band[tx][c];
+            for (int x = 0; x < tileWidth; x++) {
+              dest[y * tileWidth + x] = Image.toChannel(row[tx * TILE_SIZE + x]);
+            }
+          }
+        }
+      }
+      for (int tx = 0; tx < tilesAcross; tx++) {
+        TileStore.Tile tile = new TileStore.Tile(tileWidth(tx), tileHeight, band[tx]);
+        tiles[ty * tilesAcross + tx] = tile;
+        store.add(tile);
+      }
+    }
+    TileStore.Tile[] owned = this.tiles;
+    CLEANER.register(this, () -> store.release(owned));
+  }
+
+  @Override
+  public RGB getPixel(int x, int y) {
+    return new RGB(getChannel(x, y, 0), getChannel(x, y, 1), getChannel(x, y, 2));
+  }
+
+  @Override
+  public int getChannel(int x, int y, int channel) {
+    if (y < 0 || y >= height || x < 0 || x >= width) {
+      throw new IllegalArgumentException("Index out of bounds.");
+    }
+    if (channel < 0 || channel >= Image.CHANNEL) {
+      throw new IllegalArgumentException("Invalid index.");
+    }
+    int tx = x / TILE_SIZE;
+    short[] plane = store.load(tiles[y / TILE_SIZE * tilesAcross + tx])[channel];
+    return plane[y % TILE_SIZE * tileWidth(tx) + x % TILE_SIZE] & Image.MAX_CHANNEL_VALUE;
+  }
+
+  @Override
+  public void getRow(int y, int channel, int[] dest) {
+    if (dest == null || dest.length < width) {
+      throw new IllegalArgumentException("Destination row is too small.");
+    }
+    getRow(y, channel, 0, width, dest);
+  }
+
+  /**
+   * Gets one color channel of part of a row of pixels, reading only the tiles the part falls in.
+   *
+   * @param y       the y-coordinate of the row
+   * @param channel the color index (0-red 1-green 2-blue)
+   * @param from    the x-coordinate of the first pixel, inclusive
+   * @param to      the x-coordinate of the last pixel, exclusive
+   * @param dest    receives the color value of pixel x at index x
+   * @throws IllegalArgumentException if the row, channel or part is out of bounds
+   */
+  void getRow(int y, int channel, int from, int to, int[] dest) {
+    if (y < 0 || y >= height || channel < 0 || channel >= Image.CHANNEL || from < 0
+        || to > width || from > to) {
+      throw new IllegalArgumentException("Index out of bounds.");
+    }
+    int x = from;
+    while (x < to) {
+      int tx = x / TILE_SIZE;
+      int tileWidth = tileWidth(tx);
+      short[] plane = store.load(tiles[y / TILE_SIZE * tilesAcross + tx])[channel];
+      int offset = y % TILE_SIZE * tileWidth - tx * TILE_SIZE;
+      int end = Math.min(to, tx * TILE_SIZE + tileWidth);
+      for (; x < end; x++) {
+        dest[x] = plane[offset + x] & Image.MAX_CHANNEL_VALUE;
+      }
+    }
+  }
+
+  @Override
+  public int getHeight() {
+    return this.height;
+  }
+
+  @Override
+  public int getWidth() {
+    return this.width;
+  }
+
+  @Override
+  public int getMaxValue() {
+    return this.maxVal;
+  }
+
+  /**
+   * Reads every tile back into one image on the heap.
+   *
+   * @return an image holding the pixels of the tiles
+   * @throws IllegalStateException if a tile cannot be read back from the spill file
+   */
+  @Override
+  public Image getImage() {
+    return Strips.copy(this, 0, height);
+  }
+
+  @Override
+  public RGB[][] getPixels() {
+    return getImage().getPixels();
+  }
+
+  /**
+   * Gets the width of the tiles in a column, narrower in the last column.
+   *
+   * @param tx the column of tiles
+   * @return the width in pixels
+   */
+  private int tileWidth(int tx) {
+    return Math.min(TILE_SIZE, width - tx * TILE_SIZE);
+  }
+
+  @Override
+  public String toString() {
+    return Image.format(this);
+  }
+
+  /**
+   * Determines whether an object is an Image or another image of this package holding the same
+   * pixels. The rows are compared one at a time, so the tiles are not all read back at once.
+   *
+   * @param obj the object to compare with
+   * @return true if it has the same size, maximum value and pixels
+   */
+  @Override
+  public boolean equals(Object obj) {
+    if (obj == this) {
+      return true;
+    }
+    return (obj instanceof Image || obj instanceof TiledImage || obj instanceof BandedImage)
+        && Image.sameRows(this, (ImageInterface) obj);
+  }
+
+  /**
+   * Computes the same hash code as an Image holding the same pixels, one row at a time.
+   *
+   * @return the hash code
+   */
+  @Override
+  public int hashCode() {
+    int result = hash;
+    if (result == 0) {
+      result = Image.rowHash(this);
+      this.hash = result;
+    }
+    return result;
+  }
+}
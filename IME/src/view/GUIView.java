@@ -9,6 +9,10 @@ import java.awt.FlowLayout;
 import java.awt.Font;
 import java.awt.GridLayout;
 import java.awt.Insets;
+import java.awt.event.InputEvent;
+import java.awt.event.KeyEvent;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
@@ -29,8 +33,10 @@ import javax.swing.JPanel;
 import javax.swing.JScrollPane;
 import javax.swing.JTextArea;
 import javax.swing.JTextField;
+import javax.swing.KeyStroke;
 import javax.swing.border.EmptyBorder;
 import javax.swing.filechooser.FileNameExtensionFilter;
+import model.BlendMode;
 import model.ImageInterface;
 
 /**
@@ -53,9 +59,14 @@ public class GUIView extends JFrame implements IEditorView {
   private JMenuItem greyScale;
   private JMenuItem sepia;
   private JMenuItem downScale;
+  private JMenuItem resize;
   private JMenuItem mosaic;
   private JMenuItem createLayer;
   private JMenuItem invisible;
+  private JMenuItem opacity;
+  private JMenuItem blendMode;
+  private JMenuItem undo;
+  private JMenuItem redo;
   private JMenuItem removeLayer;
   private JMenuItem currentLayer;
   private JMenuItem checkerboard;
@@ -85,6 +96,7 @@ public class GUIView extends JFrame implements IEditorView {
   private JButton invisibleButton;
   private JButton mosaicButton;
   private JButton downScaleButton;
+  private JButton resizeButton;
   private JTextArea input;
   private List<JButton> listOfLayers = new ArrayList<>();
 
@@ -127,6 +139,7 @@ public class GUIView extends JFrame implements IEditorView {
     editorMenu();
     layerMenu();
     createMenu();
+    historyMenu();
     this.setJMenuBar(menuBar);
   }
 
@@ -161,6 +174,8 @@ public class GUIView extends JFrame implements IEditorView {
     editorMenu.add(sepia);
     downScale = new JMenuItem("Downscaling");
     editorMenu.add(downScale);
+    resize = new JMenuItem("Resize");
+    editorMenu.add(resize);
     mosaic = new JMenuItem("Mosaic");
     editorMenu.add(mosaic);
     menuBar.add(editorMenu);
@@ -179,6 +194,10 @@ public class GUIView extends JFrame implements IEditorView {
     layersSubmenu.add(currentLayer);
     invisible = new JMenuItem("Make Invisible");
     layersSubmenu.add(invisible);
+    opacity = new JMenuItem("Set Opacity");
+    layersSubmenu.add(opacity);
+    blendMode = new JMenuItem("Set Blend Mode");
+    layersSubmenu.add(blendMode);
     menuBar.add(layersSubmenu);
   }
 
@@ -192,6 +211,19 @@ public class GUIView extends JFrame implements IEditorView {
     menuBar.add(createMenu);
   }
 
+  // helper function to create history menu, to undo and redo
+  // the changes made to the layers.
+  private void historyMenu() {
+    JMenu historyMenu = new JMenu("History");
+    undo = new JMenuItem("Undo");
+    undo.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_Z, InputEvent.CTRL_DOWN_MASK));
+    historyMenu.add(undo);
+    redo = new JMenuItem("Redo");
+    redo.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_Y, InputEvent.CTRL_DOWN_MASK));
+    historyMenu.add(redo);
+    menuBar.add(historyMenu);
+  }
+
   // helper method for creating image pane and allows for
   private void buildImage() {
     imageLabel = new JLabel();
@@ -236,6 +268,8 @@ public class GUIView extends JFrame implements IEditorView {
     operations.add(checkerboardButton);
     downScaleButton = new JButton("Downscale");
     operations.add(downScaleButton);
+    resizeButton = new JButton("Resize");
+    operations.add(resizeButton);
     mosaicButton = new JButton("Mosaic");
     operations.add(mosaicButton);
   }
@@ -323,6 +357,14 @@ public class GUIView extends JFrame implements IEditorView {
 
   @Override
   public void addFeatures(Features features) {
+    // the controller ends the program once the files being saved are written
+    this.setDefaultCloseOperation(JFrame.DO_NOTHING_ON_CLOSE);
+    this.addWindowListener(new WindowAdapter() {
+      @Override
+      public void windowClosing(WindowEvent e) {
+        features.exit();
+      }
+    });
     load.addActionListener(l -> {
       setLoad(features);
     });
@@ -392,6 +434,13 @@ public class GUIView extends JFrame implements IEditorView {
       downScale(features);
     });
 
+    resize.addActionListener(l -> {
+      resize(features);
+    });
+    resizeButton.addActionListener(l -> {
+      resize(features);
+    });
+
     mosaic.addActionListener(l -> {
       mosaic(features);
     });
@@ -423,6 +472,18 @@ public class GUIView extends JFrame implements IEditorView {
     invisibleButton.addActionListener(l -> {
       features.layerCommands("invisible");
     });
+    opacity.addActionListener(l -> {
+      setOpacity(features);
+    });
+    blendMode.addActionListener(l -> {
+      setBlendMode(features);
+    });
+    undo.addActionListener(l -> {
+      features.historyCommands("undo");
+    });
+    redo.addActionListener(l -> {
+      features.historyCommands("redo");
+    });
 
     checkerboard.addActionListener(l -> {
       drawChecker(features);
@@ -481,6 +542,25 @@ public class GUIView extends JFrame implements IEditorView {
     }
   }
 
+  private void resize(Features features) {
+    JTextField newHeight = new JTextField(5);
+    JTextField newWidth = new JTextField(5);
+    JPanel myPanel = new JPanel();
+    myPanel.add(new JLabel("New Width:"));
+    myPanel.add(newWidth);
+    myPanel.add(new JLabel("New Height:"));
+    myPanel.add(newHeight);
+    int s = JOptionPane.showConfirmDialog(this, myPanel,
+        "Please Enter The New Width And Height.", JOptionPane.OK_CANCEL_OPTION);
+    if (s == JOptionPane.OK_OPTION) {
+      try {
+        features.draw("resize", newWidth.getText(), newHeight.getText());
+      } catch (IllegalArgumentException e) {
+        renderMessage(e.getMessage());
+      }
+    }
+  }
+
   private void mosaic(Features features) {
     JTextField numSeeds = new JTextField(5);
     JPanel myPanel = new JPanel();
@@ -497,6 +577,24 @@ public class GUIView extends JFrame implements IEditorView {
     }
   }
 
+  private void setOpacity(Features features) {
+    String s = (String) JOptionPane.showInputDialog(this, "Opacity (0 to 1):",
+        "Set Opacity", JOptionPane.PLAIN_MESSAGE, null, null,
+        "1.0");
+    if ((s != null) && (s.length() > 0)) {
+      features.setCommands("opacity", s);
+    }
+  }
+
+  private void setBlendMode(Features features) {
+    Object[] modes = BlendMode.values();
+    BlendMode mode = (BlendMode) JOptionPane.showInputDialog(this, "Blend Mode:",
+        "Set Blend Mode", JOptionPane.PLAIN_MESSAGE, null, modes, modes[0]);
+    if (mode != null) {
+      features.setCommands("blend", mode.name());
+    }
+  }
+
   private void setCurrentLayerButton(Features features) {
     String s = (String) JOptionPane.showInputDialog(this, "Choose Layer:",
         "Set Current", JOptionPane.PLAIN_MESSAGE, null, null,
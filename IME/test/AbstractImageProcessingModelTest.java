@@ -2,10 +2,12 @@ import static junit.framework.TestCase.assertTrue;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.fail;
 
 import java.util.Stack;
 import junit.framework.TestCase;
 import model.Blur;
+import model.Downscale;
 import model.Greyscale;
 import model.ILayer;
 import model.ImageEditors;
@@ -237,6 +239,115 @@ public abstract class AbstractImageProcessingModelTest {
       assertEquals(img, model.getImage());
       assertEquals(ie, model.getEffect());
     }
+
+    @Test
+    public void lazySameAsEager() {
+      RGB[][] pixels = new RGB[][]{{new RGB(0, 0, 255), new RGB(255, 255, 0)},
+          {new RGB(255, 0, 0), new RGB(0, 255, 0)}};
+      Image img = new Image(pixels);
+      ImageProcessingModel eager = new ImageProcessingModelImpl();
+      ImageProcessingModel lazy = new ImageProcessingModelImpl(true);
+      eager.setImage(img);
+      lazy.setImage(img);
+      for (ImageEditors ie : new ImageEditors[]{new Sepia(), new Greyscale(), new Blur(),
+          new Sepia()}) {
+        eager.setEffect(ie);
+        eager.applyOperation();
+        lazy.setEffect(ie);
+        lazy.applyOperation();
+      }
+      assertEquals(eager.getImage(), lazy.getImage());
+    }
+
+    @Test
+    public void lazyDefersUntilImageNeeded() {
+      int[] applied = new int[1];
+      ImageEditors counting = new ImageEditors() {
+        @Override
+        public ImageInterface apply(ImageInterface img) {
+          applied[0]++;
+          return img;
+        }
+      };
+      ImageProcessingModel model = new ImageProcessingModelImpl(true);
+      model.setImage(new Image(new RGB[][]{{new RGB(1, 2, 3)}}));
+      model.setEffect(counting);
+      model.applyOperation();
+      model.applyOperation();
+      assertEquals(0, applied[0]);
+      assertEquals(1, model.getWidthImage());
+      assertEquals(2, applied[0]);
+      model.getImage();
+      assertEquals(2, applied[0]);
+    }
+
+    @Test
+    public void lazySetImageDropsPending() {
+      int[] applied = new int[1];
+      ImageEditors counting = new ImageEditors() {
+        @Override
+        public ImageInterface apply(ImageInterface img) {
+          applied[0]++;
+          return img;
+        }
+      };
+      Image next = new Image(new RGB[][]{{new RGB(4, 5, 6)}});
+      ImageProcessingModel model = new ImageProcessingModelImpl(true);
+      model.setImage(new Image(new RGB[][]{{new RGB(1, 2, 3)}}));
+      model.setEffect(counting);
+      model.applyOperation();
+      model.setImage(next);
+      assertEquals(next, model.getImage());
+      assertEquals(0, applied[0]);
+    }
+
+    @Test
+    public void lazyFailedOperationsAreDropped() {
+      ImageEditors failing = new ImageEditors() {
+        @Override
+        public ImageInterface apply(ImageInterface img) {
+          throw new IllegalArgumentException("Failed.");
+        }
+      };
+      Image img = new Image(new RGB[][]{{new RGB(1, 2, 3)}});
+      ImageProcessingModel model = new ImageProcessingModelImpl(true);
+      model.setImage(img);
+      model.setEffect(failing);
+      model.applyOperation();
+      try {
+        model.getImage();
+        fail("The failing operation was not applied.");
+      } catch (IllegalArgumentException e) {
+        assertEquals("Failed.", e.getMessage());
+      }
+      assertEquals(img, model.getImage());
+      assertEquals(1, model.getWidthImage());
+    }
+
+    @Test
+    public void lazySizeWithoutApplying() {
+      int[] applied = new int[1];
+      ImageEditors counting = new Blur() {
+        @Override
+        public ImageInterface apply(ImageInterface img) {
+          applied[0]++;
+          return super.apply(img);
+        }
+      };
+      ImageProcessingModel model = new ImageProcessingModelImpl(true);
+      model.setImage(new Rainbow(20, 14).create());
+      model.setEffect(counting);
+      model.applyOperation();
+      model.setEffect(new Sepia());
+      model.applyOperation();
+      assertEquals(20, model.getWidthImage());
+      assertEquals(14, model.getHeightImage());
+      assertEquals(0, applied[0]);
+      model.setEffect(new Downscale(7, 10));
+      model.applyOperation();
+      assertEquals(10, model.getWidthImage());
+      assertEquals(1, applied[0]);
+    }
   }
 
   /**
@@ -299,6 +410,32 @@ public abstract class AbstractImageProcessingModelTest {
       assertEquals(temp, model.getAll());
     }
 
+    @Test
+    public void downscaleAppliesOncePerLayer() {
+      int[] applied = new int[1];
+      ImageEditors counting = new Downscale(7, 10) {
+        @Override
+        public ImageInterface apply(ImageInterface img) {
+          applied[0]++;
+          return super.apply(img);
+        }
+      };
+      MultiImageProcessingModel model = new MultiImageProcessingModelImpl();
+      model.createLayer();
+      model.createLayer();
+      model.setCurrent(0);
+      model.setImage(new Rainbow(20, 14).create());
+      model.setCurrent(1);
+      model.setImage(new Rainbow(20, 14).create());
+      model.setEffect(counting);
+      model.applyOperation();
+      assertEquals(2, applied[0]);
+      for (ILayer layer : model.getAll()) {
+        assertEquals(10, layer.getImage().getWidth());
+        assertEquals(7, layer.getImage().getHeight());
+      }
+    }
+
     @Test
     public void moveLayer() {
       MultiImageProcessingModel model = new MultiImageProcessingModelImpl();
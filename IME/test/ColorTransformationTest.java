@@ -72,6 +72,15 @@ public abstract class ColorTransformationTest {
       Image greyscaleBasic = new Image(newPixels);
       assertEquals(greyscaleBasic, filter.apply(basicColors));
     }
+
+    @Test
+    public void applyAboveEightBits() {
+      Image deep = new Image(new RGB[][]{{new RGB(1000, 500, 20)}}, 1023);
+      // every partial sum is truncated: (int) (1000 * 0.2126) = 212,
+      // (int) (212 + 500 * 0.7152) = 569, then (int) (569 + 20 * 0.0722) = 570
+      RGB grey = new RGB(570, 570, 570);
+      assertEquals(new Image(new RGB[][]{{grey}}, 1023), filter().apply(deep));
+    }
   }
 
   @Test(expected = IllegalArgumentException.class)
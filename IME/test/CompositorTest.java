@@ -0,0 +1,166 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import model.BlendMode;
+import model.CheckerBoard;
+import model.Compositor;
+import model.Downscale;
+import model.Greyscale;
+import model.ILayer;
+import model.Image;
+import model.ImageInterface;
+import model.Layer;
+import model.MultiImageProcessingModel;
+import model.MultiImageProcessingModelImpl;
+import model.RGB;
+import model.Rainbow;
+import org.junit.Test;
+
+/**
+ * Testing the compositing of layers and the redrawing of the tiles that changed.
+ */
+public class CompositorTest {
+
+  private final Image below = new Image(new RGB[][]{{new RGB(200, 100, 0), new RGB(255, 0, 60)}});
+  private final Image above = new Image(new RGB[][]{{new RGB(0, 100, 200), new RGB(255, 255, 0)}});
+
+  /**
+   * Composites two one-row layers, the second one with the given opacity and blend mode.
+   *
+   * @param opacity the opacity of the top layer
+   * @param mode    the blend mode of the top layer
+   * @return the composite
+   */
+  private ImageInterface blend(double opacity, BlendMode mode) {
+    ILayer top = new Layer(above);
+    top.setOpacity(opacity);
+    top.setBlendMode(mode);
+    return new Compositor().composite(Arrays.asList(new Layer(below), top));
+  }
+
+  /**
+   * Creates layers of different sizes, one of them empty, with a variety of blend modes.
+   *
+   * @return the layers, from the bottom one
+   */
+  private static List<ILayer> layers() {
+    List<ILayer> layers = new ArrayList<>();
+    layers.add(new Layer(new Rainbow(100, 70).create()));
+    layers.add(new Layer(new CheckerBoard(9, 5).create()));
+    layers.add(new Layer());
+    layers.add(new Layer(new Rainbow(37, 91).create()));
+    layers.add(new Layer(new Greyscale().apply(new Rainbow(70, 28).create())));
+    layers.get(1).setBlendMode(BlendMode.MULTIPLY);
+    layers.get(1).setOpacity(0.7);
+    layers.get(3).setBlendMode(BlendMode.OVERLAY);
+    layers.get(4).setBlendMode(BlendMode.SCREEN);
+    layers.get(4).setOpacity(0.4);
+    return layers;
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void constructorTileSize() {
+    new Compositor(0, 1);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void compositeNull() {
+    new Compositor().composite(null);
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void compositeNoImage() {
+    new Compositor().composite(Arrays.asList(new Layer(), new Layer()));
+  }
+
+  @Test
+  public void compositeOpaqueTopLayer() {
+    assertEquals(above, blend(1, BlendMode.NORMAL));
+    assertEquals(below, blend(0, BlendMode.NORMAL));
+  }
+
+  @Test
+  public void compositeInvisibleTopLayer() {
+    ILayer top = new Layer(above);
+    top.setVisibility(false);
+    assertEquals(below, new Compositor().composite(Arrays.asList(new Layer(below), top)));
+  }
+
+  @Test
+  public void compositeBlendModes() {
+    assertEquals(new RGB(100, 100, 100), blend(0.5, BlendMode.NORMAL).getPixel(0, 0));
+    assertEquals(new RGB(0, 39, 0), blend(1, BlendMode.MULTIPLY).getPixel(0, 0));
+    assertEquals(new RGB(255, 0, 0), blend(1, BlendMode.MULTIPLY).getPixel(1, 0));
+    assertEquals(new RGB(200, 161, 200), blend(1, BlendMode.SCREEN).getPixel(0, 0));
+    assertEquals(new RGB(255, 255, 60), blend(1, BlendMode.SCREEN).getPixel(1, 0));
+    assertEquals(new RGB(145, 78, 0), blend(1, BlendMode.OVERLAY).getPixel(0, 0));
+  }
+
+  @Test
+  public void compositeSmallerTopLayer() {
+    Image small = new Image(new RGB[][]{{new RGB(1, 2, 3)}});
+    ImageInterface result = new Compositor().composite(
+        Arrays.asList(new Layer(below), new Layer(small)));
+    assertEquals(new RGB(1, 2, 3), result.getPixel(0, 0));
+    assertEquals(new RGB(255, 0, 60), result.getPixel(1, 0));
+  }
+
+  @Test
+  public void compositeSameValueAsImage() {
+    ImageInterface composite = new Compositor(8, 2).composite(layers());
+    Image copy = composite.getImage();
+    assertEquals(copy, composite);
+    assertEquals(composite, copy);
+    assertEquals(copy.hashCode(), composite.hashCode());
+    assertEquals(copy.toString(), composite.toString());
+    assertEquals(copy.getPixel(99, 90), composite.getPixel(99, 90));
+  }
+
+  @Test
+  public void compositeUnchangedIsReused() {
+    Compositor compositor = new Compositor();
+    List<ILayer> layers = layers();
+    assertSame(compositor.composite(layers), compositor.composite(layers));
+  }
+
+  @Test
+  public void compositeOnlyRedrawsChanges() {
+    Compositor incremental = new Compositor(8, 4);
+    List<ILayer> layers = layers();
+    incremental.composite(layers);
+    layers.get(3).setVisibility(false);
+    assertEquals(new Compositor(8, 1).composite(layers), incremental.composite(layers));
+    layers.get(1).setOpacity(0.2);
+    layers.get(4).setBlendMode(BlendMode.MULTIPLY);
+    assertEquals(new Compositor(8, 1).composite(layers), incremental.composite(layers));
+    layers.get(2).setImage(new CheckerBoard(3, 4).create());
+    layers.get(3).setVisibility(true);
+    assertEquals(new Compositor(8, 1).composite(layers), incremental.composite(layers));
+    layers.remove(0);
+    assertEquals(new Compositor(8, 1).composite(layers), incremental.composite(layers));
+  }
+
+  @Test
+  public void modelCompositeHasEdits() {
+    MultiImageProcessingModel model = new MultiImageProcessingModelImpl();
+    model.createLayer();
+    model.setImage(new Rainbow(10, 7).create());
+    model.createLayer();
+    ImageInterface top = new CheckerBoard(2, 5).create();
+    model.setImage(top);
+    model.setEffect(new Greyscale());
+    model.applyOperation();
+    assertEquals(new Greyscale().apply(top), model.getComposite());
+    model.visible(1, false);
+    model.setOpacity(0, 0.5);
+    model.setBlendMode(0, BlendMode.SCREEN);
+    ImageInterface half = new Compositor().composite(model.getAll());
+    assertEquals(half, model.getComposite());
+    model.setEffect(new Downscale(5, 8));
+    model.applyOperation();
+    assertEquals(8, model.getComposite().getWidth());
+  }
+}
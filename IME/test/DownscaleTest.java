@@ -2,10 +2,12 @@
 
 import static org.junit.Assert.assertEquals;
 
+import java.util.Arrays;
 import model.Downscale;
 import model.Image;
 import model.ImageEditors;
 import model.RGB;
+import model.ResampleFilter;
 import org.junit.Test;
 
 /**
@@ -54,4 +56,54 @@ public class DownscaleTest {
     Image dsImg2 = new Image(bg2By2);
     assertEquals(dsImg2, twoThird.apply(img2));
   }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void constructorNullFilter() {
+    new Downscale(2, 2, null);
+  }
+
+  @Test
+  public void applyBoxAveragesArea() {
+    RGB black = new RGB(0, 0, 0);
+    RGB white = new RGB(255, 255, 255);
+    RGB red = new RGB(200, 0, 0);
+    RGB[][] pixels = new RGB[][]{{black, white, red, red}, {white, black, red, red},
+        {black, black, white, white}, {black, black, white, white}};
+    Image img = new Image(pixels);
+    RGB gray = new RGB(128, 128, 128);
+    RGB[][] expected = new RGB[][]{{gray, red}, {black, white}};
+    assertEquals(new Image(expected), new Downscale(2, 2, ResampleFilter.BOX).apply(img));
+  }
+
+  @Test
+  public void applyFiltersKeepFlatColor() {
+    RGB color = new RGB(10, 120, 250);
+    RGB[][] pixels = new RGB[30][40];
+    for (RGB[] row : pixels) {
+      Arrays.fill(row, color);
+    }
+    RGB[][] expected = new RGB[7][9];
+    for (RGB[] row : expected) {
+      Arrays.fill(row, color);
+    }
+    for (ResampleFilter filter : ResampleFilter.values()) {
+      assertEquals(new Image(expected), new Downscale(7, 9, filter).apply(new Image(pixels)));
+    }
+  }
+
+  @Test
+  public void applyLargeReductionAverages() {
+    // one-pixel checkers: sampling four pixels would only ever see black
+    RGB black = new RGB(0, 0, 0);
+    RGB white = new RGB(255, 255, 255);
+    RGB[][] pixels = new RGB[8][8];
+    for (int i = 0; i < 8; i++) {
+      for (int j = 0; j < 8; j++) {
+        pixels[i][j] = (i + j) % 2 == 0 ? black : white;
+      }
+    }
+    RGB gray = new RGB(128, 128, 128);
+    RGB[][] expected = new RGB[][]{{gray, gray}, {gray, gray}};
+    assertEquals(new Image(expected), new Downscale(2, 2).apply(new Image(pixels)));
+  }
 }
\ No newline at end of file
@@ -0,0 +1,154 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import controller.ExportService;
+import controller.ImageUtil;
+import controller.ImageUtilAddition;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import model.CheckerBoard;
+import model.Image;
+import model.ImageInterface;
+import model.Rainbow;
+import org.junit.Test;
+
+/**
+ * Testing the background export of images.
+ */
+public class ExportServiceTest {
+
+  private final List<String> messages = new CopyOnWriteArrayList<>();
+  private final ImageInterface rainbow = new Rainbow(30, 14).create();
+
+  /**
+   * Creates an empty temporary file with the given extension, deleted when the tests end.
+   *
+   * @param extension the extension of the file, with its dot
+   * @return the path of the file
+   * @throws IOException if the file cannot be created
+   */
+  private static String temporaryFile(String extension) throws IOException {
+    File file = File.createTempFile("export", extension);
+    file.deleteOnExit();
+    return file.getPath();
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void constructorEncoders() {
+    new ExportService(0, 4, messages::add);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void constructorNullReporter() {
+    new ExportService(null);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void exportNullImage() {
+    try (ExportService exports = new ExportService(messages::add)) {
+      exports.export(null, "a.png");
+    }
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void exportAfterClose() throws IOException {
+    ExportService exports = new ExportService(messages::add);
+    exports.close();
+    exports.export(rainbow, temporaryFile(".ppm"));
+  }
+
+  @Test
+  public void exportWritesFiles() throws IOException {
+    String ppm = temporaryFile(".ppm");
+    String png = temporaryFile(".png");
+    String txt = temporaryFile(".txt");
+    try (ExportService exports = new ExportService(2, 1, messages::add)) {
+      exports.export(rainbow, ppm);
+      exports.export(rainbow, png);
+      exports.exportText(txt, ppm + "\n" + png + "\n");
+      exports.flush();
+    }
+    assertEquals(rainbow, ImageUtil.readPPM(ppm));
+    assertEquals(new Image(rainbow.getPixels(), 256), ImageUtilAddition.readImage(png));
+    assertEquals(ppm + "\n" + png + "\n", ImageUtilAddition.readTextFile(txt));
+    // reported in the order they were submitted
+    assertEquals(Arrays.asList("Exported " + ppm, "Exported " + png, "Exported " + txt), messages);
+  }
+
+  @Test
+  public void exportKeepsLastVersion() throws IOException {
+    String file = temporaryFile(".ppm");
+    ImageInterface last = new CheckerBoard(3, 2).create();
+    try (ExportService exports = new ExportService(4, 2, messages::add)) {
+      for (int i = 0; i < 10; i++) {
+        exports.export(new Rainbow(40 + i, 7).create(), file);
+      }
+      exports.export(last, file);
+      exports.flush(file);
+      assertEquals(last, ImageUtil.readPPM(file));
+      assertEquals(11, messages.size());
+    }
+  }
+
+  @Test
+  public void closeWritesQueuedFiles() throws IOException {
+    String file = temporaryFile(".ppm");
+    ExportService exports = new ExportService(1, 1, messages::add);
+    for (int i = 0; i < 5; i++) {
+      exports.export(new Rainbow(300 + i, 210).create(), file);
+    }
+    exports.close();
+    assertEquals(5, messages.size());
+    assertEquals(new Rainbow(304, 210).create(), ImageUtil.readPPM(file));
+    exports.close();
+  }
+
+  @Test
+  public void exportUnsupportedType() throws IOException {
+    String file = temporaryFile(".gif2");
+    Files.write(Paths.get(file), "kept".getBytes(StandardCharsets.UTF_8));
+    try (ExportService exports = new ExportService(messages::add)) {
+      exports.export(rainbow, file);
+      exports.flush();
+    }
+    assertEquals(1, messages.size());
+    assertTrue(messages.get(0).startsWith("Could Not Export " + file));
+    // the failed encoding did not touch the existing file
+    assertEquals("kept", new String(Files.readAllBytes(Paths.get(file)), StandardCharsets.UTF_8));
+  }
+
+  @Test
+  public void exportKeepsUsualPermissions() throws IOException {
+    if (!FileSystems.getDefault().supportedFileAttributeViews().contains("posix")) {
+      return;
+    }
+    Path directory = Files.createTempDirectory("export");
+    directory.toFile().deleteOnExit();
+    Path created = directory.resolve("new.ppm");
+    Path replaced = directory.resolve("replaced.png");
+    Path plain = Files.createFile(directory.resolve("plain.txt"));
+    Files.createFile(replaced);
+    Files.setPosixFilePermissions(replaced, PosixFilePermissions.fromString("rw-rw-r--"));
+    try (ExportService exports = new ExportService(messages::add)) {
+      exports.export(rainbow, created.toString());
+      exports.export(rainbow, replaced.toString());
+    }
+    // a new file gets the permissions any new file gets, a replaced file keeps its own
+    assertEquals(Files.getPosixFilePermissions(plain), Files.getPosixFilePermissions(created));
+    assertEquals(PosixFilePermissions.fromString("rw-rw-r--"),
+        Files.getPosixFilePermissions(replaced));
+    assertEquals(3, directory.toFile().list().length);
+    for (File file : directory.toFile().listFiles()) {
+      file.deleteOnExit();
+    }
+  }
+}
@@ -1,7 +1,10 @@
 import static junit.framework.TestCase.assertEquals;
 
 import model.Blur;
+import model.BoxBlur;
+import model.CheckerBoard;
 import model.Filtering;
+import model.GaussianBlur;
 import model.ImageInterface;
 import model.Image;
 import model.RGB;
@@ -9,13 +12,15 @@ import model.Sharpening;
 import org.junit.Test;
 
 /**
- * This class tests the Filtering class as well as the classes that extend it (Blur and
- * Sharpening).
+ * This class tests the Filtering class as well as the classes that extend it (Blur, Sharpening,
+ * BoxBlur and GaussianBlur).
  */
 public abstract class FilteringTest {
 
   protected abstract Filtering filter();
 
+  protected abstract Filtering filter(int parallelism);
+
   /**
    * Testing the blur class and the apply method.
    */
@@ -26,6 +31,11 @@ public abstract class FilteringTest {
       return new Blur();
     }
 
+    @Override
+    protected Filtering filter(int parallelism) {
+      return new Blur(parallelism);
+    }
+
     @Test
     public void apply() {
       RGB blue = new RGB(0, 0, 255);
@@ -55,6 +65,11 @@ public abstract class FilteringTest {
       return new Sharpening();
     }
 
+    @Override
+    protected Filtering filter(int parallelism) {
+      return new Sharpening(parallelism);
+    }
+
     @Test
     public void apply() {
       RGB blue = new RGB(0, 0, 255);
@@ -76,6 +91,161 @@ public abstract class FilteringTest {
 
   }
 
+  /**
+   * Testing the box blur class and the apply method.
+   */
+  public static final class BoxBlurTest extends FilteringTest {
+
+    @Override
+    protected Filtering filter() {
+      return new BoxBlur(1);
+    }
+
+    @Override
+    protected Filtering filter(int parallelism) {
+      return new BoxBlur(5, parallelism);
+    }
+
+    @Test
+    public void apply() {
+      RGB[][] pixels = new RGB[3][3];
+      for (int i = 0; i < 3; i++) {
+        for (int j = 0; j < 3; j++) {
+          pixels[i][j] = new RGB(90, 0, 0);
+        }
+      }
+      pixels[1][1] = new RGB(90, 180, 0);
+      Image img = new Image(pixels);
+      // the center sees all nine pixels, corners see four and edges see six
+      RGB corner = new RGB(40, 20, 0);
+      RGB edge = new RGB(60, 20, 0);
+      RGB center = new RGB(90, 20, 0);
+      Image expected = new Image(new RGB[][]{{corner, edge, corner}, {edge, center, edge},
+          {corner, edge, corner}});
+      assertEquals(expected, filter().apply(img));
+    }
+
+    @Test
+    public void applyRadiusLargerThanImage() {
+      Image img = new Image(new RGB[][]{{new RGB(255, 255, 255), new RGB(0, 0, 0)}});
+      RGB gray = new RGB(10, 10, 10);
+      assertEquals(new Image(new RGB[][]{{gray, gray}}), new BoxBlur(2).apply(img));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructorRadiusIAE() {
+      new BoxBlur(0);
+    }
+  }
+
+  /**
+   * Testing the Gaussian blur class and the apply method.
+   */
+  public static final class GaussianBlurTest extends FilteringTest {
+
+    @Override
+    protected Filtering filter() {
+      return new GaussianBlur(0.5);
+    }
+
+    @Override
+    protected Filtering filter(int parallelism) {
+      return new GaussianBlur(4, parallelism);
+    }
+
+    @Test
+    public void applySmallSigmaSameAsKernel() {
+      RGB[] colors = new RGB[]{new RGB(10, 200, 30), new RGB(250, 0, 90), new RGB(0, 0, 255)};
+      ImageInterface checkerboard = new CheckerBoard(3, 9, colors).create();
+      // sigma 0.5 is sampled up to three deviations, two pixels on each side
+      double[] weights = new double[5];
+      double total = 0;
+      for (int i = 0; i < 5; i++) {
+        weights[i] = Math.exp(-(i - 2) * (i - 2) / 0.5);
+        total += weights[i];
+      }
+      for (int i = 0; i < 5; i++) {
+        weights[i] /= total;
+      }
+      Filtering kernel = new Filtering(weights, weights, 1) {
+      };
+      assertEquals(kernel.apply(checkerboard), filter().apply(checkerboard));
+    }
+
+    @Test
+    public void applyLargeSigmaKeepsFlatInterior() {
+      RGB[][] pixels = new RGB[200][200];
+      for (int i = 0; i < 200; i++) {
+        for (int j = 0; j < 200; j++) {
+          pixels[i][j] = new RGB(100, 100, 100);
+        }
+      }
+      ImageInterface blurred = new GaussianBlur(8).apply(new Image(pixels));
+      assertEquals(200, blurred.getWidth());
+      assertEquals(200, blurred.getHeight());
+      assertEquals(new RGB(100, 100, 100), blurred.getPixel(100, 100));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructorSigmaIAE() {
+      new GaussianBlur(0);
+    }
+  }
+
+  @Test
+  public void applyParallelSameAsSequential() {
+    RGB[] colors = new RGB[]{new RGB(10, 200, 30), new RGB(250, 0, 90), new RGB(0, 0, 255)};
+    ImageInterface checkerboard = new CheckerBoard(7, 20, colors).create();
+    assertEquals(filter(1).apply(checkerboard), filter(4).apply(checkerboard));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void constructorParallelismIAE() {
+    filter(0);
+  }
+
+  @Test
+  public void applySeparableSameAsFullKernel() {
+    RGB[] colors = new RGB[]{new RGB(10, 200, 30), new RGB(250, 0, 90), new RGB(0, 0, 255)};
+    ImageInterface checkerboard = new CheckerBoard(3, 9, colors).create();
+    Filtering full = new Filtering(new double[][]{{0.0625, 0.125, 0.0625},
+        {0.125, 0.25, 0.125}, {0.0625, 0.125, 0.0625}}) {
+    };
+    assertEquals(full.apply(checkerboard), new Blur().apply(checkerboard));
+  }
+
+  @Test
+  public void applyLargeKernel() {
+    // half of each pixel plus half of the pixel 7 up and 7 left, which is not separable
+    double[][] kernel = new double[15][15];
+    kernel[7][7] = 0.5;
+    kernel[0][0] = 0.5;
+    Filtering large = new Filtering(kernel) {
+    };
+    RGB[][] pixels = new RGB[40][30];
+    RGB[][] expected = new RGB[40][30];
+    for (int i = 0; i < 40; i++) {
+      for (int j = 0; j < 30; j++) {
+        pixels[i][j] = new RGB(2 * ((7 * i + 3 * j) % 128), 2 * ((i * j) % 128), 254);
+      }
+    }
+    for (int i = 0; i < 40; i++) {
+      for (int j = 0; j < 30; j++) {
+        RGB shifted = i >= 7 && j >= 7 ? pixels[i - 7][j - 7] : new RGB(0, 0, 0);
+        expected[i][j] = new RGB((pixels[i][j].getValue(0) + shifted.getValue(0)) / 2,
+            (pixels[i][j].getValue(1) + shifted.getValue(1)) / 2,
+            (pixels[i][j].getValue(2) + shifted.getValue(2)) / 2);
+      }
+    }
+    assertEquals(new Image(expected), large.apply(new Image(pixels)));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void separableConstructorIAE() {
+    new Filtering(new double[]{0.5, 0.5}, new double[]{0.5, 0.5}, 1) {
+    };
+  }
+
   @Test(expected = IllegalArgumentException.class)
   public void applyNullImage() {
     Filtering filter = filter();
@@ -0,0 +1,192 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import model.BlendMode;
+import model.Blur;
+import model.CheckerBoard;
+import model.Greyscale;
+import model.ImageBuffer;
+import model.ImageInterface;
+import model.MultiImageProcessingModel;
+import model.MultiImageProcessingModelImpl;
+import model.Rainbow;
+import model.Sepia;
+import org.junit.Test;
+
+/**
+ * Testing undoing and redoing the changes made to the layers of the model.
+ */
+public class HistoryTest {
+
+  private final ImageInterface rainbow = new Rainbow(150, 70).create();
+
+  /**
+   * Creates a copy of an image with one pixel changed.
+   *
+   * @param img   the image
+   * @param index the index of the pixel in row order
+   * @return the changed copy
+   */
+  private static ImageInterface withPixel(ImageInterface img, int index) {
+    ImageBuffer buffer = new ImageBuffer(img.getWidth(), img.getHeight(), img.getMaxValue());
+    int[] row = new int[img.getWidth()];
+    for (int c = 0; c < 3; c++) {
+      for (int y = 0; y < img.getHeight(); y++) {
+        img.getRow(y, c, row);
+        if (y == index / img.getWidth() && c == 0) {
+          row[index % img.getWidth()] = (row[index % img.getWidth()] + 1) % img.getMaxValue();
+        }
+        buffer.setRow(y, c, row);
+      }
+    }
+    return buffer.toImage();
+  }
+
+  /**
+   * Creates a model with one layer holding the rainbow image.
+   *
+   * @return the model
+   */
+  private MultiImageProcessingModel model() {
+    MultiImageProcessingModel model = new MultiImageProcessingModelImpl();
+    model.createLayer();
+    model.setImage(rainbow);
+    return model;
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void undoNothing() {
+    new MultiImageProcessingModelImpl().undo();
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void redoNothing() {
+    model().redo();
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void constructorNegativeBudget() {
+    new MultiImageProcessingModelImpl(-1);
+  }
+
+  @Test
+  public void undoOperation() {
+    MultiImageProcessingModel model = model();
+    model.setEffect(new Blur());
+    model.applyOperation();
+    ImageInterface blurred = model.getImage();
+    model.undo();
+    assertEquals(rainbow, model.getImage());
+    model.redo();
+    assertEquals(blurred, model.getImage());
+  }
+
+  @Test
+  public void undoPendingOperations() {
+    MultiImageProcessingModel model = model();
+    model.setEffect(new Greyscale());
+    model.applyOperation();
+    model.setEffect(new Blur());
+    model.applyOperation();
+    model.setEffect(new Sepia());
+    model.applyOperation();
+    model.undo();
+    assertEquals(new Blur().apply(new Greyscale().apply(rainbow)), model.getImage());
+    model.undo();
+    assertEquals(new Greyscale().apply(rainbow), model.getImage());
+    model.redo();
+    model.redo();
+    assertEquals(new Sepia().apply(new Blur().apply(new Greyscale().apply(rainbow))),
+        model.getImage());
+  }
+
+  @Test
+  public void undoLayerChanges() {
+    MultiImageProcessingModel model = model();
+    model.createLayer();
+    ImageInterface checker = new CheckerBoard(5, 4).create();
+    model.setImage(checker);
+    model.visible(0, false);
+    model.setOpacity(1, 0.5);
+    model.setBlendMode(1, BlendMode.MULTIPLY);
+    model.removeLayer(0);
+    assertEquals(1, model.getAll().size());
+    model.undo();
+    assertEquals(2, model.getAll().size());
+    assertEquals(rainbow, model.getAll().get(0).getImage());
+    assertFalse(model.isThisVisible(0));
+    assertEquals(BlendMode.MULTIPLY, model.getAll().get(1).getBlendMode());
+    model.undo();
+    model.undo();
+    assertEquals(1, model.getAll().get(1).getOpacity(), 0);
+    model.undo();
+    assertTrue(model.isThisVisible(0));
+    model.undo();
+    model.undo();
+    assertEquals(1, model.getAll().size());
+    assertEquals(rainbow, model.getImage());
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void changeForgetsRedo() {
+    MultiImageProcessingModel model = model();
+    model.setEffect(new Sepia());
+    model.applyOperation();
+    model.undo();
+    model.setEffect(new Blur());
+    model.applyOperation();
+    model.redo();
+  }
+
+  @Test
+  public void undoManySmallChanges() {
+    MultiImageProcessingModel model = model();
+    List<ImageInterface> images = new ArrayList<>();
+    images.add(rainbow);
+    for (int i = 0; i < 40; i++) {
+      ImageInterface next = withPixel(images.get(i), i * 263);
+      model.setImage(next);
+      images.add(next);
+    }
+    for (int i = 39; i >= 0; i--) {
+      model.undo();
+      assertEquals(images.get(i), model.getImage());
+    }
+    model.redo();
+    assertEquals(images.get(1), model.getImage());
+  }
+
+  @Test
+  public void budgetForgetsOldestChanges() {
+    // room for a few copies of the image, not for forty
+    MultiImageProcessingModel model = new MultiImageProcessingModelImpl(20_000);
+    model.createLayer();
+    List<ImageInterface> images = new ArrayList<>();
+    for (int i = 0; i < 40; i++) {
+      images.add(i % 2 == 0 ? new Rainbow(150 + i, 70).create()
+          : new CheckerBoard(3 + i, 3).create());
+      model.setImage(images.get(i));
+    }
+    int undone = 0;
+    try {
+      while (true) {
+        model.undo();
+        undone++;
+        assertEquals(images.get(39 - undone), model.getImage());
+      }
+    } catch (IllegalStateException e) {
+      assertTrue(undone > 0 && undone < 39);
+    }
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void noBudgetKeepsNothing() {
+    MultiImageProcessingModel model = new MultiImageProcessingModelImpl(0);
+    model.createLayer();
+    model.setImage(rainbow);
+    model.undo();
+  }
+}
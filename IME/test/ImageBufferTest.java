@@ -0,0 +1,83 @@
+import static org.junit.Assert.assertEquals;
+
+import model.Image;
+import model.ImageBuffer;
+import model.RGB;
+import org.junit.Test;
+
+/**
+ * Testing the ImageBuffer class.
+ */
+public class ImageBufferTest {
+
+  @Test(expected = IllegalArgumentException.class)
+  public void constructorIAE() {
+    new ImageBuffer(0, 2, 255);
+  }
+
+  @Test
+  public void setPixel() {
+    ImageBuffer buffer = new ImageBuffer(2, 1, 255);
+    buffer.setPixel(1, 0, 10, 20, 30);
+    assertEquals(20, buffer.getChannel(1, 0, 1));
+    assertEquals(0, buffer.getChannel(0, 0, 1));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void setPixelNegative() {
+    ImageBuffer buffer = new ImageBuffer(2, 1, 255);
+    buffer.setPixel(1, 0, -1, 20, 30);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void setPixelOutOfBounds() {
+    ImageBuffer buffer = new ImageBuffer(2, 1, 255);
+    buffer.setPixel(2, 0, 1, 20, 30);
+  }
+
+  @Test
+  public void setRow() {
+    ImageBuffer buffer = new ImageBuffer(3, 2, 255);
+    buffer.setRow(1, 2, new int[]{1, 2, 3});
+    int[] row = new int[3];
+    buffer.getRow(1, 2, row);
+    assertEquals(3, row[2]);
+    buffer.getRow(0, 2, row);
+    assertEquals(0, row[2]);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void setRowTooShort() {
+    ImageBuffer buffer = new ImageBuffer(3, 2, 255);
+    buffer.setRow(1, 2, new int[]{1, 2});
+  }
+
+  @Test
+  public void toImage() {
+    ImageBuffer buffer = new ImageBuffer(2, 1, 255);
+    buffer.setPixel(0, 0, 0, 0, 255);
+    buffer.setPixel(1, 0, 255, 255, 0);
+    RGB[][] pixels = new RGB[][]{{new RGB(0, 0, 255), new RGB(255, 255, 0)}};
+    assertEquals(new Image(pixels), buffer.toImage());
+  }
+  @Test
+  public void copyOnWriteFromImage() {
+    RGB[][] pixels = new RGB[][]{{new RGB(0, 0, 255), new RGB(255, 255, 0)}};
+    Image original = new Image(pixels);
+    ImageBuffer buffer = new ImageBuffer(original);
+    assertEquals(255, buffer.getChannel(0, 0, 2));
+    buffer.setPixel(0, 0, 1, 2, 3);
+    assertEquals(new RGB(0, 0, 255), original.getPixel(0, 0));
+    assertEquals(new RGB(1, 2, 3), buffer.toImage().getPixel(0, 0));
+  }
+
+  @Test
+  public void writeAfterToImage() {
+    ImageBuffer buffer = new ImageBuffer(1, 1, 255);
+    buffer.setPixel(0, 0, 10, 10, 10);
+    Image first = buffer.toImage();
+    buffer.setRow(0, 0, new int[]{20});
+    assertEquals(new RGB(10, 10, 10), first.getPixel(0, 0));
+    assertEquals(new RGB(20, 10, 10), buffer.toImage().getPixel(0, 0));
+  }
+}
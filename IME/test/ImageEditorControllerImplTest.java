@@ -1,8 +1,10 @@
 
 import controller.ImageEditorController;
 import controller.ImageEditorControllerImpl;
+import java.io.ByteArrayOutputStream;
 import java.io.InputStreamReader;
 import java.io.PrintStream;
+import java.io.StringReader;
 import model.MultiImageProcessingModel;
 import model.MultiImageProcessingModelImpl;
 import org.junit.Assert;
@@ -61,4 +63,12 @@ public class ImageEditorControllerImplTest {
     controller.start();
     Assert.assertEquals("hello hello", controller.getS());
   }
+
+  @Test
+  public void startUndoRedo() {
+    MultiImageProcessingModel model = new MultiImageProcessingModelImpl();
+    Readable rd = new StringReader("create-layer\ncreate-layer\ncreate-layer\nundo\nundo\nredo\n");
+    new ImageEditorControllerImpl(model, rd, new PrintStream(new ByteArrayOutputStream())).start();
+    Assert.assertEquals(2, model.getAll().size());
+  }
 }
\ No newline at end of file
@@ -141,4 +141,43 @@ public class ImageTest {
     Image img = new Image(pixels);
   }
 
+  @Test
+  public void getChannel() {
+    RGB blue = new RGB(0, 0, 255);
+    RGB yellow = new RGB(255, 255, 0);
+    RGB[][] pixels = new RGB[][]{{blue, yellow}};
+    Image basicColors = new Image(pixels);
+    assertEquals(255, basicColors.getChannel(0, 0, 2));
+    assertEquals(255, basicColors.getChannel(1, 0, 1));
+    assertEquals(0, basicColors.getChannel(1, 0, 2));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void getChannelIAE() {
+    RGB blue = new RGB(0, 0, 255);
+    RGB[][] pixels = new RGB[][]{{blue}};
+    Image basicColors = new Image(pixels);
+    basicColors.getChannel(0, 0, 3);
+  }
+
+  @Test
+  public void getRow() {
+    RGB blue = new RGB(0, 0, 255);
+    RGB yellow = new RGB(255, 255, 0);
+    RGB red = new RGB(255, 0, 0);
+    RGB green = new RGB(0, 255, 0);
+    RGB[][] pixels = new RGB[][]{{blue, yellow}, {red, green}};
+    Image basicColors = new Image(pixels);
+    int[] row = new int[2];
+    basicColors.getRow(1, 0, row);
+    assertEquals(255, row[0]);
+    assertEquals(0, row[1]);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testConstructorColorTooLarge() {
+    RGB[][] pixels = new RGB[][]{{new RGB(70000, 0, 0)}};
+    Image img = new Image(pixels, 65535);
+  }
+
 }
\ No newline at end of file
@@ -1,12 +1,18 @@
 import static org.junit.Assert.assertEquals;
 
 import controller.ImageUtilAddition;
+import java.awt.Color;
+import java.awt.image.BufferedImage;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.util.Random;
 import model.Downscale;
+import model.Image;
 import model.ImageEditors;
 import model.ImageInterface;
 import model.Mosaic;
+import model.RGB;
+import model.Rainbow;
 import org.junit.Test;
 
 /**
@@ -59,4 +65,40 @@ public class ImageUtilAdditionTest {
   public void readImageFNF() throws IOException {
     ImageInterface helloWorld = ImageUtilAddition.readImage("res/helloWorld.jpg");
   }
+
+  @Test
+  public void toImageSameAsGetRgb() {
+    int[] types = new int[]{BufferedImage.TYPE_INT_RGB, BufferedImage.TYPE_INT_ARGB,
+        BufferedImage.TYPE_INT_BGR, BufferedImage.TYPE_3BYTE_BGR, BufferedImage.TYPE_4BYTE_ABGR,
+        BufferedImage.TYPE_BYTE_GRAY, BufferedImage.TYPE_BYTE_INDEXED};
+    Random random = new Random(3);
+    for (int type : types) {
+      BufferedImage input = new BufferedImage(13, 9, type);
+      for (int i = 0; i < 9; i++) {
+        for (int j = 0; j < 13; j++) {
+          input.setRGB(j, i, random.nextInt());
+        }
+      }
+      // a subimage shares the raster of its parent at an offset
+      for (BufferedImage image : new BufferedImage[]{input, input.getSubimage(2, 3, 7, 5)}) {
+        ImageInterface converted = ImageUtilAddition.toImage(image);
+        for (int i = 0; i < image.getHeight(); i++) {
+          for (int j = 0; j < image.getWidth(); j++) {
+            Color color = new Color(image.getRGB(j, i));
+            assertEquals(new RGB(color.getRed(), color.getGreen(), color.getBlue()),
+                converted.getPixel(j, i));
+          }
+        }
+      }
+    }
+  }
+
+  @Test
+  public void convertImageRoundTrip() throws IOException {
+    ImageInterface rainbow = new Rainbow(30, 14).create();
+    BufferedImage converted = ImageUtilAddition.convertImage(rainbow);
+    assertEquals(new Color(rainbow.getPixel(29, 13).getRed(), rainbow.getPixel(29, 13).getGreen(),
+        rainbow.getPixel(29, 13).getBlue()).getRGB(), converted.getRGB(29, 13));
+    assertEquals(new Image(rainbow.getPixels(), 256), ImageUtilAddition.toImage(converted));
+  }
 }
\ No newline at end of file
@@ -1,6 +1,13 @@
 import controller.ImageUtil;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import model.Image;
 import model.ImageInterface;
 import model.RGB;
+import model.Rainbow;
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -44,4 +51,78 @@ public class ImageUtilTest {
     Assert.assertEquals(red, image.getPixel(2, 3));
     Assert.assertEquals(red, image.getPixel(3, 3));
   }
+
+  @Test
+  public void testReadPlainFromStream() throws IOException {
+    String ppm = "P3\n# a comment\n2 1 # size\n255\n255 0 0\n0 0 255\n";
+    ImageInterface image = ImageUtil.readPPM(
+        new ByteArrayInputStream(ppm.getBytes(StandardCharsets.US_ASCII)));
+    Assert.assertEquals(new Image(new RGB[][]{{new RGB(255, 0, 0), new RGB(0, 0, 255)}}), image);
+  }
+
+  @Test
+  public void testReadRaw() throws IOException {
+    byte[] ppm = new byte[]{'P', '6', '\n', '2', ' ', '1', '\n', '2', '5', '5', '\n',
+        (byte) 255, 0, 10, 0, (byte) 200, (byte) 128};
+    ImageInterface image = ImageUtil.readPPM(new ByteArrayInputStream(ppm));
+    Assert.assertEquals(new Image(new RGB[][]{{new RGB(255, 0, 10), new RGB(0, 200, 128)}}),
+        image);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testReadRawTruncated() throws IOException {
+    byte[] ppm = new byte[]{'P', '6', ' ', '2', ' ', '1', ' ', '9', ' ', 1, 2, 3, 4};
+    ImageUtil.readPPM(new ByteArrayInputStream(ppm));
+  }
+
+  @Test
+  public void testReadLeavesStreamAfterImage() throws IOException {
+    ImageInterface first = new Rainbow(300, 140).create();
+    ImageInterface second = new Rainbow(5, 7).create();
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    ImageUtil.writePPM(first, out, true);
+    ImageUtil.writePPM(second, out, false);
+    ImageUtil.writePPM(first, out, false);
+    out.write("end".getBytes(StandardCharsets.US_ASCII));
+    ByteArrayInputStream in = new ByteArrayInputStream(out.toByteArray());
+    Assert.assertEquals(first, ImageUtil.readPPM(in));
+    Assert.assertEquals(second, ImageUtil.readPPM(in));
+    Assert.assertEquals(first, ImageUtil.readPPM(in));
+    Assert.assertEquals("end", new String(in.readAllBytes(), StandardCharsets.US_ASCII));
+  }
+
+  @Test
+  public void testWritePlainFormat() throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    ImageUtil.writePPM(new Image(new RGB[][]{{new RGB(255, 0, 10), new RGB(7, 65, 128)}}), out,
+        false);
+    Assert.assertEquals("P3\n2 1\n255\n255\n0\n10\n7\n65\n128\n",
+        new String(out.toByteArray(), StandardCharsets.US_ASCII));
+  }
+
+  @Test
+  public void testRoundTrips() throws IOException {
+    ImageInterface rainbow = new Rainbow(37, 21).create();
+    RGB[][] deep = new RGB[][]{{new RGB(65535, 0, 300), new RGB(1, 4096, 65000)}};
+    ImageInterface sixteenBit = new Image(deep, 65535);
+    for (ImageInterface image : new ImageInterface[]{rainbow, sixteenBit}) {
+      for (boolean raw : new boolean[]{false, true}) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageUtil.writePPM(image, out, raw);
+        ImageInterface read = ImageUtil.readPPM(new ByteArrayInputStream(out.toByteArray()));
+        Assert.assertEquals(image, read);
+        Assert.assertEquals(image.getMaxValue(), read.getMaxValue());
+      }
+    }
+  }
+
+  @Test
+  public void testExportRawFile() throws IOException {
+    File file = File.createTempFile("raw", ".ppm");
+    file.deleteOnExit();
+    ImageInterface rainbow = new Rainbow(12, 14).create();
+    ImageUtil.exportFile(rainbow, file.getPath(), true);
+    Assert.assertEquals(13 + 12 * 14 * 3, file.length());
+    Assert.assertEquals(rainbow, ImageUtil.readPPM(file.getPath()));
+  }
 }
@@ -4,6 +4,7 @@ import static org.junit.Assert.assertTrue;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 
 import java.util.Arrays;
+import model.BlendMode;
 import model.Image;
 import model.ILayer;
 import model.ImageInterface;
@@ -223,4 +224,25 @@ public class LayerTest {
     layer.setVisibility(false);
     assertFalse(layer.getVisibility());
   }
+
+  @Test
+  public void opacityAndBlendMode() {
+    ILayer layer = new Layer();
+    assertEquals(1, layer.getOpacity(), 0);
+    assertEquals(BlendMode.NORMAL, layer.getBlendMode());
+    layer.setOpacity(0.25);
+    layer.setBlendMode(BlendMode.SCREEN);
+    assertEquals(0.25, layer.getOpacity(), 0);
+    assertEquals(BlendMode.SCREEN, layer.getBlendMode());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void setOpacityOutOfRange() {
+    new Layer().setOpacity(1.5);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void setBlendModeNull() {
+    new Layer().setBlendMode(null);
+  }
 }
\ No newline at end of file
@@ -0,0 +1,140 @@
+import static org.junit.Assert.assertEquals;
+
+import controller.ImageUtil;
+import java.io.File;
+import java.io.IOException;
+import model.Blur;
+import model.BoxBlur;
+import model.Downscale;
+import model.GaussianBlur;
+import model.Greyscale;
+import model.Image;
+import model.ImageBuffer;
+import model.ImageInterface;
+import model.MappedImage;
+import model.RGB;
+import model.Rainbow;
+import model.ResampleFilter;
+import model.Resize;
+import model.Sepia;
+import model.Sharpening;
+import model.StreamingEditor;
+import org.junit.Test;
+
+/**
+ * Testing memory-mapped images and the editors streaming over them.
+ */
+public class MappedImageTest {
+
+  private final ImageInterface rainbow = new Rainbow(45, 28).create();
+
+  /**
+   * Creates an empty temporary file deleted when the tests end.
+   *
+   * @return the path of the file
+   * @throws IOException if the file cannot be created
+   */
+  private static String temporaryFile() throws IOException {
+    File file = File.createTempFile("mapped", ".ppm");
+    file.deleteOnExit();
+    return file.getPath();
+  }
+
+  /**
+   * Streams an editor over an image into a buffer of the given size.
+   *
+   * @param editor the editor to stream
+   * @param img    the image to edit
+   * @param width  the width of the result
+   * @param height the height of the result
+   * @return the streamed result
+   */
+  private static Image stream(StreamingEditor editor, ImageInterface img, int width, int height) {
+    ImageBuffer buffer = new ImageBuffer(width, height, img.getMaxValue());
+    editor.apply(img, buffer);
+    return buffer.toImage();
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void constructorInvalidMaxValue() throws IOException {
+    new MappedImage(temporaryFile(), 0, 2, 2, 0, true);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void mapMissingFile() {
+    ImageUtil.mapPPM("no-such-file.ppm");
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void mapPlainFile() throws IOException {
+    String file = temporaryFile();
+    ImageUtil.exportFile(rainbow, file, false);
+    ImageUtil.mapPPM(file);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void setRowOutOfRange() throws IOException {
+    MappedImage img = ImageUtil.createMappedPPM(temporaryFile(), 2, 1, 255);
+    img.setRow(0, 0, new int[]{0, 256});
+  }
+
+  @Test
+  public void mapReadsPixels() throws IOException {
+    String file = temporaryFile();
+    ImageUtil.exportFile(rainbow, file, true);
+    MappedImage mapped = ImageUtil.mapPPM(file);
+    assertEquals(45, mapped.getWidth());
+    assertEquals(28, mapped.getHeight());
+    assertEquals(rainbow.getPixel(44, 27), mapped.getPixel(44, 27));
+    assertEquals(rainbow.getChannel(3, 10, 2), mapped.getChannel(3, 10, 2));
+    assertEquals(rainbow, mapped.getImage());
+  }
+
+  @Test
+  public void mapSixteenBit() throws IOException {
+    Image deep = new Image(new RGB[][]{{new RGB(65535, 0, 300)}, {new RGB(1, 4096, 65000)}},
+        65535);
+    String file = temporaryFile();
+    ImageUtil.exportFile(deep, file, true);
+    assertEquals(deep, ImageUtil.mapPPM(file).getImage());
+  }
+
+  @Test
+  public void writeMappedFile() throws IOException {
+    String file = temporaryFile();
+    MappedImage dest = ImageUtil.createMappedPPM(file, 45, 28, 255);
+    new Sepia().apply(rainbow, dest);
+    dest.force();
+    assertEquals(new Sepia().apply(rainbow), ImageUtil.readPPM(file));
+  }
+
+  @Test
+  public void streamSameAsApply() {
+    StreamingEditor[] editors = new StreamingEditor[]{new Blur(), new Sharpening(),
+        new BoxBlur(3), new GaussianBlur(0.8), new Greyscale(), new Sepia()};
+    for (StreamingEditor editor : editors) {
+      assertEquals(editor.apply(rainbow), stream(editor, rainbow, 45, 28));
+    }
+    assertEquals(new Downscale(20, 30).apply(rainbow),
+        stream(new Downscale(20, 30), rainbow, 30, 20));
+    assertEquals(new Resize(50, 70, ResampleFilter.LANCZOS).apply(rainbow),
+        stream(new Resize(50, 70, ResampleFilter.LANCZOS), rainbow, 70, 50));
+  }
+
+  @Test
+  public void streamAcrossStrips() throws IOException {
+    // large enough to be streamed in several strips
+    ImageInterface large = new Rainbow(4096, 1400).create();
+    String file = temporaryFile();
+    ImageUtil.exportFile(large, file, true);
+    MappedImage mapped = ImageUtil.mapPPM(file);
+    assertEquals(new Blur().apply(large), stream(new Blur(), mapped, 4096, 1400));
+    assertEquals(new Downscale(700, 2048, ResampleFilter.BICUBIC).apply(large),
+        stream(new Downscale(700, 2048, ResampleFilter.BICUBIC), mapped, 2048, 700));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void streamWrongSize() {
+    new Blur().apply(rainbow, new ImageBuffer(44, 28, 255));
+  }
+}
@@ -1,6 +1,7 @@
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
+import java.util.Random;
 import model.CheckerBoard;
 import model.Image;
 import model.ImageEditors;
@@ -16,6 +17,83 @@ import org.junit.Test;
  */
 public class MosaicTest {
 
+  /**
+   * Creates an image in which neighbouring pixels have different colors, so that a pixel given to
+   * the wrong seed changes the average of the tiles.
+   *
+   * @param width  the width of the image
+   * @param height the height of the image
+   * @return the image
+   */
+  private static ImageInterface varied(int width, int height) {
+    RGB[][] pixels = new RGB[height][width];
+    for (int y = 0; y < height; y++) {
+      for (int x = 0; x < width; x++) {
+        pixels[y][x] = new RGB((x * 37 + y * 11) % 256, (x * x + y * 53) % 256, (x * y) % 256);
+      }
+    }
+    return new Image(pixels);
+  }
+
+  /**
+   * Computes the mosaic a seeded Mosaic gives by comparing every pixel with every seed. The seeds
+   * are drawn from the generator the way Mosaic draws them, and a pixel equally near to several
+   * seeds joins the one drawn first.
+   *
+   * @param img        the image
+   * @param numSeeds   the number of seeds
+   * @param randomSeed the seed of the random number generator
+   * @return the mosaic
+   */
+  private static ImageInterface bruteForceMosaic(ImageInterface img, int numSeeds,
+      long randomSeed) {
+    int width = img.getWidth();
+    int height = img.getHeight();
+    Random random = new Random(randomSeed);
+    int[] positions = new int[width * height];
+    for (int p = 0; p < positions.length; p++) {
+      positions[p] = p;
+    }
+    for (int i = 0; i < numSeeds; i++) {
+      int pick = i + random.nextInt(positions.length - i);
+      int position = positions[pick];
+      positions[pick] = positions[i];
+      positions[i] = position;
+    }
+    int[] labels = new int[width * height];
+    long[][] sums = new long[3][numSeeds];
+    int[] sizes = new int[numSeeds];
+    for (int y = 0; y < height; y++) {
+      for (int x = 0; x < width; x++) {
+        long bestDistance = Long.MAX_VALUE;
+        for (int s = 0; s < numSeeds; s++) {
+          long dy = positions[s] / width - y;
+          long dx = positions[s] % width - x;
+          if (dy * dy + dx * dx < bestDistance) {
+            bestDistance = dy * dy + dx * dx;
+            labels[y * width + x] = s;
+          }
+        }
+        int label = labels[y * width + x];
+        sizes[label]++;
+        for (int c = 0; c < 3; c++) {
+          sums[c][label] += img.getChannel(x, y, c);
+        }
+      }
+    }
+    RGB[][] pixels = new RGB[height][width];
+    for (int y = 0; y < height; y++) {
+      for (int x = 0; x < width; x++) {
+        int label = labels[y * width + x];
+        int half = sizes[label] / 2;
+        pixels[y][x] = new RGB((int) ((sums[0][label] + half) / sizes[label]),
+            (int) ((sums[1][label] + half) / sizes[label]),
+            (int) ((sums[2][label] + half) / sizes[label]));
+      }
+    }
+    return new Image(pixels);
+  }
+
   @Test(expected = IllegalArgumentException.class)
   public void constructorIAE() {
     ImageEditors mosaic = new Mosaic(0);
@@ -53,4 +131,76 @@ public class MosaicTest {
     ImageInterface grayBoard = new Image(grayPixels);
     assertEquals(grayBoard, mosaic.apply(checkerboard));
   }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void constructorNullEngine() {
+    new Mosaic(5, null);
+  }
+
+  @Test
+  public void applyJumpFlood() {
+    RGB black = new RGB(0, 0, 0);
+    RGB white = new RGB(255, 255, 255);
+    ImageInterface checkerboard = new CheckerBoard(3, 4, new RGB[]{black, white}).create();
+    ImageEditors mosaic = new Mosaic(1, Mosaic.Engine.JUMP_FLOOD);
+    RGB gray = new RGB(128, 128, 128);
+    RGB[][] grayPixels = new RGB[12][12];
+    for (int i = 0; i < 12; i++) {
+      for (int j = 0; j < 12; j++) {
+        grayPixels[i][j] = gray;
+      }
+    }
+    assertEquals(new Image(grayPixels), mosaic.apply(checkerboard));
+  }
+
+  @Test
+  public void applyEverySeed() {
+    ImageInterface rainbow = new Rainbow(7, 7).create();
+    ImageEditors mosaic = new Mosaic(rainbow.getHeight() * rainbow.getWidth());
+    assertEquals(rainbow, mosaic.apply(rainbow));
+  }
+
+  @Test
+  public void applySeededIsReproducible() {
+    ImageInterface rainbow = new Rainbow(40, 35).create();
+    assertEquals(new Mosaic(50, 7).apply(rainbow), new Mosaic(50, 7).apply(rainbow));
+  }
+
+  @Test
+  public void applyParallelSameAsSequential() {
+    ImageInterface rainbow = new Rainbow(120, 98).create();
+    for (Mosaic.Engine engine : Mosaic.Engine.values()) {
+      assertEquals(new Mosaic(300, engine, 11, 1).apply(rainbow),
+          new Mosaic(300, engine, 11, 4).apply(rainbow));
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void constructorParallelismIAE() {
+    new Mosaic(5, Mosaic.Engine.NEAREST_SEED, 1, 0);
+  }
+
+  @Test
+  public void applyNearestSeedSameAsBruteForce() {
+    // sizes the grid cells do not divide, thin images and seed counts from one to every pixel
+    int[][] cases = new int[][]{{37, 23, 1}, {37, 23, 2}, {37, 23, 40}, {37, 23, 851},
+        {1, 50, 7}, {50, 1, 7}, {1, 1, 1}, {64, 64, 9}, {31, 17, 300}};
+    for (int[] test : cases) {
+      ImageInterface img = varied(test[0], test[1]);
+      for (long randomSeed = 0; randomSeed < 5; randomSeed++) {
+        assertEquals(bruteForceMosaic(img, test[2], randomSeed),
+            new Mosaic(test[2], Mosaic.Engine.NEAREST_SEED, randomSeed, 1).apply(img));
+      }
+    }
+  }
+
+  @Test
+  public void applyNearestSeedTies() {
+    // with half the pixels of a small image as seeds, many pixels are as near to several seeds
+    ImageInterface img = varied(16, 16);
+    for (long randomSeed = 0; randomSeed < 20; randomSeed++) {
+      assertEquals(bruteForceMosaic(img, 128, randomSeed),
+          new Mosaic(128, Mosaic.Engine.NEAREST_SEED, randomSeed, 2).apply(img));
+    }
+  }
 }
\ No newline at end of file
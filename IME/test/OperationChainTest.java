@@ -0,0 +1,72 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import model.Blur;
+import model.CheckerBoard;
+import model.Downscale;
+import model.Greyscale;
+import model.ImageEditors;
+import model.ImageInterface;
+import model.OperationChain;
+import model.RGB;
+import model.Sepia;
+import org.junit.Test;
+
+/**
+ * Testing the operation chain and the fusion of color transformations.
+ */
+public class OperationChainTest {
+
+  private final ImageInterface checkerboard = new CheckerBoard(5, 12,
+      new RGB[]{new RGB(10, 200, 30), new RGB(250, 0, 90), new RGB(0, 0, 255)}).create();
+
+  @Test(expected = IllegalArgumentException.class)
+  public void constructorNullList() {
+    new OperationChain(null);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void constructorNullOperation() {
+    new OperationChain(Arrays.asList(new Sepia(), null));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void applyIAE() {
+    new OperationChain(Collections.emptyList()).apply(null);
+  }
+
+  @Test
+  public void keepsSize() {
+    OperationChain same = new OperationChain(Arrays.asList(new Sepia(), new Blur()));
+    assertTrue(same.keepsSize());
+    assertTrue(new OperationChain(Collections.singletonList(same)).keepsSize());
+    assertFalse(same.then(new Downscale(2, 2)).keepsSize());
+  }
+
+  @Test
+  public void applyEmpty() {
+    assertEquals(checkerboard, new OperationChain(Collections.emptyList()).apply(checkerboard));
+  }
+
+  @Test
+  public void applyFusedSameAsOneByOne() {
+    ImageEditors chain = new OperationChain(Arrays.asList(new Sepia(), new Greyscale(),
+        new Sepia()));
+    ImageInterface expected = new Sepia().apply(new Greyscale().apply(
+        new Sepia().apply(checkerboard)));
+    assertEquals(expected, chain.apply(checkerboard));
+  }
+
+  @Test
+  public void applyMixedSameAsOneByOne() {
+    OperationChain chain = new OperationChain(Arrays.asList(new Sepia(), new Sepia()))
+        .then(new Blur()).then(new Greyscale());
+    ImageInterface expected = new Greyscale().apply(new Blur().apply(
+        new Sepia().apply(new Sepia().apply(checkerboard))));
+    assertEquals(expected, chain.apply(checkerboard));
+    assertEquals(4, chain.getOperations().size());
+  }
+}
@@ -0,0 +1,86 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import controller.ImageUtil;
+import controller.ImageUtilAddition;
+import controller.ProjectLoader;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import model.CheckerBoard;
+import model.Image;
+import model.ImageInterface;
+import model.Rainbow;
+import org.junit.Test;
+
+/**
+ * Testing the concurrent loading of the layers of a project.
+ */
+public class ProjectLoaderTest {
+
+  /**
+   * Creates an empty temporary file with the given extension, deleted when the tests end.
+   *
+   * @param extension the extension of the file, with its dot
+   * @return the path of the file
+   * @throws IOException if the file cannot be created
+   */
+  private static String temporaryFile(String extension) throws IOException {
+    File file = File.createTempFile("layer", extension);
+    file.deleteOnExit();
+    return file.getPath();
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void constructorParallelism() {
+    new ProjectLoader(0, 1 << 20);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void constructorBudget() {
+    new ProjectLoader(2, 0);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void loadNullFile() {
+    new ProjectLoader().load(Arrays.asList("a.png", null));
+  }
+
+  @Test
+  public void loadKeepsOrder() throws IOException {
+    List<String> files = new ArrayList<>();
+    List<ImageInterface> expected = new ArrayList<>();
+    for (int i = 1; i <= 12; i++) {
+      ImageInterface image = i % 2 == 0 ? new Rainbow(10 * i, 14).create()
+          : new CheckerBoard(i, 3).create();
+      String file = temporaryFile(i % 3 == 0 ? ".ppm" : ".png");
+      if (file.endsWith(".ppm")) {
+        ImageUtil.exportFile(image, file, i % 2 == 0);
+        expected.add(image);
+      } else {
+        ImageUtilAddition.export(image, file);
+        expected.add(new Image(image.getPixels(), 256));
+      }
+      files.add(file);
+    }
+    // a budget smaller than any image makes the decodes run one at a time
+    for (ProjectLoader loader : new ProjectLoader[]{new ProjectLoader(),
+        new ProjectLoader(4, 1)}) {
+      assertEquals(expected, loader.load(files));
+    }
+  }
+
+  @Test
+  public void loadMissingFile() throws IOException {
+    String file = temporaryFile(".png");
+    ImageInterface image = new Rainbow(20, 7).create();
+    ImageUtilAddition.export(image, file);
+    List<ImageInterface> images = new ProjectLoader(2, 1 << 20)
+        .load(Arrays.asList("no-such-file.png", file, "no-such-file.ppm"));
+    assertNull(images.get(0));
+    assertEquals(new Image(image.getPixels(), 256), images.get(1));
+    assertNull(images.get(2));
+  }
+}
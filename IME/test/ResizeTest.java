@@ -0,0 +1,96 @@
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import model.Downscale;
+import model.Image;
+import model.ImageEditors;
+import model.ImageInterface;
+import model.RGB;
+import model.Rainbow;
+import model.ResampleFilter;
+import model.Resize;
+import org.junit.Test;
+
+/**
+ * Testing the resize operation.
+ */
+public class ResizeTest {
+
+  @Test(expected = IllegalArgumentException.class)
+  public void constructorException() {
+    ImageEditors rs = new Resize(0, -2);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void constructorNullFilter() {
+    new Resize(2, 2, null);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void constructorParallelism() {
+    new Resize(2, 2, ResampleFilter.BICUBIC, 0);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void applyIAE() {
+    ImageEditors rs = new Resize(45, 67);
+    rs.apply(null);
+  }
+
+  @Test
+  public void applyBilinearAlignsCenters() {
+    RGB black = new RGB(0, 0, 0);
+    RGB white = new RGB(255, 255, 255);
+    Image img = new Image(new RGB[][]{{black, white}});
+    RGB[][] expected = new RGB[][]{{black, new RGB(64, 64, 64), new RGB(191, 191, 191), white}};
+    assertEquals(new Image(expected), new Resize(1, 4, ResampleFilter.BILINEAR).apply(img));
+  }
+
+  @Test
+  public void applyFiltersKeepFlatColor() {
+    RGB color = new RGB(10, 120, 250);
+    RGB[][] pixels = new RGB[3][4];
+    for (RGB[] row : pixels) {
+      Arrays.fill(row, color);
+    }
+    RGB[][] expected = new RGB[10][13];
+    for (RGB[] row : expected) {
+      Arrays.fill(row, color);
+    }
+    for (ResampleFilter filter : ResampleFilter.values()) {
+      assertEquals(new Image(expected), new Resize(10, 13, filter).apply(new Image(pixels)));
+    }
+  }
+
+  @Test
+  public void applySameSizeKeepsImage() {
+    ImageInterface rainbow = new Rainbow(17, 21).create();
+    for (ResampleFilter filter : ResampleFilter.values()) {
+      assertEquals(rainbow, new Resize(21, 17, filter).apply(rainbow));
+    }
+  }
+
+  @Test
+  public void applyEachSideIndependently() {
+    ImageInterface rainbow = new Rainbow(30, 14).create();
+    ImageInterface result = new Resize(35, 12, ResampleFilter.LANCZOS).apply(rainbow);
+    assertEquals(35, result.getHeight());
+    assertEquals(12, result.getWidth());
+  }
+
+  @Test
+  public void applyBoxReductionSameAsDownscale() {
+    ImageInterface rainbow = new Rainbow(40, 56).create();
+    assertEquals(new Downscale(9, 13, ResampleFilter.BOX).apply(rainbow),
+        new Resize(9, 13, ResampleFilter.BOX).apply(rainbow));
+  }
+
+  @Test
+  public void applyParallelSameAsSequential() {
+    ImageInterface rainbow = new Rainbow(26, 35).create();
+    for (ResampleFilter filter : ResampleFilter.values()) {
+      assertEquals(new Resize(97, 61, filter, 1).apply(rainbow),
+          new Resize(97, 61, filter, 4).apply(rainbow));
+    }
+  }
+}
@@ -0,0 +1,143 @@
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import model.Blur;
+import model.CheckerBoard;
+import model.Compositor;
+import model.ImageBuffer;
+import model.ImageInterface;
+import model.MultiImageProcessingModel;
+import model.MultiImageProcessingModelImpl;
+import model.Rainbow;
+import model.TileStore;
+import model.TiledImage;
+import org.junit.Test;
+
+/**
+ * Testing images stored as tiles and paged out to disk.
+ */
+public class TiledImageTest {
+
+  // spans three columns and two rows of tiles, the last ones partial
+  private final ImageInterface rainbow = new Rainbow(600, 301).create();
+  private static final int TILE_BYTES = 3 * TiledImage.TILE_SIZE * TiledImage.TILE_SIZE * 2;
+
+  @Test(expected = IllegalArgumentException.class)
+  public void constructorNullStore() {
+    new TiledImage(rainbow, null);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void storeNegativeBudget() {
+    new TileStore(-1);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void getChannelOutOfBounds() {
+    new TiledImage(rainbow, new TileStore(1 << 20)).getChannel(600, 0, 0);
+  }
+
+  @Test
+  public void tilesHoldPixels() {
+    TiledImage tiled = new TiledImage(rainbow, new TileStore(1 << 30));
+    assertEquals(600, tiled.getWidth());
+    assertEquals(301, tiled.getHeight());
+    assertEquals(rainbow.getMaxValue(), tiled.getMaxValue());
+    assertEquals(rainbow.getPixel(599, 300), tiled.getPixel(599, 300));
+    assertEquals(rainbow.getChannel(256, 255, 1), tiled.getChannel(256, 255, 1));
+    int[] expected = new int[600];
+    int[] actual = new int[600];
+    rainbow.getRow(290, 2, expected);
+    tiled.getRow(290, 2, actual);
+    assertArrayEquals(expected, actual);
+    assertEquals(rainbow, tiled.getImage());
+  }
+
+  @Test
+  public void pagedOutTilesAreReadBack() {
+    TileStore store = new TileStore(0);
+    TiledImage tiled = new TiledImage(rainbow, store);
+    assertEquals(0, store.getResidentBytes());
+    assertTrue(store.getSpillLength() > 0);
+    assertEquals(rainbow, tiled.getImage());
+    assertEquals(0, store.getResidentBytes());
+  }
+
+  @Test
+  public void leastRecentlyUsedTilesArePagedOut() {
+    TileStore store = new TileStore(2 * TILE_BYTES);
+    TiledImage tiled = new TiledImage(rainbow, store);
+    assertTrue(store.getResidentBytes() <= 2 * TILE_BYTES);
+    // the tiles of the first rows are paged out by the ones copied after them
+    assertEquals(rainbow.getPixel(10, 10), tiled.getPixel(10, 10));
+    assertEquals(rainbow.getPixel(599, 0), tiled.getPixel(599, 0));
+    assertTrue(store.getResidentBytes() <= 2 * TILE_BYTES);
+    assertEquals(rainbow, tiled.getImage());
+    long spilled = store.getSpillLength();
+    // every tile has been paged out once, tiles never change so they are not written again
+    assertEquals(rainbow, tiled.getImage());
+    assertEquals(spilled, store.getSpillLength());
+  }
+
+  @Test
+  public void streamOverTiles() {
+    TiledImage tiled = new TiledImage(rainbow, new TileStore(TILE_BYTES));
+    ImageBuffer buffer = new ImageBuffer(600, 301, rainbow.getMaxValue());
+    new Blur().apply(tiled, buffer);
+    assertEquals(new Blur().apply(rainbow), buffer.toImage());
+  }
+
+  @Test
+  public void modelPagesOutInactiveLayers() {
+    TileStore store = new TileStore(0);
+    MultiImageProcessingModel model = new MultiImageProcessingModelImpl(1 << 20, store);
+    model.createLayer();
+    model.setImage(rainbow);
+    model.createLayer();
+    ImageInterface checker = new CheckerBoard(20, 5).create();
+    model.setImage(checker);
+    assertTrue(model.getAll().get(0).getImage() instanceof TiledImage);
+    assertEquals(checker, model.getImage());
+    assertEquals(new Compositor().composite(model.getAll()), model.getComposite());
+    model.setCurrent(0);
+    assertEquals(rainbow, model.getImage());
+    assertTrue(model.getAll().get(1).getImage() instanceof TiledImage);
+    model.undo();
+    assertTrue(model.getAll().get(1).isEmpty());
+    assertEquals(rainbow, model.getAll().get(0).getImage());
+    model.redo();
+    assertEquals(checker, model.getImage());
+  }
+
+  @Test
+  public void sameValueAsImage() {
+    TiledImage tiled = new TiledImage(rainbow, new TileStore(TILE_BYTES));
+    assertEquals(rainbow, tiled);
+    assertEquals(tiled, rainbow);
+    assertEquals(new TiledImage(rainbow, new TileStore(0)), tiled);
+    assertEquals(rainbow.hashCode(), tiled.hashCode());
+    assertEquals(rainbow.toString(), tiled.toString());
+    assertNotEquals(new Rainbow(600, 294).create(), tiled);
+    assertNotEquals(new Blur().apply(rainbow), tiled);
+  }
+
+  @Test
+  public void switchingLayersKeepsComposite() {
+    MultiImageProcessingModel model = new MultiImageProcessingModelImpl(1 << 20,
+        new TileStore(0));
+    model.createLayer();
+    model.setImage(rainbow);
+    model.createLayer();
+    model.setImage(new CheckerBoard(20, 5).create());
+    model.setOpacity(1, 0.5);
+    ImageInterface composite = model.getComposite();
+    model.setCurrent(0);
+    // paging the layers in and out changes no pixel, so nothing is redrawn
+    assertSame(composite, model.getComposite());
+    model.setCurrent(1);
+    assertSame(composite, model.getComposite());
+  }
+}